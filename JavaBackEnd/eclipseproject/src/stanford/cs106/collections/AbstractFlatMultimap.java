@@ -0,0 +1,236 @@
+/*
+ * The storage shared by FlatMultimap and IntMultimap: all of the values of
+ * all keys live in one array, each key's values in a contiguous range of it.
+ *
+ * Each key is given a "slot" number, and the slot's range is described by
+ * three parallel int arrays: where it starts, how many values it holds, and
+ * how many it has room for.  Adding a value to a full range moves the range
+ * to the end of the array with twice the room, unless it is already last, in
+ * which case it simply grows in place.  The space a range leaves behind is
+ * counted as garbage, and once garbage makes up a third of the array the
+ * live ranges, with their spare room, are packed together into a new array.
+ *
+ * Subclasses map keys to slots, and supply the value array, so that it can
+ * be an array of a primitive type.
+ *
+ * @author Marty Stepp
+ * @version 2015/06/06
+ */
+
+package stanford.cs106.collections;
+
+import java.util.Arrays;
+
+abstract class AbstractFlatMultimap {
+	private static final int MIN_RANGE = 4;
+	private static final int MIN_COMPACT = 1024;
+	private static final int FREE = -1;   // capacity of a slot on the free list
+
+	private int[] start = new int[16];      // [slot] -> index of first value, or next free slot
+	private int[] length = new int[16];     // [slot] -> number of values
+	private int[] capacity = new int[16];   // [slot] -> room for values, or FREE
+	private int slotCount;   // slots ever handed out
+	private int freeSlots = -1;   // first free slot, or -1
+	private int arrayLength; // length of the value array
+	private int end;         // first index of the value array not in any range
+	private int garbage;     // cells before end that are in no range
+	private int size;        // number of values
+
+	/*
+	 * Returns the value array, which starts out empty.
+	 */
+	protected abstract Object valueArray();
+
+	/*
+	 * Makes the given array the value array.
+	 */
+	protected abstract void setValueArray(Object values);
+
+	/*
+	 * Returns a new value array of the given length.
+	 */
+	protected abstract Object newValueArray(int length);
+
+	/*
+	 * Clears the given cells of the value array, so that any objects in them
+	 * can be garbage-collected.
+	 */
+	protected abstract void clearValueArray(int from, int to);
+
+	/*
+	 * Returns a new empty slot.
+	 */
+	protected final int newSlot() {
+		int slot;
+		if (freeSlots >= 0) {
+			slot = freeSlots;
+			freeSlots = start[slot];
+		} else {
+			if (slotCount == start.length) {
+				int newLength = 2 * slotCount;
+				start = Arrays.copyOf(start, newLength);
+				length = Arrays.copyOf(length, newLength);
+				capacity = Arrays.copyOf(capacity, newLength);
+			}
+			slot = slotCount++;
+		}
+		start[slot] = end;
+		length[slot] = 0;
+		capacity[slot] = 0;
+		return slot;
+	}
+
+	/*
+	 * Empties the given slot and puts it on the free list.
+	 */
+	protected final void freeSlot(int slot) {
+		clearValueArray(start[slot], start[slot] + length[slot]);
+		if (start[slot] + capacity[slot] == end) {
+			end = start[slot];
+		} else {
+			garbage += capacity[slot];
+		}
+		size -= length[slot];
+		length[slot] = 0;
+		capacity[slot] = FREE;
+		start[slot] = freeSlots;
+		freeSlots = slot;
+	}
+
+	/*
+	 * Makes room for one more value in the slot's range and returns the index
+	 * of the value array where it should be stored.
+	 */
+	protected final int append(int slot) {
+		if (length[slot] == capacity[slot]) {
+			grow(slot);
+		}
+		size++;
+		return start[slot] + length[slot]++;
+	}
+
+	/*
+	 * Removes the value at the given position of the slot's range, moving
+	 * the values after it down by one.
+	 */
+	protected final void removeAt(int slot, int position) {
+		int from = start[slot] + position;
+		int last = start[slot] + length[slot] - 1;
+		System.arraycopy(valueArray(), from + 1, valueArray(), from, last - from);
+		clearValueArray(last, last + 1);
+		length[slot]--;
+		size--;
+	}
+
+	protected final int start(int slot) {
+		return start[slot];
+	}
+
+	protected final int length(int slot) {
+		return length[slot];
+	}
+
+	protected final boolean isFree(int slot) {
+		return capacity[slot] == FREE;
+	}
+
+	/*
+	 * Returns the number of slots ever handed out; slots below this that are
+	 * not free are in use.
+	 */
+	protected final int slotCount() {
+		return slotCount;
+	}
+
+	/*
+	 * Returns the total number of values in all slots.
+	 */
+	protected final int valueCount() {
+		return size;
+	}
+
+	/*
+	 * Forgets all slots and values.
+	 */
+	protected final void clearSlots() {
+		clearValueArray(0, end);
+		slotCount = 0;
+		freeSlots = -1;
+		end = 0;
+		garbage = 0;
+		size = 0;
+	}
+
+	/**
+	 * Packs all values together into an array just big enough to hold them,
+	 * releasing the space left behind by removed and moved values.  This is
+	 * done automatically as needed; call it directly to trim a multimap that
+	 * will not change again.
+	 */
+	public void compact() {
+		pack(true);
+	}
+
+	/*
+	 * Copies the live ranges, in slot order, into a new array without any
+	 * garbage.  If trim is true each range keeps only its values; otherwise
+	 * it keeps its spare room too, and the array gets room for half as many
+	 * values again at the end.
+	 */
+	private void pack(boolean trim) {
+		int live = 0;
+		for (int slot = 0; slot < slotCount; slot++) {
+			if (capacity[slot] != FREE) {
+				if (trim) {
+					capacity[slot] = length[slot];
+				}
+				live += capacity[slot];
+			}
+		}
+		arrayLength = trim ? live : live + live / 2;
+		Object oldValues = valueArray();
+		Object newValues = newValueArray(arrayLength);
+		int next = 0;
+		for (int slot = 0; slot < slotCount; slot++) {
+			if (capacity[slot] != FREE) {
+				System.arraycopy(oldValues, start[slot], newValues, next, length[slot]);
+				start[slot] = next;
+				next += capacity[slot];
+			}
+		}
+		setValueArray(newValues);
+		end = next;
+		garbage = 0;
+	}
+
+	private void grow(int slot) {
+		int newCapacity = Math.max(MIN_RANGE, 2 * capacity[slot]);
+		if (start[slot] + capacity[slot] != end) {
+			if (garbage >= MIN_COMPACT && garbage >= end / 3) {
+				pack(false);
+			}
+		}
+		if (start[slot] + capacity[slot] == end) {
+			// the range is last in the array, so it can grow where it is
+			ensureLength(start[slot] + newCapacity);
+			end = start[slot] + newCapacity;
+		} else {
+			ensureLength(end + newCapacity);
+			System.arraycopy(valueArray(), start[slot], valueArray(), end, length[slot]);
+			clearValueArray(start[slot], start[slot] + length[slot]);
+			garbage += capacity[slot];
+			start[slot] = end;
+			end += newCapacity;
+		}
+		capacity[slot] = newCapacity;
+	}
+
+	private void ensureLength(int needed) {
+		if (needed > arrayLength) {
+			arrayLength = Math.max(needed, 2 * arrayLength);
+			Object newValues = newValueArray(arrayLength);
+			System.arraycopy(valueArray(), 0, newValues, 0, end);
+			setValueArray(newValues);
+		}
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ * Common code for grids of primitive values, which keep every cell in one flat
+ * array in row-major order (the cell at (row, col) is at index row * numCols()
+ * + col) rather than one boxed object per cell as in Grid.
+ *
+ * @author Marty Stepp
+ * @version 2015/05/28
+ */
+
+package stanford.cs106.collections;
+
+import java.util.concurrent.ForkJoinPool;
+
+public abstract class AbstractPrimitiveGrid {
+	protected int rows;
+	protected int cols;
+	
+	/*
+	 * Allocates storage for the given number of cells, all zero/false.
+	 */
+	protected abstract void allocate(int size);
+	
+	public int height() {
+		return rows;
+	}
+	
+	/*
+	 * Returns the index of the given cell in the grid's flat array.
+	 */
+	public int index(int row, int col) {
+		return row * cols + col;
+	}
+	
+	public boolean inBounds(int row, int col) {
+		return row >= 0 && row < rows && col >= 0 && col < cols;
+	}
+	
+	public boolean isEmpty() {
+		return rows == 0 || cols == 0;
+	}
+	
+	/*
+	 * Returns whether all 8 neighbors of the given cell are in bounds.
+	 */
+	public boolean isInterior(int row, int col) {
+		return row > 0 && row < rows - 1 && col > 0 && col < cols - 1;
+	}
+	
+	/*
+	 * Runs the action once for every cell, in parallel on a shared pool.
+	 */
+	public void parallelForEach(GridCellAction action) {
+		parallelForEach(action, ParallelGrid.getDefaultPool());
+	}
+	
+	/*
+	 * Runs the action once for every cell, in parallel on the given pool.
+	 */
+	public void parallelForEach(final GridCellAction action, ForkJoinPool pool) {
+		final int cols = this.cols;
+		ParallelGrid.forEachRange(size(), 1, new ParallelGrid.RangeAction() {
+			public void run(int from, int to) {
+				ParallelGrid.forEachCell(from, to, cols, action);
+			}
+		}, pool);
+	}
+	
+	public int numCols() {
+		return cols;
+	}
+	
+	public int numRows() {
+		return rows;
+	}
+	
+	/*
+	 * Changes the grid's size; all cells are reset to zero/false.
+	 */
+	public void resize(int rows, int cols) {
+		if (rows < 0 || cols < 0 || (long) rows * cols > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException(rows + "," + cols);
+		}
+		this.rows = rows;
+		this.cols = cols;
+		allocate(rows * cols);
+	}
+	
+	public int size() {
+		return rows * cols;
+	}
+	
+	public int width() {
+		return cols;
+	}
+	
+	protected void checkIndex(int row, int col) {
+		if (!inBounds(row, col)) {
+			throw new IndexOutOfBoundsException(row + "," + col);
+		}
+	}
+	
+	protected void checkRegion(int row, int col, int numRows, int numCols) {
+		if (numRows < 0 || numCols < 0 || row < 0 || col < 0
+				|| numRows > rows - row || numCols > cols - col) {
+			throw new IndexOutOfBoundsException(row + "," + col + " " + numRows + "x" + numCols);
+		}
+	}
+	
+	/*
+	 * Checks that dest can receive a parallelMap of this grid: it must be the
+	 * same size, and a different grid so that no cell is read after being written.
+	 */
+	protected void checkMapDestination(AbstractPrimitiveGrid dest) {
+		if (dest == this) {
+			throw new IllegalArgumentException("destination must be a different grid");
+		} else if (dest.rows != rows || dest.cols != cols) {
+			throw new IllegalArgumentException("destination is " + dest.rows + "x" + dest.cols
+					+ " but should be " + rows + "x" + cols);
+		}
+	}
+	
+	/*
+	 * Swaps this grid's dimensions with the other's; subclasses swap the arrays.
+	 */
+	protected void swapSize(AbstractPrimitiveGrid other) {
+		int temp = rows;
+		rows = other.rows;
+		other.rows = temp;
+		temp = cols;
+		cols = other.cols;
+		other.cols = temp;
+	}
+	
+	/*
+	 * Returns whether a region copied from src to dest must be copied from its
+	 * bottom row up, so that overlapping rows are read before being overwritten.
+	 */
+	protected static boolean copyBackwards(Object src, Object dest, int srcRow, int destRow) {
+		return src == dest && srcRow < destRow;
+	}
+}
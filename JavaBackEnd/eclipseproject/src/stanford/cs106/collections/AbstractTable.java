@@ -37,8 +37,13 @@ public abstract class AbstractTable<R, C, V> implements Table<R, C, V> {
 		return map.containsKey(rowKey) && map.get(rowKey).containsKey(columnKey);
 	}
 
+	// looks through every row; see IndexedTable for a table that doesn't have to
 	public boolean containsColumn(Object columnKey) {
-		// TODO
+		for (Map<C, V> row : map.values()) {
+			if (row.containsKey(columnKey)) {
+				return true;
+			}
+		}
 		return false;
 	}
 
@@ -47,7 +52,11 @@ public abstract class AbstractTable<R, C, V> implements Table<R, C, V> {
 	}
 
 	public boolean containsValue(Object value) {
-		// TODO
+		for (Map<C, V> row : map.values()) {
+			if (row.containsValue(value)) {
+				return true;
+			}
+		}
 		return false;
 	}
 
@@ -79,7 +88,7 @@ public abstract class AbstractTable<R, C, V> implements Table<R, C, V> {
 			Map<C, V> row = map.get(rowKey);
 			V result = row.remove(columnKey);
 			if (row.isEmpty()) {
-				map.remove(row);
+				map.remove(rowKey);
 			}
 			return result;
 		} else {
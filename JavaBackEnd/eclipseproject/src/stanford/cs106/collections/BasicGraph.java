@@ -18,6 +18,7 @@ public class BasicGraph implements Graph {
 	private boolean weighted;
 	private Table<Vertex, Vertex, Edge> adjacencyMap;   // [source, destination --> edge info]
 	private Map<String, Vertex> vertexes;               // [vertex] -> [vertex info]
+	private Vertex.Context vertexContext;               // shared by all of the vertexes
 	
 	/**
 	 * Constructs a new empty undirected, unweighted graph.
@@ -35,6 +36,7 @@ public class BasicGraph implements Graph {
 		this.weighted = weighted;
 		adjacencyMap = TreeBasedTable.create();
 		vertexes = new TreeMap<String, Vertex>();
+		vertexContext = new Vertex.Context();
 		// edges = HashMultimap.create();
 	}
 
@@ -88,9 +90,20 @@ public class BasicGraph implements Graph {
 	public final void addVertex(String v) {
 		checkForNull(v);
 		if (!containsVertex(v)) {
-			vertexes.put(v, new Vertex(v));
+			vertexes.put(v, new Vertex(v, vertexContext));
 		}
 	}
+	
+	/**
+	 * Starts a batch of changes to this graph's vertexes.  Until the matching
+	 * call to endBatch, vertexes don't notify their observers of changes such
+	 * as a new color; instead, each vertex that changed notifies its observers
+	 * once when the batch ends.  Batches may be nested, in which case the
+	 * notifications are sent when the outermost batch ends.
+	 */
+	public final void beginBatch() {
+		vertexContext.beginBatch();
+	}
 
 	/** {@inheritDoc} */
 	public final void clear() {
@@ -220,6 +233,16 @@ public class BasicGraph implements Graph {
 		}
 	}
 	
+	/**
+	 * Ends a batch of changes started by beginBatch.  If this ends the
+	 * outermost batch, each vertex that changed during it notifies its
+	 * observers once, in the order the vertexes first changed.
+	 * @throws IllegalStateException If no batch has been started.
+	 */
+	public final void endBatch() {
+		vertexContext.endBatch();
+	}
+	
 	/**
 	 * Returns true if o refers to a graph with the same vertices, edges, and other properties
 	 * (directed vs. undirected, weighted vs. unweighted, etc.) as this graph.
@@ -262,6 +285,13 @@ public class BasicGraph implements Graph {
 		return directed;
 	}
 
+	/**
+	 * Returns true if a batch of changes started by beginBatch has not yet ended.
+	 */
+	public final boolean isBatching() {
+		return vertexContext.isBatching();
+	}
+	
 	/** {@inheritDoc} */
 	public final boolean isEmpty() {
 		return vertexes.isEmpty();
@@ -275,12 +305,17 @@ public class BasicGraph implements Graph {
 	/** {@inheritDoc} */
 	public final Set<Vertex> neighbors(String v) {
 		checkVertex(v);
-		return adjacencyMap.row(vertex(v)).keySet();
+		return neighbors(vertex(v));
 	}
 
 	/** {@inheritDoc} */
 	public final Set<Vertex> neighbors(Vertex v) {
-		return adjacencyMap.row(v).keySet();
+		Map<Vertex, Edge> row = adjacencyMap.row(v);
+		if (row == null) {
+			// no edges have ever started at v
+			return Collections.emptySet();
+		}
+		return row.keySet();
 	}
 
 	/** {@inheritDoc} */
@@ -290,7 +325,8 @@ public class BasicGraph implements Graph {
 
 	/** {@inheritDoc} */
 	public final int outDegree(Vertex v) {
-		return adjacencyMap.row(v).size();
+		Map<Vertex, Edge> row = adjacencyMap.row(v);
+		return row == null ? 0 : row.size();
 	}
 
 	/** {@inheritDoc} */
@@ -338,6 +374,17 @@ public class BasicGraph implements Graph {
 		clearVertexInfo();
 	}
 	
+	/**
+	 * Returns an immutable snapshot of this graph in compressed sparse row
+	 * form, whose vertexes are numbered 0 to vertexCount() - 1 in order of name.
+	 * Searches that visit many edges run much faster on the snapshot, since
+	 * they can walk int arrays instead of vertex sets and edge maps.
+	 * Later changes to this graph are not reflected in the snapshot.
+	 */
+	public final CSRGraph toCSR() {
+		return new CSRGraph(directed, weighted, vertexes.values(), adjacencyMap.rowMap());
+	}
+	
 	/** {@inheritDoc} */
 	public final String toString() {
 		StringBuilder sb = new StringBuilder(65536);
@@ -480,12 +527,11 @@ public class BasicGraph implements Graph {
 	
 	/**
 	 * Resets all distance / previous / visited markings from vertex info
-	 * objects in this graph.
+	 * objects in this graph.  Takes constant time: each vertex resets its own
+	 * markings the next time they are used.
 	 */
 	protected final void clearVertexInfo() {
-		for (Vertex vertex : this.vertexes.values()) {
-			vertex.clear();
-		}
+		vertexContext.resetAll();
 	}
 	
 	/**
@@ -0,0 +1,257 @@
+/*
+ * A grid of booleans packed 64 cells to a long, in row-major order, for
+ * simulations and other code that would otherwise use a Grid<Boolean>.
+ * Alongside Grid's methods it has bulk fills and copies, swap for
+ * double-buffering, and neighbor counts that skip bounds checks away from
+ * the edges.
+ *
+ * @author Marty Stepp
+ * @version 2015/05/28
+ */
+
+package stanford.cs106.collections;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+public class BooleanGrid extends AbstractPrimitiveGrid {
+	private long[] bits;
+	
+	/*
+	 * Like Grid.Kernel, deciding whether each cell of a new BooleanGrid is set.
+	 */
+	public interface Kernel {
+		public boolean map(BooleanGrid source, int row, int col);
+	}
+	
+	public BooleanGrid(int rows, int cols) {
+		resize(rows, cols);
+	}
+	
+	protected void allocate(int size) {
+		bits = new long[(size + 63) >>> 6];
+	}
+	
+	/*
+	 * Copies a numRows x numCols region of src starting at (srcRow, srcCol)
+	 * into this grid starting at (row, col).  src may be this grid.
+	 */
+	public void copyRegion(BooleanGrid src, int srcRow, int srcCol, int row, int col, int numRows, int numCols) {
+		src.checkRegion(srcRow, srcCol, numRows, numCols);
+		checkRegion(row, col, numRows, numCols);
+		boolean backwards = copyBackwards(src, this, srcRow, row)
+				|| (src == this && srcRow == row && srcCol < col);
+		for (int k = 0; k < numRows; k++) {
+			int r = backwards ? numRows - 1 - k : k;
+			int from = src.index(srcRow + r, srcCol);
+			int to = index(row + r, col);
+			if (backwards) {
+				for (int c = numCols - 1; c >= 0; c--) {
+					setBit(to + c, src.getBit(from + c));
+				}
+			} else {
+				for (int c = 0; c < numCols; c++) {
+					setBit(to + c, src.getBit(from + c));
+				}
+			}
+		}
+	}
+	
+	/*
+	 * Makes this grid the same size as the other and copies all of its cells.
+	 */
+	public void copyFrom(BooleanGrid other) {
+		if (rows != other.rows || cols != other.cols) {
+			resize(other.rows, other.cols);
+		}
+		System.arraycopy(other.bits, 0, bits, 0, bits.length);
+	}
+	
+	/*
+	 * Returns the number of true cells.
+	 */
+	public int count() {
+		int count = 0;
+		for (long word : bits) {
+			count += Long.bitCount(word);
+		}
+		return count;
+	}
+	
+	/*
+	 * Returns the number of true cells among the 8 around the given cell.
+	 */
+	public int countNeighbors(int row, int col) {
+		if (isInterior(row, col)) {
+			int above = (row - 1) * cols + col;
+			int i = above + cols;
+			int below = i + cols;
+			return bit(above - 1) + bit(above) + bit(above + 1)
+					+ bit(i - 1) + bit(i + 1)
+					+ bit(below - 1) + bit(below) + bit(below + 1);
+		}
+		checkIndex(row, col);
+		int count = 0;
+		for (int r = row - 1; r <= row + 1; r++) {
+			for (int c = col - 1; c <= col + 1; c++) {
+				if ((r != row || c != col) && inBounds(r, c)) {
+					count += bit(r * cols + c);
+				}
+			}
+		}
+		return count;
+	}
+	
+	public void fill(boolean value) {
+		Arrays.fill(bits, value ? -1L : 0L);
+		if (value) {
+			clearUnusedBits();
+		}
+	}
+	
+	public void fillRegion(int row, int col, int numRows, int numCols, boolean value) {
+		checkRegion(row, col, numRows, numCols);
+		for (int r = row; r < row + numRows; r++) {
+			int start = index(r, col);
+			fillBits(start, start + numCols, value);
+		}
+	}
+	
+	public boolean get(int row, int col) {
+		checkIndex(row, col);
+		return getBit(row * cols + col);
+	}
+	
+	/*
+	 * Copies the given row into dest, which must hold at least numCols() values.
+	 */
+	public void getRow(int row, boolean[] dest) {
+		checkIndex(row, 0);
+		for (int c = 0, i = row * cols; c < cols; c++, i++) {
+			dest[c] = getBit(i);
+		}
+	}
+	
+	/*
+	 * Sets every cell of dest to the kernel's value for that cell of this grid,
+	 * in parallel on a shared pool; see IntGrid.parallelMap.
+	 */
+	public void parallelMap(BooleanGrid dest, Kernel kernel) {
+		parallelMap(dest, kernel, ParallelGrid.getDefaultPool());
+	}
+	
+	/*
+	 * Like parallelMap(dest, kernel), but on the given pool.
+	 */
+	public void parallelMap(final BooleanGrid dest, final Kernel kernel, ForkJoinPool pool) {
+		checkMapDestination(dest);
+		final BooleanGrid source = this;
+		final int cols = this.cols;
+		// split on whole longs, so that no two threads write to the same one
+		ParallelGrid.forEachRange(size(), 64, new ParallelGrid.RangeAction() {
+			public void run(int from, int to) {
+				int row = from / cols;
+				int col = from % cols;
+				for (int i = from; i < to; i++) {
+					dest.setBit(i, kernel.map(source, row, col));
+					if (++col == cols) {
+						col = 0;
+						row++;
+					}
+				}
+			}
+		}, pool);
+	}
+	
+	public void set(int row, int col, boolean value) {
+		checkIndex(row, col);
+		setBit(row * cols + col, value);
+	}
+	
+	/*
+	 * Sets the given row from values, which must hold at least numCols() values.
+	 */
+	public void setRow(int row, boolean[] values) {
+		checkIndex(row, 0);
+		for (int c = 0, i = row * cols; c < cols; c++, i++) {
+			setBit(i, values[c]);
+		}
+	}
+	
+	/*
+	 * Exchanges the contents and sizes of this grid and the other, without
+	 * copying; useful for double-buffering a grid and its next generation.
+	 */
+	public void swap(BooleanGrid other) {
+		long[] temp = bits;
+		bits = other.bits;
+		other.bits = temp;
+		swapSize(other);
+	}
+	
+	public String toString() {
+		StringBuilder sb = new StringBuilder("[");
+		for (int r = 0; r < rows; r++) {
+			sb.append(r == 0 ? "[" : ", [");
+			for (int c = 0; c < cols; c++) {
+				if (c > 0) {
+					sb.append(", ");
+				}
+				sb.append(getBit(r * cols + c));
+			}
+			sb.append("]");
+		}
+		return sb.append("]").toString();
+	}
+	
+	// 1 if the cell at the given flat index is true, else 0
+	private int bit(int index) {
+		return (int) (bits[index >>> 6] >>> index) & 1;
+	}
+	
+	private boolean getBit(int index) {
+		return (bits[index >>> 6] & (1L << index)) != 0;
+	}
+	
+	private void setBit(int index, boolean value) {
+		if (value) {
+			bits[index >>> 6] |= 1L << index;
+		} else {
+			bits[index >>> 6] &= ~(1L << index);
+		}
+	}
+	
+	// sets cells from (inclusive) to to (exclusive), a whole word at a time where possible
+	private void fillBits(int from, int to, boolean value) {
+		if (from >= to) {
+			return;
+		}
+		int firstWord = from >>> 6;
+		int lastWord = (to - 1) >>> 6;
+		long firstMask = -1L << from;
+		long lastMask = -1L >>> -to;
+		if (firstWord == lastWord) {
+			setBits(firstWord, firstMask & lastMask, value);
+		} else {
+			setBits(firstWord, firstMask, value);
+			Arrays.fill(bits, firstWord + 1, lastWord, value ? -1L : 0L);
+			setBits(lastWord, lastMask, value);
+		}
+	}
+	
+	private void setBits(int word, long mask, boolean value) {
+		if (value) {
+			bits[word] |= mask;
+		} else {
+			bits[word] &= ~mask;
+		}
+	}
+	
+	// keeps bits past the last cell zero, so count() and copies stay exact
+	private void clearUnusedBits() {
+		int used = size() & 63;
+		if (used != 0) {
+			bits[bits.length - 1] &= (1L << used) - 1;
+		}
+	}
+}
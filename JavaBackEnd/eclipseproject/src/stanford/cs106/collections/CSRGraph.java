@@ -0,0 +1,330 @@
+/*
+ * @author Marty Stepp
+ * @version 2015/06/06
+ */
+
+package stanford.cs106.collections;
+
+import java.util.*;
+
+/**
+ * A CSRGraph is an immutable snapshot of a BasicGraph in compressed sparse row
+ * form, for running many searches over a large graph quickly.
+ *
+ * Vertexes are numbered 0 to vertexCount() - 1 in order of their names.
+ * The edges leaving vertex v are numbered firstEdge(v) to endEdge(v) - 1, in
+ * order of their end vertexes, and are stored in flat arrays of end vertexes
+ * and weights.  A search can then walk the graph with plain int loops:
+ *
+ * <pre>
+ * {@code
+ * for (int e = csr.firstEdge(v); e < csr.endEdge(v); e++) {
+ *     int w = csr.target(e);
+ *     double weight = csr.weight(e);
+ *     ...
+ * }
+ * }
+ * </pre>
+ *
+ * which creates no objects per edge visited.  As in BasicGraph, an undirected
+ * edge is stored once in each direction.  Changes made to the original graph
+ * after the snapshot is taken are not seen by it.
+ */
+public final class CSRGraph {
+	/**
+	 * Something to be done for each edge visited by forEachEdge.
+	 */
+	public interface EdgeVisitor {
+		public void visit(int start, int end, double weight);
+	}
+
+	private final boolean directed;
+	private final boolean weighted;
+	private final String[] names;              // [vertex id] -> vertex name
+	private final Map<String, Integer> ids;    // [vertex name] -> vertex id
+	private final int[] offsets;               // [vertex id] -> first edge; offsets[n] = edge count
+	private final int[] targets;               // [edge] -> end vertex id
+	private final double[] weights;            // [edge] -> weight, or null if unweighted
+	private CSRGraph reverse;                  // lazily built by reverse()
+
+	/**
+	 * Returns a snapshot of the given graph.  A BasicGraph is copied directly
+	 * from its edge table; any other Graph through its vertexes and neighbors.
+	 * @throws NullPointerException If the graph is null.
+	 */
+	public static CSRGraph of(Graph graph) {
+		if (graph instanceof BasicGraph) {
+			return ((BasicGraph) graph).toCSR();
+		}
+		Map<Vertex, Map<Vertex, Edge>> adjacency = new HashMap<Vertex, Map<Vertex, Edge>>();
+		for (Vertex v : graph.vertexes()) {
+			Map<Vertex, Edge> row = new TreeMap<Vertex, Edge>();
+			for (Vertex neighbor : graph.neighbors(v)) {
+				row.put(neighbor, graph.edge(v, neighbor));
+			}
+			adjacency.put(v, row);
+		}
+		return new CSRGraph(graph.isDirected(), graph.isWeighted(), graph.vertexes(), adjacency);
+	}
+
+	/**
+	 * Takes a snapshot of the given vertexes and edges; called by BasicGraph.toCSR.
+	 * @param vertexes The graph's vertexes, in the order to number them.
+	 * @param adjacency The graph's edges, as [start vertex] -> [end vertex] -> edge.
+	 */
+	CSRGraph(boolean directed, boolean weighted, Collection<Vertex> vertexes,
+			Map<Vertex, Map<Vertex, Edge>> adjacency) {
+		this.directed = directed;
+		this.weighted = weighted;
+		int n = vertexes.size();
+		names = new String[n];
+		ids = new HashMap<String, Integer>(2 * n);
+		List<Map<Vertex, Edge>> rows = new ArrayList<Map<Vertex, Edge>>(n);
+		offsets = new int[n + 1];
+		int edgeCount = 0;
+		for (Vertex vertex : vertexes) {
+			int v = rows.size();
+			Map<Vertex, Edge> row = adjacency.get(vertex);
+			names[v] = vertex.name();
+			ids.put(vertex.name(), v);
+			rows.add(row);
+			offsets[v] = edgeCount;
+			if (row != null) {
+				edgeCount += row.size();
+			}
+		}
+		offsets[n] = edgeCount;
+
+		targets = new int[edgeCount];
+		weights = weighted ? new double[edgeCount] : null;
+		for (int v = 0; v < n; v++) {
+			Map<Vertex, Edge> row = rows.get(v);
+			if (row == null) {
+				continue;
+			}
+			int e = offsets[v];
+			for (Map.Entry<Vertex, Edge> entry : row.entrySet()) {
+				targets[e] = ids.get(entry.getKey().name());
+				if (weighted) {
+					Edge edge = entry.getValue();
+					weights[e] = edge == null ? Edge.DEFAULT_WEIGHT : edge.weight();
+				}
+				e++;
+			}
+			// keep each vertex's edges sorted by end vertex, for binary search in edge()
+			if (!(row instanceof SortedMap)) {
+				sortEdges(offsets[v], e);
+			}
+		}
+	}
+
+	private CSRGraph(CSRGraph graph, int[] offsets, int[] targets, double[] weights) {
+		this.directed = graph.directed;
+		this.weighted = graph.weighted;
+		this.names = graph.names;
+		this.ids = graph.ids;
+		this.offsets = offsets;
+		this.targets = targets;
+		this.weights = weights;
+	}
+
+	/**
+	 * Returns true if there is an edge from v1 to v2.
+	 */
+	public boolean containsEdge(int v1, int v2) {
+		return edge(v1, v2) >= 0;
+	}
+
+	/**
+	 * Returns the index of the edge from v1 to v2, or -1 if there is none.
+	 */
+	public int edge(int v1, int v2) {
+		checkVertex(v1);
+		checkVertex(v2);
+		int index = Arrays.binarySearch(targets, offsets[v1], offsets[v1 + 1], v2);
+		return index >= 0 ? index : -1;
+	}
+
+	/**
+	 * Returns the number of edges, counting each undirected edge twice as
+	 * BasicGraph.edgeCount does.
+	 */
+	public int edgeCount() {
+		return targets.length;
+	}
+
+	/**
+	 * Returns the weight of the edge from v1 to v2, or -1 if there is none.
+	 */
+	public double edgeWeight(int v1, int v2) {
+		int e = edge(v1, v2);
+		return e >= 0 ? weight(e) : -1;
+	}
+
+	/**
+	 * Returns one past the index of the last edge leaving vertex v.
+	 */
+	public int endEdge(int v) {
+		return offsets[v + 1];
+	}
+
+	/**
+	 * Returns the index of the first edge leaving vertex v.
+	 */
+	public int firstEdge(int v) {
+		return offsets[v];
+	}
+
+	/**
+	 * Calls the visitor for every edge, in order of start and then end vertex.
+	 */
+	public void forEachEdge(EdgeVisitor visitor) {
+		for (int v = 0; v < names.length; v++) {
+			forEachEdge(v, visitor);
+		}
+	}
+
+	/**
+	 * Calls the visitor for every edge leaving vertex v.
+	 */
+	public void forEachEdge(int v, EdgeVisitor visitor) {
+		checkVertex(v);
+		for (int e = offsets[v], end = offsets[v + 1]; e < end; e++) {
+			visitor.visit(v, targets[e], weights == null ? Edge.DEFAULT_WEIGHT : weights[e]);
+		}
+	}
+
+	/**
+	 * Returns the id of the vertex with the given name, or -1 if there is none.
+	 */
+	public int id(String name) {
+		Integer id = ids.get(name);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * Returns true if the graph's edges are directed.
+	 */
+	public boolean isDirected() {
+		return directed;
+	}
+
+	/**
+	 * Returns true if the graph's edges have weights.
+	 */
+	public boolean isWeighted() {
+		return weighted;
+	}
+
+	/**
+	 * Returns the name of vertex v.
+	 */
+	public String name(int v) {
+		checkVertex(v);
+		return names[v];
+	}
+
+	/**
+	 * Returns the number of edges leaving vertex v.
+	 */
+	public int outDegree(int v) {
+		return offsets[v + 1] - offsets[v];
+	}
+
+	/**
+	 * Returns this graph with the direction of every edge reversed, so that
+	 * the edges leaving v in the result are the edges entering v here.
+	 * An undirected graph is its own reverse.  The reverse is built on the
+	 * first call and kept.
+	 */
+	public CSRGraph reverse() {
+		if (!directed) {
+			return this;
+		}
+		if (reverse == null) {
+			// counting sort of the edges by end vertex; visiting start vertexes
+			// in order leaves each reversed row sorted
+			int n = names.length;
+			int[] reverseOffsets = new int[n + 1];
+			for (int target : targets) {
+				reverseOffsets[target + 1]++;
+			}
+			for (int v = 0; v < n; v++) {
+				reverseOffsets[v + 1] += reverseOffsets[v];
+			}
+			int[] next = Arrays.copyOf(reverseOffsets, n);
+			int[] reverseTargets = new int[targets.length];
+			double[] reverseWeights = weights == null ? null : new double[weights.length];
+			for (int v = 0; v < n; v++) {
+				for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+					int index = next[targets[e]]++;
+					reverseTargets[index] = v;
+					if (weights != null) {
+						reverseWeights[index] = weights[e];
+					}
+				}
+			}
+			CSRGraph result = new CSRGraph(this, reverseOffsets, reverseTargets, reverseWeights);
+			result.reverse = this;
+			// the arrays are final fields, so other threads see them fully built;
+			// at worst two threads racing here each build the reverse once
+			reverse = result;
+		}
+		return reverse;
+	}
+
+	/**
+	 * Returns the end vertex of edge e.
+	 */
+	public int target(int e) {
+		return targets[e];
+	}
+
+	/**
+	 * Returns a string of the form "CSRGraph{V=..., E=...}".
+	 */
+	public String toString() {
+		return "CSRGraph{V=" + vertexCount() + ", E=" + edgeCount()
+				+ (directed ? ", directed" : "") + (weighted ? ", weighted" : "") + "}";
+	}
+
+	/**
+	 * Returns the number of vertexes.
+	 */
+	public int vertexCount() {
+		return names.length;
+	}
+
+	/**
+	 * Returns the weight of edge e; 1 in an unweighted graph.
+	 */
+	public double weight(int e) {
+		return weights == null ? Edge.DEFAULT_WEIGHT : weights[e];
+	}
+
+	private void checkVertex(int v) {
+		if (v < 0 || v >= names.length) {
+			throw new IllegalArgumentException("Vertex not found in graph: " + v);
+		}
+	}
+
+	// insertion sort of edges [from, to) by target; rows are short and nearly sorted
+	private void sortEdges(int from, int to) {
+		for (int i = from + 1; i < to; i++) {
+			int target = targets[i];
+			double weight = weights == null ? 0 : weights[i];
+			int j = i - 1;
+			while (j >= from && targets[j] > target) {
+				targets[j + 1] = targets[j];
+				if (weights != null) {
+					weights[j + 1] = weights[j];
+				}
+				j--;
+			}
+			targets[j + 1] = target;
+			if (weights != null) {
+				weights[j + 1] = weight;
+			}
+		}
+	}
+}
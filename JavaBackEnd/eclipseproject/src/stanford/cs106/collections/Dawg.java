@@ -0,0 +1,399 @@
+/*
+ * A read-only directed acyclic word graph (DAWG) in the same binary format as
+ * the Stanford C++ library's DawgLexicon, so the same .dat dictionary files
+ * can be used from Java.
+ *
+ * The graph is an array of 32-bit big-endian edges.  The low 5 bits of an
+ * edge hold its letter (1-26 for a-z), bit 5 marks the last edge among its
+ * siblings, bit 6 marks that the path through this edge forms a word, and the
+ * high 24 bits are the index of the edge's first child (0 for none).  Sibling
+ * edges are stored next to each other.  build writes them in alphabetical
+ * order, but the C++ library doesn't require it, so lookups don't rely on
+ * it.  A file holds:
+ *
+ *   DAWG:<start edge index>:<number of bytes>:<edge data>
+ *
+ * Files are memory-mapped rather than copied onto the heap, and lookups walk
+ * the edges in place without allocating.  A position in the graph is an int
+ * "state": ROOT before any letters, then the index of the last edge followed
+ * plus one, or DEAD once a letter has no matching edge.  Letters are matched
+ * case-insensitively.
+ *
+ * @author Marty Stepp
+ * @version 2015/05/28
+ */
+
+package stanford.cs106.collections;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.util.*;
+
+public class Dawg {
+	public static final int ROOT = 0;
+	public static final int DEAD = -1;
+
+	private static final int LETTER_MASK = 0x1f;
+	private static final int LAST_EDGE = 1 << 5;
+	private static final int ACCEPT = 1 << 6;
+	private static final int CHILDREN_SHIFT = 8;
+	private static final int MAX_EDGES = 1 << 24;
+
+	private final IntBuffer edges;
+	private final int start;
+	private int wordCount = -1;
+	private int prefixCount = -1;
+
+	/*
+	 * Memory-maps the given binary DAWG file.
+	 */
+	public static Dawg read(String filename) throws IOException {
+		return read(new File(filename));
+	}
+
+	/*
+	 * Memory-maps the given binary DAWG file.
+	 */
+	public static Dawg read(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+			return read(buffer, file.getName());
+		} finally {
+			// the mapping stays valid after the file is closed
+			raf.close();
+		}
+	}
+
+	/*
+	 * Returns whether the given file starts with the "DAWG" header of a
+	 * binary lexicon file, as opposed to being a plain list of words.
+	 */
+	public static boolean isDawgFile(File file) throws IOException {
+		InputStream in = new FileInputStream(file);
+		try {
+			byte[] header = new byte[4];
+			int count = 0;
+			while (count < 4) {
+				int n = in.read(header, count, 4 - count);
+				if (n < 0) {
+					return false;
+				}
+				count += n;
+			}
+			return header[0] == 'D' && header[1] == 'A' && header[2] == 'W' && header[3] == 'G';
+		} finally {
+			in.close();
+		}
+	}
+
+	private static Dawg read(ByteBuffer buffer, String name) throws IOException {
+		if (buffer.remaining() < 5 || buffer.get() != 'D' || buffer.get() != 'A'
+				|| buffer.get() != 'W' || buffer.get() != 'G' || buffer.get() != ':') {
+			throw new IOException("Improperly formed lexicon file: " + name);
+		}
+		long startIndex = readHeaderNumber(buffer, name);
+		long numBytes = readHeaderNumber(buffer, name);
+		if (numBytes > buffer.remaining() || numBytes / 4 > MAX_EDGES) {
+			throw new IOException("Improperly formed lexicon file: " + name);
+		}
+		ByteBuffer data = buffer.slice();
+		data.order(ByteOrder.BIG_ENDIAN);
+		data.limit((int) (numBytes / 4 * 4));
+		IntBuffer edges = data.asIntBuffer();
+		if (startIndex >= edges.limit() && edges.limit() > 0) {
+			throw new IOException("Improperly formed lexicon file: " + name);
+		}
+		return new Dawg(edges, (int) startIndex);
+	}
+
+	/*
+	 * Reads a decimal number followed by ':' from a DAWG file header.
+	 */
+	private static long readHeaderNumber(ByteBuffer buffer, String name) throws IOException {
+		long value = 0;
+		int digits = 0;
+		while (buffer.hasRemaining()) {
+			int ch = buffer.get();
+			if (ch == ':' && digits > 0) {
+				return value;
+			} else if (ch < '0' || ch > '9' || digits >= 12) {
+				break;
+			}
+			value = value * 10 + (ch - '0');
+			digits++;
+		}
+		throw new IOException("Improperly formed lexicon file: " + name);
+	}
+
+	/*
+	 * Builds a minimized DAWG holding the given words, which may contain only
+	 * the letters a-z (in either case).  Empty strings are ignored, as the
+	 * format can't represent them.
+	 */
+	public static Dawg build(Collection<String> words) {
+		Builder builder = new Builder();
+		for (String word : words) {
+			builder.add(word);
+		}
+		return builder.build();
+	}
+
+	private Dawg(IntBuffer edges, int start) {
+		this.edges = edges;
+		this.start = start;
+	}
+
+	public boolean contains(String word) {
+		int state = ROOT;
+		for (int i = 0, len = word.length(); i < len && state != DEAD; i++) {
+			state = step(state, word.charAt(i));
+		}
+		return isWord(state);
+	}
+
+	public boolean containsPrefix(String prefix) {
+		int state = ROOT;
+		for (int i = 0, len = prefix.length(); i < len && state != DEAD; i++) {
+			state = step(state, prefix.charAt(i));
+		}
+		return state != DEAD;
+	}
+
+	/*
+	 * Returns the state reached by following the given letter from the given
+	 * state, or DEAD if no word continues that way.
+	 */
+	public int step(int state, char ch) {
+		int block;
+		if (state == ROOT) {
+			block = start;
+		} else if (state > 0) {
+			block = edges.get(state - 1) >>> CHILDREN_SHIFT;
+			if (block == 0) {
+				return DEAD;
+			}
+		} else {
+			return DEAD;
+		}
+		int letter = toLetter(ch);
+		if (letter == 0 || block >= edges.limit()) {
+			return DEAD;
+		}
+		for (int i = block; i < edges.limit(); i++) {
+			int edge = edges.get(i);
+			int edgeLetter = edge & LETTER_MASK;
+			if (edgeLetter == letter) {
+				return i + 1;
+			} else if ((edge & LAST_EDGE) != 0) {
+				// as in the C++ findEdgeForChar, siblings may be in any order
+				return DEAD;
+			}
+		}
+		return DEAD;
+	}
+
+	/*
+	 * Returns whether the letters followed to reach the given state form a word.
+	 */
+	public boolean isWord(int state) {
+		return state > 0 && (edges.get(state - 1) & ACCEPT) != 0;
+	}
+
+	/*
+	 * Returns the number of edges in this graph.
+	 */
+	public int edgeCount() {
+		return edges.limit();
+	}
+
+	/*
+	 * Returns the number of words in this graph.
+	 */
+	public int size() {
+		if (wordCount < 0) {
+			wordCount = edges.limit() == 0 ? 0 : countWords(start, new int[edges.limit()]);
+		}
+		return wordCount;
+	}
+
+	/*
+	 * Returns the number of distinct non-empty prefixes of words in this graph.
+	 */
+	public int prefixCount() {
+		if (prefixCount < 0) {
+			prefixCount = edges.limit() == 0 ? 0 : countPrefixes(start, new int[edges.limit()]);
+		}
+		return prefixCount;
+	}
+
+	/*
+	 * Returns the number of distinct one-letter prefixes of words in this graph.
+	 */
+	public int firstLetterCount() {
+		int count = 0;
+		for (int i = start; i < edges.limit(); i++) {
+			int edge = edges.get(i);
+			if ((edge & LETTER_MASK) != 0) {
+				count++;
+			}
+			if ((edge & LAST_EDGE) != 0) {
+				break;
+			}
+		}
+		return count;
+	}
+
+	/*
+	 * Writes this graph in the binary DAWG file format.
+	 */
+	public void write(OutputStream out) throws IOException {
+		DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+		data.write(("DAWG:" + start + ":" + (4L * edges.limit()) + ":").getBytes("US-ASCII"));
+		for (int i = 0; i < edges.limit(); i++) {
+			data.writeInt(edges.get(i));
+		}
+		data.flush();
+	}
+
+	public String toString() {
+		return "Dawg{size=" + size() + ", edges=" + edgeCount() + "}";
+	}
+
+	// memo[block] holds the count for the sibling block plus one, or 0 if not yet known
+	private int countWords(int block, int[] memo) {
+		if (memo[block] > 0) {
+			return memo[block] - 1;
+		}
+		int count = 0;
+		for (int i = block; i < edges.limit(); i++) {
+			int edge = edges.get(i);
+			if ((edge & ACCEPT) != 0) {
+				count++;
+			}
+			int children = edge >>> CHILDREN_SHIFT;
+			if (children != 0) {
+				count += countWords(children, memo);
+			}
+			if ((edge & LAST_EDGE) != 0) {
+				break;
+			}
+		}
+		memo[block] = count + 1;
+		return count;
+	}
+
+	private int countPrefixes(int block, int[] memo) {
+		if (memo[block] > 0) {
+			return memo[block] - 1;
+		}
+		int count = 0;
+		for (int i = block; i < edges.limit(); i++) {
+			int edge = edges.get(i);
+			if ((edge & LETTER_MASK) != 0) {
+				count++;
+				int children = edge >>> CHILDREN_SHIFT;
+				if (children != 0) {
+					count += countPrefixes(children, memo);
+				}
+			}
+			if ((edge & LAST_EDGE) != 0) {
+				break;
+			}
+		}
+		memo[block] = count + 1;
+		return count;
+	}
+
+	private static int toLetter(char ch) {
+		if (ch >= 'a' && ch <= 'z') {
+			return ch - 'a' + 1;
+		} else if (ch >= 'A' && ch <= 'Z') {
+			return ch - 'A' + 1;
+		} else {
+			return 0;
+		}
+	}
+
+	/*
+	 * Builds a trie of the words, then writes it out bottom-up, sharing every
+	 * group of sibling edges that is identical to one already written.
+	 */
+	private static class Builder {
+		private Node root = new Node();
+		private int[] data = new int[1024];
+		private int size = 1;   // edge 0 is a placeholder, since child index 0 means "none"
+		private Map<String, Integer> blocks = new HashMap<String, Integer>();
+
+		private static class Node {
+			private Node[] children;
+			private boolean word;
+		}
+
+		public void add(String word) {
+			Node node = root;
+			for (int i = 0; i < word.length(); i++) {
+				int letter = toLetter(word.charAt(i));
+				if (letter == 0) {
+					throw new IllegalArgumentException("DAWG words may contain only letters a-z: \"" + word + "\"");
+				}
+				if (node.children == null) {
+					node.children = new Node[26];
+				}
+				Node child = node.children[letter - 1];
+				if (child == null) {
+					child = new Node();
+					node.children[letter - 1] = child;
+				}
+				node = child;
+			}
+			if (node != root) {
+				node.word = true;
+			}
+		}
+
+		public Dawg build() {
+			data[0] = LAST_EDGE;
+			int start = write(root);   // 0 if there are no words; the placeholder matches nothing
+			return new Dawg(IntBuffer.wrap(Arrays.copyOf(data, size)), start);
+		}
+
+		// returns the index of the node's block of child edges, or 0 if it has none
+		private int write(Node node) {
+			if (node.children == null) {
+				return 0;
+			}
+			int count = 0;
+			int[] edges = new int[26];
+			for (int i = 0; i < 26; i++) {
+				Node child = node.children[i];
+				if (child != null) {
+					edges[count++] = (write(child) << CHILDREN_SHIFT) | (child.word ? ACCEPT : 0) | (i + 1);
+				}
+			}
+			edges[count - 1] |= LAST_EDGE;
+
+			StringBuilder key = new StringBuilder(count * 8);
+			for (int i = 0; i < count; i++) {
+				key.append(edges[i]).append(',');
+			}
+			Integer existing = blocks.get(key.toString());
+			if (existing != null) {
+				return existing;
+			}
+
+			if (size + count > MAX_EDGES) {
+				throw new IllegalStateException("too many edges for the DAWG file format");
+			}
+			if (size + count > data.length) {
+				data = Arrays.copyOf(data, Math.max(size + count, data.length * 2));
+			}
+			int block = size;
+			System.arraycopy(edges, 0, data, block, count);
+			size += count;
+			blocks.put(key.toString(), block);
+			return block;
+		}
+	}
+}
@@ -0,0 +1,466 @@
+/*
+ * @author Marty Stepp
+ * @version 2015/06/06
+ */
+
+package stanford.cs106.collections;
+
+import java.util.*;
+
+/**
+ * A FlatMultimap is a Multimap that stores the values of all keys in one
+ * array, each key's values next to each other in the order they were added,
+ * instead of in a separate list per key as HashMultimap does.  This saves an
+ * ArrayList and its array for every key, and keeps each key's values close
+ * together in memory.  A key's values may repeat.
+ *
+ * <p>
+ * A FlatMultimap can also keep a count of each value stored, so that
+ * containsValue takes constant time.  See IntMultimap for a version that
+ * stores int keys and values without any objects at all.
+ *
+ * <p>
+ * get returns a live, unmodifiable view of the key's values, which is empty
+ * if the key has none.  keySet and values are live and unmodifiable too.
+ */
+public class FlatMultimap<K, V> extends AbstractFlatMultimap implements Multimap<K, V> {
+	private static final Object[] EMPTY = new Object[0];
+
+	private Object[] values = EMPTY;
+	private Object[] hashKeys = new Object[16];   // open addressing with linear probing
+	private int[] hashSlots = new int[16];        // [bucket] -> key's slot + 1, or 0 if empty
+	private Object[] slotKeys = new Object[16];   // [slot] -> key
+	private int keyCount;
+	private final Map<Object, Integer> valueCounts;  // [value] -> count, or null if not indexed
+
+	/**
+	 * Returns a new empty multimap.
+	 */
+	public static <K, V> FlatMultimap<K, V> create() {
+		return new FlatMultimap<K, V>(false);
+	}
+
+	/**
+	 * Returns a new empty multimap, which also counts each value stored if
+	 * indexValues is true.
+	 */
+	public static <K, V> FlatMultimap<K, V> create(boolean indexValues) {
+		return new FlatMultimap<K, V>(indexValues);
+	}
+
+	/**
+	 * Constructs a new empty multimap.
+	 */
+	public FlatMultimap() {
+		this(false);
+	}
+
+	/**
+	 * Constructs a new empty multimap, which also counts each value stored if
+	 * indexValues is true.
+	 */
+	public FlatMultimap(boolean indexValues) {
+		valueCounts = indexValues ? new HashMap<Object, Integer>() : null;
+	}
+
+	public void clear() {
+		clearSlots();
+		Arrays.fill(hashKeys, null);
+		Arrays.fill(hashSlots, 0);
+		Arrays.fill(slotKeys, null);
+		keyCount = 0;
+		if (valueCounts != null) {
+			valueCounts.clear();
+		}
+	}
+
+	public boolean containsEntry(Object key, Object value) {
+		return indexOf(findSlot(key), value) >= 0;
+	}
+
+	public boolean containsKey(Object key) {
+		return findSlot(key) >= 0;
+	}
+
+	/**
+	 * Returns true if any key has the given value.  Takes constant time if
+	 * this multimap counts its values, and otherwise looks at every value.
+	 */
+	public boolean containsValue(Object value) {
+		if (valueCounts != null) {
+			return valueCounts.containsKey(value);
+		}
+		for (int slot = 0; slot < slotCount(); slot++) {
+			if (!isFree(slot) && indexOf(slot, value) >= 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns a live, unmodifiable view of the key's values.
+	 */
+	public List<V> get(final K key) {
+		return new AbstractList<V>() {
+			@SuppressWarnings("unchecked")
+			public V get(int index) {
+				int slot = findSlot(key);
+				if (slot < 0 || index < 0 || index >= length(slot)) {
+					throw new IndexOutOfBoundsException("index " + index + ", size " + size());
+				}
+				return (V) values[start(slot) + index];
+			}
+
+			// looks up the key once, rather than once per value as AbstractList's would
+			public Iterator<V> iterator() {
+				int slot = findSlot(key);
+				return slot < 0 ? Collections.<V>emptyIterator() : new RangeIterator(slot);
+			}
+
+			public int size() {
+				int slot = findSlot(key);
+				return slot < 0 ? 0 : length(slot);
+			}
+		};
+	}
+
+	public boolean isEmpty() {
+		return keyCount == 0;
+	}
+
+	/**
+	 * Returns true if this multimap counts each value stored.
+	 */
+	public boolean isValueIndexed() {
+		return valueCounts != null;
+	}
+
+	/**
+	 * Returns a live, unmodifiable view of the keys that have at least one value.
+	 */
+	public Set<K> keySet() {
+		return new AbstractSet<K>() {
+			public boolean contains(Object key) {
+				return containsKey(key);
+			}
+
+			public Iterator<K> iterator() {
+				return new Iterator<K>() {
+					private int slot = nextKey(0);
+
+					public boolean hasNext() {
+						return slot < slotCount();
+					}
+
+					public K next() {
+						if (!hasNext()) {
+							throw new NoSuchElementException();
+						}
+						K key = keyOf(slot);
+						slot = nextKey(slot + 1);
+						return key;
+					}
+
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+
+			public int size() {
+				return keyCount;
+			}
+		};
+	}
+
+	/**
+	 * Adds the given value to the end of the key's values.  Always returns true.
+	 */
+	public boolean put(K key, V value) {
+		int slot = findSlot(key);
+		if (slot < 0) {
+			slot = addKey(key);
+		}
+		int index = append(slot);   // may replace values, so call it first
+		values[index] = value;
+		if (valueCounts != null) {
+			Integer count = valueCounts.get(value);
+			valueCounts.put(value, count == null ? 1 : count + 1);
+		}
+		return true;
+	}
+
+	/**
+	 * Removes the first occurrence of the given value from the key's values,
+	 * returning true if there was one.
+	 */
+	public boolean remove(Object key, Object value) {
+		int slot = findSlot(key);
+		int index = indexOf(slot, value);
+		if (index < 0) {
+			return false;
+		}
+		removeAt(slot, index - start(slot));
+		if (length(slot) == 0) {
+			removeKey(key);
+			freeSlot(slot);
+		}
+		uncount(value);
+		return true;
+	}
+
+	/**
+	 * Removes the key and all of its values, and returns them in a new list.
+	 */
+	@SuppressWarnings("unchecked")
+	public List<V> removeAll(Object key) {
+		int slot = findSlot(key);
+		if (slot < 0) {
+			return new ArrayList<V>();
+		}
+		List<V> removed = new ArrayList<V>(length(slot));
+		for (int i = start(slot), end = i + length(slot); i < end; i++) {
+			removed.add((V) values[i]);
+			uncount(values[i]);
+		}
+		removeKey(key);
+		freeSlot(slot);
+		return removed;
+	}
+
+	/**
+	 * Returns the number of key/value pairs.
+	 */
+	public int size() {
+		return valueCount();
+	}
+
+	/**
+	 * Returns a string of the form "{key=[value, ...], ...}".
+	 */
+	public String toString() {
+		StringBuilder sb = new StringBuilder("{");
+		for (int slot = 0; slot < slotCount(); slot++) {
+			if (!isFree(slot)) {
+				if (sb.length() > 1) {
+					sb.append(", ");
+				}
+				sb.append(slotKeys[slot]).append('=').append(get(keyOf(slot)));
+			}
+		}
+		return sb.append('}').toString();
+	}
+
+	/**
+	 * Returns a live, unmodifiable view of all values, key by key.
+	 */
+	public Collection<V> values() {
+		return new AbstractCollection<V>() {
+			public Iterator<V> iterator() {
+				return new Iterator<V>() {
+					private int slot = -1;
+					private int index;
+					private int end;
+
+					public boolean hasNext() {
+						while (index == end && slot + 1 < slotCount()) {
+							slot++;
+							if (!isFree(slot)) {
+								index = start(slot);
+								end = index + length(slot);
+							}
+						}
+						return index < end;
+					}
+
+					@SuppressWarnings("unchecked")
+					public V next() {
+						if (!hasNext()) {
+							throw new NoSuchElementException();
+						}
+						return (V) values[index++];
+					}
+
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+
+			public boolean contains(Object value) {
+				return containsValue(value);
+			}
+
+			public int size() {
+				return valueCount();
+			}
+		};
+	}
+
+	protected Object valueArray() {
+		return values;
+	}
+
+	protected void setValueArray(Object values) {
+		this.values = (Object[]) values;
+	}
+
+	protected Object newValueArray(int length) {
+		return new Object[length];
+	}
+
+	protected void clearValueArray(int from, int to) {
+		Arrays.fill(values, from, to, null);
+	}
+
+	private int addKey(Object key) {
+		if (2 * (keyCount + 1) > hashKeys.length) {
+			rehash(2 * hashKeys.length);
+		}
+		int slot = newSlot();
+		if (slot == slotKeys.length) {
+			slotKeys = Arrays.copyOf(slotKeys, 2 * slotKeys.length);
+		}
+		slotKeys[slot] = key;
+		int mask = hashKeys.length - 1;
+		int bucket = hash(key) & mask;
+		while (hashSlots[bucket] != 0) {
+			bucket = (bucket + 1) & mask;
+		}
+		hashKeys[bucket] = key;
+		hashSlots[bucket] = slot + 1;
+		keyCount++;
+		return slot;
+	}
+
+	private int findSlot(Object key) {
+		int mask = hashKeys.length - 1;
+		for (int bucket = hash(key) & mask; hashSlots[bucket] != 0; bucket = (bucket + 1) & mask) {
+			if (equal(hashKeys[bucket], key)) {
+				return hashSlots[bucket] - 1;
+			}
+		}
+		return -1;
+	}
+
+	// returns the index in values of the first occurrence of value in the slot, or -1
+	private int indexOf(int slot, Object value) {
+		if (slot >= 0) {
+			for (int i = start(slot), end = i + length(slot); i < end; i++) {
+				if (equal(value, values[i])) {
+					return i;
+				}
+			}
+		}
+		return -1;
+	}
+
+	/*
+	 * Iterates over the values of one slot's range, which must not change
+	 * while it is in use.
+	 */
+	private class RangeIterator implements Iterator<V> {
+		private final Object[] values = FlatMultimap.this.values;
+		private int index;
+		private final int end;
+
+		public RangeIterator(int slot) {
+			index = start(slot);
+			end = index + length(slot);
+		}
+
+		public boolean hasNext() {
+			return index < end;
+		}
+
+		@SuppressWarnings("unchecked")
+		public V next() {
+			if (index >= end) {
+				throw new NoSuchElementException();
+			}
+			return (V) values[index++];
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private K keyOf(int slot) {
+		return (K) slotKeys[slot];
+	}
+
+	// returns the first slot at or after the given one that is in use, or slotCount()
+	private int nextKey(int slot) {
+		while (slot < slotCount() && isFree(slot)) {
+			slot++;
+		}
+		return slot;
+	}
+
+	private void rehash(int buckets) {
+		Object[] oldKeys = hashKeys;
+		int[] oldSlots = hashSlots;
+		hashKeys = new Object[buckets];
+		hashSlots = new int[buckets];
+		int mask = buckets - 1;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldSlots[i] != 0) {
+				int bucket = hash(oldKeys[i]) & mask;
+				while (hashSlots[bucket] != 0) {
+					bucket = (bucket + 1) & mask;
+				}
+				hashKeys[bucket] = oldKeys[i];
+				hashSlots[bucket] = oldSlots[i];
+			}
+		}
+	}
+
+	/*
+	 * Removes the key from the hash table, moving back any later keys in the
+	 * same run of buckets that can now be found sooner, as IntMultimap does.
+	 */
+	private void removeKey(Object key) {
+		int mask = hashKeys.length - 1;
+		int gap = hash(key) & mask;
+		while (hashSlots[gap] == 0 || !equal(hashKeys[gap], key)) {
+			gap = (gap + 1) & mask;
+		}
+		slotKeys[hashSlots[gap] - 1] = null;
+		hashKeys[gap] = null;
+		hashSlots[gap] = 0;
+		for (int bucket = (gap + 1) & mask; hashSlots[bucket] != 0; bucket = (bucket + 1) & mask) {
+			int home = hash(hashKeys[bucket]) & mask;
+			if (((bucket - home) & mask) >= ((bucket - gap) & mask)) {
+				hashKeys[gap] = hashKeys[bucket];
+				hashSlots[gap] = hashSlots[bucket];
+				hashKeys[bucket] = null;
+				hashSlots[bucket] = 0;
+				gap = bucket;
+			}
+		}
+		keyCount--;
+	}
+
+	private void uncount(Object value) {
+		if (valueCounts != null) {
+			Integer count = valueCounts.get(value);
+			if (count == null || count <= 1) {
+				valueCounts.remove(value);
+			} else {
+				valueCounts.put(value, count - 1);
+			}
+		}
+	}
+
+	private static boolean equal(Object a, Object b) {
+		return a == b || (a != null && a.equals(b));
+	}
+
+	private static int hash(Object key) {
+		int h = key == null ? 0 : key.hashCode() * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+}
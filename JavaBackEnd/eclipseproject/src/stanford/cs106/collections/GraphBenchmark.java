@@ -0,0 +1,139 @@
+/*
+ * Rough timing of a breadth-first search over a large random BasicGraph,
+ * written against neighbors() with a visited set the way student solutions
+ * usually are, versus the same search over the graph's CSRGraph snapshot.
+ * Also times resetData, and coloring every vertex with and without a batch.
+ * The vertex count defaults to 100,000 and can be passed as an argument.
+ *
+ * @author Marty Stepp
+ * @version 2015/06/06
+ */
+
+package stanford.cs106.collections;
+
+import java.awt.Color;
+import java.util.*;
+
+public class GraphBenchmark {
+	private static final int DEFAULT_VERTEXES = 100000;
+	private static final int EDGES_PER_VERTEX = 5;
+	private static final int SEARCHES = 10;
+
+	public static void main(String[] args) {
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_VERTEXES;
+		Random rand = new Random(42);
+		BasicGraph graph = new BasicGraph(/* directed */ true, /* weighted */ false);
+		for (int i = 0; i < n; i++) {
+			graph.addVertex(name(i));
+		}
+		for (int i = 0; i < n; i++) {
+			// a ring, so that every vertex has an edge out, plus random edges
+			graph.addEdge(name(i), name((i + 1) % n));
+			for (int j = 1; j < EDGES_PER_VERTEX; j++) {
+				int other = rand.nextInt(n);
+				if (other != i) {
+					graph.addEdge(name(i), name(other));
+				}
+			}
+		}
+
+		long start = System.nanoTime();
+		CSRGraph csr = graph.toCSR();
+		System.out.printf("%d vertexes, %d edges; toCSR took %.1f ms%n",
+				graph.vertexCount(), graph.edgeCount(), (System.nanoTime() - start) / 1e6);
+
+		for (int pass = 0; pass < 2; pass++) {
+			// first pass is warm-up
+			boolean print = pass == 1;
+			start = System.nanoTime();
+			int reached = 0;
+			for (int i = 0; i < SEARCHES; i++) {
+				reached += bfs(graph, graph.vertex(name(i)));
+			}
+			report("BasicGraph.neighbors", start, reached, print);
+
+			start = System.nanoTime();
+			reached = 0;
+			for (int i = 0; i < SEARCHES; i++) {
+				reached += bfs(csr, csr.id(name(i)));
+			}
+			report("CSRGraph", start, reached, print);
+		}
+
+		start = System.nanoTime();
+		for (int i = 0; i < SEARCHES; i++) {
+			graph.resetData();
+		}
+		System.out.printf("%-22s %9.4f ms/call%n", "resetData", (System.nanoTime() - start) / 1e6 / SEARCHES);
+
+		for (int pass = 0; pass < 2; pass++) {
+			boolean print = pass == 1;
+			start = System.nanoTime();
+			colorAll(graph);
+			if (print) {
+				System.out.printf("%-22s %9.2f ms%n", "setColor on all", (System.nanoTime() - start) / 1e6);
+			}
+			start = System.nanoTime();
+			graph.beginBatch();
+			colorAll(graph);
+			graph.endBatch();
+			if (print) {
+				System.out.printf("%-22s %9.2f ms%n", "setColor in a batch", (System.nanoTime() - start) / 1e6);
+			}
+		}
+	}
+
+	private static void colorAll(BasicGraph graph) {
+		for (Vertex v : graph.vertexes()) {
+			v.setColor(Color.GREEN);
+			v.setColor(Color.RED);
+		}
+	}
+
+	private static int bfs(BasicGraph graph, Vertex source) {
+		Set<Vertex> visited = new HashSet<Vertex>();
+		Queue<Vertex> queue = new LinkedList<Vertex>();
+		visited.add(source);
+		queue.add(source);
+		while (!queue.isEmpty()) {
+			Vertex v = queue.remove();
+			for (Vertex neighbor : graph.neighbors(v)) {
+				if (visited.add(neighbor)) {
+					queue.add(neighbor);
+				}
+			}
+		}
+		return visited.size();
+	}
+
+	private static int bfs(CSRGraph graph, int source) {
+		boolean[] visited = new boolean[graph.vertexCount()];
+		int[] queue = new int[graph.vertexCount()];
+		int head = 0;
+		int tail = 0;
+		visited[source] = true;
+		queue[tail++] = source;
+		while (head < tail) {
+			int v = queue[head++];
+			for (int e = graph.firstEdge(v), end = graph.endEdge(v); e < end; e++) {
+				int neighbor = graph.target(e);
+				if (!visited[neighbor]) {
+					visited[neighbor] = true;
+					queue[tail++] = neighbor;
+				}
+			}
+		}
+		return tail;
+	}
+
+	private static String name(int i) {
+		return "v" + i;
+	}
+
+	private static void report(String name, long startNanos, int reached, boolean print) {
+		double ms = (System.nanoTime() - startNanos) / 1e6 / SEARCHES;
+		if (print) {
+			System.out.printf("%-22s %9.2f ms/search   (%d vertexes reached)%n", name, ms, reached / SEARCHES);
+		}
+	}
+}
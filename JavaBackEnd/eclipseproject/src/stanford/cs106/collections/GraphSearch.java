@@ -0,0 +1,740 @@
+/*
+ * @author Marty Stepp
+ * @version 2015/06/06
+ */
+
+package stanford.cs106.collections;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A GraphSearch runs path-finding algorithms over a CSRGraph snapshot of a
+ * graph: breadth-first search, bidirectional breadth-first search, Dijkstra's
+ * algorithm, A* search, and topological sort.
+ *
+ * <p>
+ * Unlike searches written against a Graph's Vertex objects, a GraphSearch
+ * keeps its working state (costs, previous vertexes, visited marks) in arrays
+ * of its own, indexed by vertex id.  Nothing in the graph is modified, so no
+ * observers are notified, and any number of GraphSearch objects may search the
+ * same CSRGraph at the same time from different threads.  A single GraphSearch
+ * is not thread-safe; give each thread its own.
+ *
+ * <p>
+ * A GraphSearch can be reused for any number of searches, and a new search
+ * costs time in proportion to the part of the graph it visits, not to the size
+ * of the whole graph.  After each search, distance, previous, reached and path
+ * describe its results:
+ *
+ * <pre>
+ * {@code
+ * GraphSearch search = new GraphSearch(graph);
+ * CSRGraph csr = search.graph();
+ * double cost = search.dijkstra(csr.id("A"), csr.id("B"));
+ * List<String> path = search.path(csr.id("B"));
+ * }
+ * </pre>
+ *
+ * Edge weights must not be negative, as in Graph.
+ *
+ * <p>
+ * The static distances and forEachSource methods search from many sources
+ * at once, spread over the threads of a ForkJoinPool.
+ */
+public class GraphSearch {
+	/**
+	 * An estimate of the remaining cost from a vertex to the target of an
+	 * A* search.  To find minimum-weight paths the estimate must never be more
+	 * than the actual cost of the cheapest path from v to target.
+	 */
+	public interface Heuristic {
+		public double estimate(int v, int target);
+	}
+
+	/**
+	 * Something to be done with the results of a search from one source, for
+	 * forEachSource.  Calls for different sources may run at the same time on
+	 * different threads, so anything shared between them must be thread-safe.
+	 * The search passed in may be reused once the call returns.
+	 */
+	public interface SourceVisitor {
+		public void visit(int source, GraphSearch search);
+	}
+
+	private static final int TASKS_PER_THREAD = 8;
+
+	private final CSRGraph graph;
+	private final double[] distance;   // [vertex id] -> cost found by the latest search
+	private final int[] previous;      // [vertex id] -> previous vertex on that path, or -1
+	private final int[] stamp;         // [vertex id] -> epoch of the latest search to reach it
+	private final int[] queue;
+	private int epoch;
+	private int reachedCount;
+	private IndexedHeap heap;          // created on first use, like the arrays below
+	private int[] backStamp;           // backward half of bidirectionalBfs
+	private int[] backDistance;
+	private int[] backNext;
+	private int[] backQueue;
+
+	/**
+	 * Returns the distances from every vertex to every vertex, as a
+	 * vertexCount() x vertexCount() matrix in row-major order: the distance
+	 * from u to v is at index u * vertexCount() + v.  Runs on a shared pool
+	 * with one thread per processor.  See distances(CSRGraph, int[]).
+	 * @throws IllegalArgumentException If the matrix would be too large for an array.
+	 * @throws NullPointerException If the graph is null.
+	 */
+	public static double[] allPairsDistances(CSRGraph graph) {
+		int[] sources = new int[graph.vertexCount()];
+		for (int v = 0; v < sources.length; v++) {
+			sources[v] = v;
+		}
+		return distances(graph, sources);
+	}
+
+	/**
+	 * Returns the distances from each of the given sources to every vertex, as
+	 * a sources.length x vertexCount() matrix in row-major order: the distance
+	 * from sources[i] to v is at index i * vertexCount() + v.  Distances are
+	 * minimum path weights, or numbers of edges in an unweighted graph, and
+	 * Vertex.MAX_COST for vertexes that can't be reached.  Runs on a shared
+	 * pool with one thread per processor.
+	 * @throws IllegalArgumentException If any source is not in the graph, or
+	 *                                  the matrix would be too large for an array.
+	 * @throws NullPointerException If any object parameter is null.
+	 */
+	public static double[] distances(CSRGraph graph, int[] sources) {
+		return distances(graph, sources, ParallelGrid.getDefaultPool());
+	}
+
+	/**
+	 * Returns the distances from each of the given sources to every vertex, as
+	 * distances(CSRGraph, int[]) does, running on the given pool.
+	 * @throws IllegalArgumentException If any source is not in the graph, or
+	 *                                  the matrix would be too large for an array.
+	 * @throws NullPointerException If any object parameter is null.
+	 */
+	public static double[] distances(CSRGraph graph, int[] sources, ForkJoinPool pool) {
+		final int n = graph.vertexCount();
+		if ((long) sources.length * n > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("Distance matrix too large: "
+					+ sources.length + " x " + n);
+		}
+		final double[] matrix = new double[sources.length * n];
+		forEachSource(graph, sources, new SourceVisitor() {
+			public void visit(int index, GraphSearch search) {
+				search.copyDistances(matrix, index * n);
+			}
+		}, pool, /* visitIndexes */ true);
+		return matrix;
+	}
+
+	/**
+	 * Searches from each of the given sources, calling the visitor with the
+	 * results of each search as soon as it is done.  Searches use Dijkstra's
+	 * algorithm, or breadth-first search in an unweighted graph.  Runs on a
+	 * shared pool with one thread per processor and returns once every
+	 * source has been visited.  Nothing is kept between calls to the visitor,
+	 * so this can cover far more sources than fit in a distance matrix.
+	 * @throws IllegalArgumentException If any source is not in the graph.
+	 * @throws NullPointerException If any object parameter is null.
+	 */
+	public static void forEachSource(CSRGraph graph, int[] sources, SourceVisitor visitor) {
+		forEachSource(graph, sources, visitor, ParallelGrid.getDefaultPool());
+	}
+
+	/**
+	 * Searches from each of the given sources, as
+	 * forEachSource(CSRGraph, int[], SourceVisitor) does, running on the given pool.
+	 * @throws IllegalArgumentException If any source is not in the graph.
+	 * @throws NullPointerException If any object parameter is null.
+	 */
+	public static void forEachSource(CSRGraph graph, int[] sources, SourceVisitor visitor, ForkJoinPool pool) {
+		forEachSource(graph, sources, visitor, pool, /* visitIndexes */ false);
+	}
+
+	/*
+	 * Splits the sources into a few runs per thread; each task makes one
+	 * GraphSearch and reuses it for every source in its run.  The visitor is
+	 * passed each source's index in the array if visitIndexes is true.
+	 */
+	private static void forEachSource(CSRGraph graph, int[] sources, SourceVisitor visitor,
+			ForkJoinPool pool, boolean visitIndexes) {
+		if (graph == null || visitor == null || pool == null) {
+			throw new NullPointerException();
+		}
+		for (int source : sources) {
+			if (source < 0 || source >= graph.vertexCount()) {
+				throw new IllegalArgumentException("Vertex not found in graph: " + source);
+			}
+		}
+		if (sources.length == 0) {
+			return;
+		}
+		int runSize = Math.max(1, sources.length / (pool.getParallelism() * TASKS_PER_THREAD));
+		pool.invoke(new SourceTask(graph, sources, 0, sources.length, runSize, visitor, visitIndexes));
+	}
+
+	/**
+	 * Constructs a search over a snapshot of the given graph.  Later changes to
+	 * the graph are not seen by this search.
+	 * @throws NullPointerException If the graph is null.
+	 */
+	public GraphSearch(Graph graph) {
+		this(CSRGraph.of(graph));
+	}
+
+	/**
+	 * Constructs a search over the given graph snapshot.
+	 * @throws NullPointerException If the graph is null.
+	 */
+	public GraphSearch(CSRGraph graph) {
+		if (graph == null) {
+			throw new NullPointerException();
+		}
+		this.graph = graph;
+		int n = graph.vertexCount();
+		distance = new double[n];
+		previous = new int[n];
+		stamp = new int[n];
+		queue = new int[n];
+	}
+
+	/**
+	 * Runs an A* search for a minimum-weight path from source to target,
+	 * using the given heuristic to search toward the target first.
+	 * Returns the cost of the path, or Vertex.MAX_COST if there is none.
+	 * With a heuristic that always returns 0 this is Dijkstra's algorithm.
+	 * @throws IllegalArgumentException If either vertex is not in the graph.
+	 * @throws NullPointerException If the heuristic is null.
+	 */
+	public double aStar(int source, int target, Heuristic heuristic) {
+		if (heuristic == null) {
+			throw new NullPointerException();
+		}
+		checkVertex(target);
+		return bestFirst(source, target, heuristic);
+	}
+
+	/**
+	 * Runs a breadth-first search from source to every vertex reachable from it.
+	 * Afterward, distance(v) is the number of edges on a shortest path to v.
+	 * @throws IllegalArgumentException If the vertex is not in the graph.
+	 */
+	public void bfs(int source) {
+		bfs(source, -1);
+	}
+
+	/**
+	 * Runs a breadth-first search from source, stopping as soon as it reaches
+	 * target.  Returns the number of edges on a shortest path from source to
+	 * target, or -1 if there is no path.
+	 * @throws IllegalArgumentException If either vertex is not in the graph.
+	 */
+	public int bfs(int source, int target) {
+		begin(source);
+		if (target != -1) {
+			checkVertex(target);
+		}
+		if (source == target) {
+			return 0;
+		}
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = source;
+		while (head < tail) {
+			int v = queue[head++];
+			double d = distance[v] + 1;
+			for (int e = graph.firstEdge(v), end = graph.endEdge(v); e < end; e++) {
+				int w = graph.target(e);
+				if (stamp[w] != epoch) {
+					reach(w, d, v);
+					if (w == target) {
+						return (int) d;
+					}
+					queue[tail++] = w;
+				}
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Finds the number of edges on a shortest path from source to target by
+	 * searching forward from source and backward from target at once, one
+	 * level at a time from whichever side has fewer vertexes waiting.  This
+	 * usually visits far fewer vertexes than bfs(source, target).
+	 * Returns the number of edges on the path, or -1 if there is none.
+	 * Afterward, path(target) returns the path; the distances of other
+	 * vertexes are not all meaningful.
+	 * @throws IllegalArgumentException If either vertex is not in the graph.
+	 */
+	public int bidirectionalBfs(int source, int target) {
+		begin(source);
+		checkVertex(target);
+		if (source == target) {
+			return 0;
+		}
+		CSRGraph reverse = graph.reverse();
+		if (backStamp == null) {
+			int n = graph.vertexCount();
+			backStamp = new int[n];
+			backDistance = new int[n];
+			backNext = new int[n];
+			backQueue = new int[n];
+		}
+		backStamp[target] = epoch;
+		backDistance[target] = 0;
+		backNext[target] = -1;
+		int head = 0;
+		int tail = 0;
+		int backHead = 0;
+		int backTail = 0;
+		queue[tail++] = source;
+		backQueue[backTail++] = target;
+
+		// the shortest path found so far runs source ... meetFrom -> meetTo ... target
+		int best = Integer.MAX_VALUE;
+		int meetFrom = -1;
+		int meetTo = -1;
+		while (best == Integer.MAX_VALUE && head < tail && backHead < backTail) {
+			if (tail - head <= backTail - backHead) {
+				for (int levelEnd = tail; head < levelEnd; head++) {
+					int v = queue[head];
+					for (int e = graph.firstEdge(v), end = graph.endEdge(v); e < end; e++) {
+						int w = graph.target(e);
+						if (backStamp[w] == epoch && (int) distance[v] + 1 + backDistance[w] < best) {
+							best = (int) distance[v] + 1 + backDistance[w];
+							meetFrom = v;
+							meetTo = w;
+						}
+						if (stamp[w] != epoch) {
+							reach(w, distance[v] + 1, v);
+							queue[tail++] = w;
+						}
+					}
+				}
+			} else {
+				for (int levelEnd = backTail; backHead < levelEnd; backHead++) {
+					int v = backQueue[backHead];
+					for (int e = reverse.firstEdge(v), end = reverse.endEdge(v); e < end; e++) {
+						int w = reverse.target(e);
+						if (stamp[w] == epoch && (int) distance[w] + 1 + backDistance[v] < best) {
+							best = (int) distance[w] + 1 + backDistance[v];
+							meetFrom = w;
+							meetTo = v;
+						}
+						if (backStamp[w] != epoch) {
+							backStamp[w] = epoch;
+							backDistance[w] = backDistance[v] + 1;
+							backNext[w] = v;
+							backQueue[backTail++] = w;
+						}
+					}
+				}
+			}
+		}
+		if (best == Integer.MAX_VALUE) {
+			return -1;
+		}
+
+		// extend the forward search tree along the backward half of the path
+		double d = distance[meetFrom];
+		for (int v = meetTo, prev = meetFrom; v != -1; prev = v, v = backNext[v]) {
+			d++;
+			if (stamp[v] != epoch) {
+				reach(v, d, prev);
+			} else {
+				distance[v] = d;
+				previous[v] = prev;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Copies the distance of every vertex found by the latest search, as
+	 * distance(v) would return it, into dest starting at the given offset.
+	 * @throws IndexOutOfBoundsException If dest is too short.
+	 */
+	public void copyDistances(double[] dest, int offset) {
+		int n = stamp.length;
+		if (offset < 0 || offset > dest.length - n) {
+			throw new IndexOutOfBoundsException("offset " + offset + ", length " + dest.length);
+		}
+		for (int v = 0; v < n; v++) {
+			dest[offset + v] = stamp[v] == epoch ? distance[v] : Vertex.MAX_COST;
+		}
+	}
+
+	/**
+	 * Runs Dijkstra's algorithm from source to every vertex reachable from it.
+	 * Afterward, distance(v) is the cost of a minimum-weight path to v.
+	 * @throws IllegalArgumentException If the vertex is not in the graph.
+	 */
+	public void dijkstra(int source) {
+		bestFirst(source, -1, null);
+	}
+
+	/**
+	 * Runs Dijkstra's algorithm from source, stopping as soon as the cost of
+	 * a minimum-weight path to target is known.  Returns that cost, or
+	 * Vertex.MAX_COST if there is no path.
+	 * @throws IllegalArgumentException If either vertex is not in the graph.
+	 */
+	public double dijkstra(int source, int target) {
+		checkVertex(target);
+		return bestFirst(source, target, null);
+	}
+
+	/**
+	 * Returns the cost of the path to v found by the latest search, or
+	 * Vertex.MAX_COST if it did not reach v.  For a search that stopped at
+	 * its target, this may be more than the least cost for other vertexes.
+	 * @throws IllegalArgumentException If the vertex is not in the graph.
+	 */
+	public double distance(int v) {
+		checkVertex(v);
+		return stamp[v] == epoch ? distance[v] : Vertex.MAX_COST;
+	}
+
+	/**
+	 * Returns the graph snapshot being searched.
+	 */
+	public CSRGraph graph() {
+		return graph;
+	}
+
+	/**
+	 * Returns true if there is any path from vertex v1 to vertex v2.
+	 * @throws IllegalArgumentException If either vertex is not part of the graph.
+	 * @throws NullPointerException If any object parameter is null.
+	 */
+	public boolean isReachable(String v1, String v2) {
+		return bfs(id(v1), id(v2)) >= 0;
+	}
+
+	/**
+	 * Returns a list of vertex names on a minimum-weight path from v1 to v2,
+	 * including both ends, or null if v2 is not reachable from v1.
+	 * @throws IllegalArgumentException If either vertex is not part of the graph.
+	 * @throws NullPointerException If any object parameter is null.
+	 */
+	public List<String> minimumWeightPath(String v1, String v2) {
+		int target = id(v2);
+		dijkstra(id(v1), target);
+		return path(target);
+	}
+
+	/**
+	 * Returns a list of the names of the vertexes on the path from the latest
+	 * search's source to v, including both ends, or null if it did not reach v.
+	 * @throws IllegalArgumentException If the vertex is not in the graph.
+	 */
+	public List<String> path(int v) {
+		checkVertex(v);
+		if (stamp[v] != epoch) {
+			return null;
+		}
+		LinkedList<String> path = new LinkedList<String>();
+		for (int current = v; current != -1; current = previous[current]) {
+			path.addFirst(graph.name(current));
+		}
+		return path;
+	}
+
+	/**
+	 * Returns the vertex before v on the path found by the latest search, or
+	 * -1 if v is that search's source or was not reached.
+	 * @throws IllegalArgumentException If the vertex is not in the graph.
+	 */
+	public int previous(int v) {
+		checkVertex(v);
+		return stamp[v] == epoch ? previous[v] : -1;
+	}
+
+	/**
+	 * Returns true if the latest search reached vertex v.
+	 * @throws IllegalArgumentException If the vertex is not in the graph.
+	 */
+	public boolean reached(int v) {
+		checkVertex(v);
+		return stamp[v] == epoch;
+	}
+
+	/**
+	 * Returns the number of vertexes the latest search reached.
+	 */
+	public int reachedCount() {
+		return reachedCount;
+	}
+
+	/**
+	 * Returns a list of vertex names on a path from v1 to v2 with the fewest
+	 * edges, including both ends, or null if v2 is not reachable from v1.
+	 * @throws IllegalArgumentException If either vertex is not part of the graph.
+	 * @throws NullPointerException If any object parameter is null.
+	 */
+	public List<String> shortestPath(String v1, String v2) {
+		int target = id(v2);
+		bidirectionalBfs(id(v1), target);
+		return path(target);
+	}
+
+	/**
+	 * Returns the ids of all vertexes in an order such that every edge leads
+	 * from a vertex to one later in the order.  Uses Kahn's algorithm, taking
+	 * vertexes with no remaining incoming edges in order of id.
+	 * @throws IllegalStateException If the graph has a cycle; an undirected
+	 *                               graph with any edges always does.
+	 */
+	public int[] topologicalSort() {
+		int n = graph.vertexCount();
+		int[] order = new int[n];
+		int[] inDegree = new int[n];
+		for (int e = 0; e < graph.edgeCount(); e++) {
+			inDegree[graph.target(e)]++;
+		}
+		int tail = 0;
+		for (int v = 0; v < n; v++) {
+			if (inDegree[v] == 0) {
+				order[tail++] = v;
+			}
+		}
+		for (int head = 0; head < tail; head++) {
+			int v = order[head];
+			for (int e = graph.firstEdge(v), end = graph.endEdge(v); e < end; e++) {
+				int w = graph.target(e);
+				if (--inDegree[w] == 0) {
+					order[tail++] = w;
+				}
+			}
+		}
+		if (tail < n) {
+			throw new IllegalStateException("Graph contains a cycle; cannot sort topologically");
+		}
+		return order;
+	}
+
+	/**
+	 * Returns a string of the form "GraphSearch{graph=..., reached=...}".
+	 */
+	public String toString() {
+		return "GraphSearch{graph=" + graph + ", reached=" + reachedCount + "}";
+	}
+
+	/*
+	 * Starts a new search from the given vertex: everything reached by earlier
+	 * searches is forgotten by moving to a new epoch, rather than by clearing.
+	 */
+	private void begin(int source) {
+		checkVertex(source);
+		epoch++;
+		if (epoch == Integer.MAX_VALUE) {
+			Arrays.fill(stamp, 0);
+			if (backStamp != null) {
+				Arrays.fill(backStamp, 0);
+			}
+			epoch = 1;
+		}
+		reachedCount = 0;
+		reach(source, 0, -1);
+	}
+
+	/*
+	 * Dijkstra's algorithm, or A* if a heuristic is given, with an indexed heap
+	 * keyed on cost so far plus estimated cost to go.  A vertex whose cost is
+	 * lowered after it was taken from the heap goes back in, so heuristics that
+	 * are admissible but not consistent still give minimum-weight paths.
+	 */
+	private double bestFirst(int source, int target, Heuristic heuristic) {
+		begin(source);
+		if (heap == null) {
+			heap = new IndexedHeap(graph.vertexCount());
+		}
+		heap.clear();
+		heap.offer(source, heuristic == null ? 0 : heuristic.estimate(source, target));
+		while (!heap.isEmpty()) {
+			int v = heap.poll();
+			if (v == target) {
+				return distance[v];
+			}
+			double d = distance[v];
+			for (int e = graph.firstEdge(v), end = graph.endEdge(v); e < end; e++) {
+				int w = graph.target(e);
+				double cost = d + graph.weight(e);
+				if (stamp[w] != epoch) {
+					reach(w, cost, v);
+				} else if (cost < distance[w]) {
+					distance[w] = cost;
+					previous[w] = v;
+				} else {
+					continue;
+				}
+				heap.offer(w, heuristic == null ? cost : cost + heuristic.estimate(w, target));
+			}
+		}
+		return target == -1 ? 0 : Vertex.MAX_COST;
+	}
+
+	private void checkVertex(int v) {
+		if (v < 0 || v >= stamp.length) {
+			throw new IllegalArgumentException("Vertex not found in graph: " + v);
+		}
+	}
+
+	private int id(String name) {
+		if (name == null) {
+			throw new NullPointerException();
+		}
+		int id = graph.id(name);
+		if (id < 0) {
+			throw new IllegalArgumentException("Vertex not found in graph: " + name);
+		}
+		return id;
+	}
+
+	private void reach(int v, double d, int prev) {
+		stamp[v] = epoch;
+		distance[v] = d;
+		previous[v] = prev;
+		reachedCount++;
+	}
+
+	/*
+	 * Searches from the sources numbered from (inclusive) to to (exclusive),
+	 * splitting in halves down to runs of at most runSize sources.
+	 */
+	private static class SourceTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final CSRGraph graph;
+		private final int[] sources;
+		private final int from;
+		private final int to;
+		private final int runSize;
+		private final SourceVisitor visitor;
+		private final boolean visitIndexes;
+
+		public SourceTask(CSRGraph graph, int[] sources, int from, int to, int runSize,
+				SourceVisitor visitor, boolean visitIndexes) {
+			this.graph = graph;
+			this.sources = sources;
+			this.from = from;
+			this.to = to;
+			this.runSize = runSize;
+			this.visitor = visitor;
+			this.visitIndexes = visitIndexes;
+		}
+
+		protected void compute() {
+			if (to - from > runSize) {
+				int mid = from + (to - from) / 2;
+				invokeAll(new SourceTask(graph, sources, from, mid, runSize, visitor, visitIndexes),
+						new SourceTask(graph, sources, mid, to, runSize, visitor, visitIndexes));
+				return;
+			}
+			GraphSearch search = new GraphSearch(graph);
+			for (int i = from; i < to; i++) {
+				if (graph.isWeighted()) {
+					search.dijkstra(sources[i]);
+				} else {
+					search.bfs(sources[i]);
+				}
+				visitor.visit(visitIndexes ? i : sources[i], search);
+			}
+		}
+	}
+
+	/*
+	 * A binary min-heap of vertex ids that can lower the key of a vertex
+	 * already in it, by keeping each vertex's position in the heap.
+	 */
+	private static class IndexedHeap {
+		private final int[] heap;
+		private final double[] keys;     // [vertex id] -> key, valid while in the heap
+		private final int[] position;    // [vertex id] -> index in heap + 1, or 0 if absent
+		private int size;
+
+		public IndexedHeap(int capacity) {
+			heap = new int[capacity];
+			keys = new double[capacity];
+			position = new int[capacity];
+		}
+
+		public void clear() {
+			for (int i = 0; i < size; i++) {
+				position[heap[i]] = 0;
+			}
+			size = 0;
+		}
+
+		public boolean isEmpty() {
+			return size == 0;
+		}
+
+		// adds v with the given key, or lowers its key if it is already present
+		public void offer(int v, double key) {
+			int index = position[v] - 1;
+			if (index < 0) {
+				index = size++;
+				heap[index] = v;
+			} else if (key >= keys[v]) {
+				return;
+			}
+			keys[v] = key;
+			siftUp(index);
+		}
+
+		public int poll() {
+			int min = heap[0];
+			position[min] = 0;
+			size--;
+			if (size > 0) {
+				heap[0] = heap[size];
+				siftDown(0);
+			}
+			return min;
+		}
+
+		private void siftUp(int index) {
+			int v = heap[index];
+			double key = keys[v];
+			while (index > 0) {
+				int parent = (index - 1) >>> 1;
+				int parentVertex = heap[parent];
+				if (keys[parentVertex] <= key) {
+					break;
+				}
+				heap[index] = parentVertex;
+				position[parentVertex] = index + 1;
+				index = parent;
+			}
+			heap[index] = v;
+			position[v] = index + 1;
+		}
+
+		private void siftDown(int index) {
+			int v = heap[index];
+			double key = keys[v];
+			int half = size >>> 1;
+			while (index < half) {
+				int child = 2 * index + 1;
+				int childVertex = heap[child];
+				if (child + 1 < size && keys[heap[child + 1]] < keys[childVertex]) {
+					child++;
+					childVertex = heap[child];
+				}
+				if (key <= keys[childVertex]) {
+					break;
+				}
+				heap[index] = childVertex;
+				position[childVertex] = index + 1;
+				index = child;
+			}
+			heap[index] = v;
+			position[v] = index + 1;
+		}
+	}
+}
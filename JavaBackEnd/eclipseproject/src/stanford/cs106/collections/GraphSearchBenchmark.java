@@ -0,0 +1,209 @@
+/*
+ * Rough timing of GraphSearch on a generated road network: a grid of
+ * intersections joined by two-way streets of random length, with about one
+ * street in ten missing.  The Vertex-based Dijkstra is written the way
+ * student solutions usually are, with a PriorityQueue and the cost, previous
+ * and visited markers on each Vertex.  Each search runs between the same
+ * random pairs of intersections, and the costs found are checked to agree.
+ * The last section times GraphSearch.distances from a batch of sources on
+ * pools of 1, 2, 4, ... threads, checking each matrix against a sequential run.
+ * The grid size defaults to 300x300 and can be passed as an argument.
+ *
+ * @author Marty Stepp
+ * @version 2015/06/06
+ */
+
+package stanford.cs106.collections;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+public class GraphSearchBenchmark {
+	private static final int DEFAULT_SIZE = 300;
+	private static final int QUERIES = 40;
+	private static final int MAX_STREET_LENGTH = 10;
+	private static final int MULTI_SOURCES = 32;
+
+	public static void main(String[] args) throws Exception {
+		final int size = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SIZE;
+		Random rand = new Random(42);
+		BasicGraph graph = new BasicGraph(/* directed */ false, /* weighted */ true);
+		for (int row = 0; row < size; row++) {
+			for (int col = 0; col < size; col++) {
+				graph.addVertex(name(row, col));
+			}
+		}
+		for (int row = 0; row < size; row++) {
+			for (int col = 0; col < size; col++) {
+				if (col + 1 < size && rand.nextInt(10) != 0) {
+					graph.addEdge(name(row, col), name(row, col + 1), 1 + rand.nextInt(MAX_STREET_LENGTH));
+				}
+				if (row + 1 < size && rand.nextInt(10) != 0) {
+					graph.addEdge(name(row, col), name(row + 1, col), 1 + rand.nextInt(MAX_STREET_LENGTH));
+				}
+			}
+		}
+		final CSRGraph csr = graph.toCSR();
+		System.out.println(size + "x" + size + " road grid: " + csr);
+
+		// the A* heuristic needs each vertex's grid position; every street is at least 1 long
+		final int[] rows = new int[csr.vertexCount()];
+		final int[] cols = new int[csr.vertexCount()];
+		for (int v = 0; v < csr.vertexCount(); v++) {
+			String[] parts = csr.name(v).split(",");
+			rows[v] = Integer.parseInt(parts[0]);
+			cols[v] = Integer.parseInt(parts[1]);
+		}
+		final GraphSearch.Heuristic manhattan = new GraphSearch.Heuristic() {
+			public double estimate(int v, int target) {
+				return Math.abs(rows[v] - rows[target]) + Math.abs(cols[v] - cols[target]);
+			}
+		};
+
+		final int[] sources = new int[QUERIES];
+		final int[] targets = new int[QUERIES];
+		for (int i = 0; i < QUERIES; i++) {
+			sources[i] = rand.nextInt(csr.vertexCount());
+			targets[i] = rand.nextInt(csr.vertexCount());
+		}
+		double[] expected = new double[QUERIES];
+		int[] expectedHops = new int[QUERIES];
+
+		long start = System.nanoTime();
+		for (int i = 0; i < QUERIES; i++) {
+			expected[i] = vertexDijkstra(graph, csr.name(sources[i]), csr.name(targets[i]));
+		}
+		report("Vertex-based Dijkstra", start, true, true);
+
+		GraphSearch search = new GraphSearch(csr);
+		for (int pass = 0; pass < 2; pass++) {
+			// first pass is warm-up
+			boolean print = pass == 1;
+			boolean same = true;
+			start = System.nanoTime();
+			for (int i = 0; i < QUERIES; i++) {
+				same &= search.dijkstra(sources[i], targets[i]) == expected[i];
+			}
+			report("GraphSearch.dijkstra", start, print, same);
+
+			same = true;
+			start = System.nanoTime();
+			for (int i = 0; i < QUERIES; i++) {
+				same &= search.aStar(sources[i], targets[i], manhattan) == expected[i];
+			}
+			report("GraphSearch.aStar", start, print, same);
+
+			start = System.nanoTime();
+			for (int i = 0; i < QUERIES; i++) {
+				expectedHops[i] = search.bfs(sources[i], targets[i]);
+			}
+			report("GraphSearch.bfs", start, print, true);
+
+			same = true;
+			start = System.nanoTime();
+			for (int i = 0; i < QUERIES; i++) {
+				same &= search.bidirectionalBfs(sources[i], targets[i]) == expectedHops[i];
+			}
+			report("GraphSearch.bidirectionalBfs", start, print, same);
+		}
+
+		// distances from many sources: sequential, then on pools of increasing size
+		int[] multiSources = new int[MULTI_SOURCES];
+		for (int i = 0; i < MULTI_SOURCES; i++) {
+			multiSources[i] = rand.nextInt(csr.vertexCount());
+		}
+		int n = csr.vertexCount();
+		double[] expectedMatrix = new double[MULTI_SOURCES * n];
+		long sequential = 0;
+		for (int pass = 0; pass < 2; pass++) {
+			// first pass is warm-up
+			start = System.nanoTime();
+			for (int i = 0; i < MULTI_SOURCES; i++) {
+				search.dijkstra(multiSources[i]);
+				search.copyDistances(expectedMatrix, i * n);
+			}
+			sequential = System.nanoTime() - start;
+		}
+		reportSources("sequential", sequential, sequential, true);
+
+		List<Integer> threadCounts = new ArrayList<Integer>();
+		int processors = Runtime.getRuntime().availableProcessors();
+		for (int threads = 1; threads < processors; threads *= 2) {
+			threadCounts.add(threads);
+		}
+		threadCounts.add(processors);
+		for (int threads : threadCounts) {
+			ForkJoinPool pool = new ForkJoinPool(threads);
+			GraphSearch.distances(csr, multiSources, pool);   // warm up
+			start = System.nanoTime();
+			double[] matrix = GraphSearch.distances(csr, multiSources, pool);
+			long elapsed = System.nanoTime() - start;
+			pool.shutdown();
+			reportSources(threads + " threads", elapsed, sequential, Arrays.equals(matrix, expectedMatrix));
+		}
+	}
+
+	// Dijkstra's algorithm in the usual style, keeping its state on the Vertex objects
+	private static double vertexDijkstra(BasicGraph graph, String v1, String v2) {
+		graph.resetData();
+		for (Vertex v : graph.vertexes()) {
+			v.setCost(Vertex.MAX_COST);
+		}
+		Vertex start = graph.vertex(v1);
+		Vertex end = graph.vertex(v2);
+		start.setCost(0);
+		PriorityQueue<QueueEntry> pq = new PriorityQueue<QueueEntry>();
+		pq.add(new QueueEntry(start, 0));
+		while (!pq.isEmpty()) {
+			Vertex v = pq.remove().vertex;
+			if (v.visited()) {
+				continue;
+			}
+			v.setVisited(true);
+			if (v == end) {
+				break;
+			}
+			for (Vertex neighbor : graph.neighbors(v)) {
+				double cost = v.cost() + graph.edgeWeight(v, neighbor);
+				if (!neighbor.visited() && cost < neighbor.cost()) {
+					// PriorityQueue has no decrease-key, so the old entry is left in the queue
+					neighbor.setCost(cost);
+					neighbor.setPrevious(v);
+					pq.add(new QueueEntry(neighbor, cost));
+				}
+			}
+		}
+		return end.cost();
+	}
+
+	private static class QueueEntry implements Comparable<QueueEntry> {
+		private final Vertex vertex;
+		private final double cost;
+
+		public QueueEntry(Vertex vertex, double cost) {
+			this.vertex = vertex;
+			this.cost = cost;
+		}
+
+		public int compareTo(QueueEntry other) {
+			return Double.compare(cost, other.cost);
+		}
+	}
+
+	private static String name(int row, int col) {
+		return row + "," + col;
+	}
+
+	private static void reportSources(String mode, long nanos, long sequentialNanos, boolean same) {
+		System.out.printf("distances from %d sources %-12s %9.1f ms   speedup %5.2fx   %s%n",
+				MULTI_SOURCES, mode, nanos / 1e6, (double) sequentialNanos / nanos,
+				same ? "same result" : "DIFFERENT RESULT");
+	}
+
+	private static void report(String name, long startNanos, boolean print, boolean same) {
+		double ms = (System.nanoTime() - startNanos) / 1e6 / QUERIES;
+		if (print) {
+			System.out.printf("%-30s %9.2f ms/query   %s%n", name, ms, same ? "" : "DIFFERENT RESULT");
+		}
+	}
+}
@@ -10,11 +10,22 @@
 package stanford.cs106.collections;
 
 import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
 
 public class Grid<E> {
 	private int rows, cols;
 	private E[][] array;
 	
+	/*
+	 * Computes one cell of a new grid from the cells of a source grid.
+	 * It may be called for many cells at once on different threads, so it
+	 * should only read the source grid and not change any shared state.
+	 * IntGrid, DoubleGrid and BooleanGrid have kernels like this one.
+	 */
+	public interface Kernel<E, R> {
+		public R map(Grid<E> source, int row, int col);
+	}
+	
 	public Grid(int rows, int cols) {
 		resize(rows, cols);
 	}
@@ -52,6 +63,63 @@ public class Grid<E> {
 		return rows;
 	}
 	
+	/*
+	 * Runs the action once for every cell, in parallel on a shared pool.
+	 */
+	public void parallelForEach(GridCellAction action) {
+		parallelForEach(action, ParallelGrid.getDefaultPool());
+	}
+	
+	/*
+	 * Runs the action once for every cell, in parallel on the given pool.
+	 */
+	public void parallelForEach(final GridCellAction action, ForkJoinPool pool) {
+		final int cols = this.cols;
+		ParallelGrid.forEachRange(size(), 1, new ParallelGrid.RangeAction() {
+			public void run(int from, int to) {
+				ParallelGrid.forEachCell(from, to, cols, action);
+			}
+		}, pool);
+	}
+	
+	/*
+	 * Sets every cell of dest, which must be a different grid of the same size,
+	 * to the kernel's value for that cell of this grid, in parallel on a shared
+	 * pool.  The result doesn't depend on how the work is split among threads,
+	 * since the kernel reads only this grid and each cell of dest is set once.
+	 */
+	public <R> void parallelMap(Grid<R> dest, Kernel<E, R> kernel) {
+		parallelMap(dest, kernel, ParallelGrid.getDefaultPool());
+	}
+	
+	/*
+	 * Like parallelMap(dest, kernel), but on the given pool.
+	 */
+	public <R> void parallelMap(Grid<R> dest, final Kernel<E, R> kernel, ForkJoinPool pool) {
+		if (dest == this) {
+			throw new IllegalArgumentException("destination must be a different grid");
+		} else if (dest.rows != rows || dest.cols != cols) {
+			throw new IllegalArgumentException("destination is " + dest.rows + "x" + dest.cols
+					+ " but should be " + rows + "x" + cols);
+		}
+		final Grid<E> source = this;
+		final R[][] out = dest.array;
+		final int cols = this.cols;
+		ParallelGrid.forEachRange(size(), 1, new ParallelGrid.RangeAction() {
+			public void run(int from, int to) {
+				int row = from / cols;
+				int col = from % cols;
+				for (int i = from; i < to; i++) {
+					out[row][col] = kernel.map(source, row, col);
+					if (++col == cols) {
+						col = 0;
+						row++;
+					}
+				}
+			}
+		}, pool);
+	}
+	
 	@SuppressWarnings("unchecked")
 	public void resize(int rows, int cols) {
 		if (rows < 0 || cols < 0) {
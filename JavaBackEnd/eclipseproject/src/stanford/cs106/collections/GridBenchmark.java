@@ -0,0 +1,135 @@
+/*
+ * Rough timing of a Game of Life step on the generic Grid versus the
+ * primitive grids.  The Grid<Boolean> version is written the way CS 106
+ * Life solutions usually are: a new grid per generation and a bounds-checked
+ * neighbor count.  The primitive versions double-buffer with swap.
+ *
+ * @author Marty Stepp
+ * @version 2015/05/28
+ */
+
+package stanford.cs106.collections;
+
+import java.util.Random;
+
+public class GridBenchmark {
+	private static final int SIZE = 1024;
+	private static final int GENERATIONS = 40;
+	private static final int WARMUP_GENERATIONS = 10;
+
+	public static void main(String[] args) {
+		Random rand = new Random(42);
+		boolean[][] start = new boolean[SIZE][SIZE];
+		for (int r = 0; r < SIZE; r++) {
+			for (int c = 0; c < SIZE; c++) {
+				start[r][c] = rand.nextInt(10) < 3;
+			}
+		}
+
+		Grid<Boolean> grid = new Grid<Boolean>(SIZE, SIZE);
+		BooleanGrid bools = new BooleanGrid(SIZE, SIZE);
+		IntGrid ints = new IntGrid(SIZE, SIZE);
+		for (int r = 0; r < SIZE; r++) {
+			for (int c = 0; c < SIZE; c++) {
+				grid.set(r, c, start[r][c]);
+				bools.set(r, c, start[r][c]);
+				ints.set(r, c, start[r][c] ? 1 : 0);
+			}
+		}
+		BooleanGrid boolsNext = new BooleanGrid(SIZE, SIZE);
+		IntGrid intsNext = new IntGrid(SIZE, SIZE);
+
+		for (int i = 0; i < WARMUP_GENERATIONS; i++) {
+			grid = tick(grid);
+			tick(bools, boolsNext);
+			bools.swap(boolsNext);
+			tick(ints, intsNext);
+			ints.swap(intsNext);
+		}
+
+		long startNanos = System.nanoTime();
+		for (int i = 0; i < GENERATIONS; i++) {
+			grid = tick(grid);
+		}
+		report("Grid<Boolean>", startNanos, count(grid));
+
+		startNanos = System.nanoTime();
+		for (int i = 0; i < GENERATIONS; i++) {
+			tick(bools, boolsNext);
+			bools.swap(boolsNext);
+		}
+		report("BooleanGrid", startNanos, bools.count());
+
+		startNanos = System.nanoTime();
+		for (int i = 0; i < GENERATIONS; i++) {
+			tick(ints, intsNext);
+			ints.swap(intsNext);
+		}
+		report("IntGrid", startNanos, count(ints));
+	}
+
+	private static Grid<Boolean> tick(Grid<Boolean> grid) {
+		Grid<Boolean> next = new Grid<Boolean>(grid.numRows(), grid.numCols());
+		for (int row = 0; row < grid.numRows(); row++) {
+			for (int col = 0; col < grid.numCols(); col++) {
+				int neighbors = 0;
+				for (int r = row - 1; r <= row + 1; r++) {
+					for (int c = col - 1; c <= col + 1; c++) {
+						if (grid.inBounds(r, c) && !(r == row && c == col) && grid.get(r, c)) {
+							neighbors++;
+						}
+					}
+				}
+				next.set(row, col, neighbors == 3 || (neighbors == 2 && grid.get(row, col)));
+			}
+		}
+		return next;
+	}
+
+	private static void tick(BooleanGrid grid, BooleanGrid next) {
+		for (int row = 0; row < grid.numRows(); row++) {
+			for (int col = 0; col < grid.numCols(); col++) {
+				int neighbors = grid.countNeighbors(row, col);
+				next.set(row, col, neighbors == 3 || (neighbors == 2 && grid.get(row, col)));
+			}
+		}
+	}
+
+	private static void tick(IntGrid grid, IntGrid next) {
+		int[] cells = grid.getArray();
+		int[] nextCells = next.getArray();
+		for (int row = 0; row < grid.numRows(); row++) {
+			for (int col = 0, i = grid.index(row, 0); col < grid.numCols(); col++, i++) {
+				int neighbors = grid.sumNeighbors(row, col);
+				nextCells[i] = (neighbors == 3 || (neighbors == 2 && cells[i] != 0)) ? 1 : 0;
+			}
+		}
+	}
+
+	private static int count(Grid<Boolean> grid) {
+		int count = 0;
+		for (int r = 0; r < grid.numRows(); r++) {
+			for (int c = 0; c < grid.numCols(); c++) {
+				if (grid.get(r, c)) {
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	private static int count(IntGrid grid) {
+		int count = 0;
+		for (int cell : grid.getArray()) {
+			count += cell;
+		}
+		return count;
+	}
+
+	private static void report(String name, long startNanos, int population) {
+		double ms = (System.nanoTime() - startNanos) / 1e6 / GENERATIONS;
+		double mcells = (double) SIZE * SIZE / 1e6 / (ms / 1000);
+		System.out.printf("%-16s %9.2f ms/generation %10.1f Mcell/s   (population %d)%n",
+				name, ms, mcells, population);
+	}
+}
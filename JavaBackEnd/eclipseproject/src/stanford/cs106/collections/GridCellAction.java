@@ -0,0 +1,14 @@
+/*
+ * Work to be done on one cell of a grid, for the grids' parallelForEach
+ * methods.  Calls for different cells may run at the same time on different
+ * threads, so anything shared between cells must be thread-safe.
+ *
+ * @author Marty Stepp
+ * @version 2015/05/28
+ */
+
+package stanford.cs106.collections;
+
+public interface GridCellAction {
+	public void run(int row, int col);
+}
@@ -0,0 +1,488 @@
+/*
+ * @author Marty Stepp
+ * @version 2015/06/06
+ */
+
+package stanford.cs106.collections;
+
+import java.util.*;
+
+/**
+ * An IndexedTable is a hash-based Table that keeps each cell both in a map of
+ * rows and in a map of columns, so that column queries are as fast as row
+ * queries: column(c) and containsColumn(c) take constant time, where
+ * HashBasedTable must look through every row.  It can also keep a count of
+ * each value stored, so that containsValue takes constant time as well.
+ * The price is about twice the memory per cell and somewhat slower put and
+ * remove.
+ *
+ * <p>
+ * row(r) and column(c) return live views that can be read and changed like
+ * any other map; changes made through them are made to the table, and they
+ * see later changes to the table.  The same is true of the maps in rowMap()
+ * and columnMap(), although those outer maps can't be changed themselves.
+ * A view of a row or column with no cells is empty rather than null.
+ */
+public class IndexedTable<R, C, V> implements Table<R, C, V> {
+	private final Map<R, Map<C, V>> rows;       // [row key] -> [column key] -> value
+	private final Map<C, Map<R, V>> columns;    // [column key] -> [row key] -> value
+	private final Map<V, Integer> valueCounts;  // [value] -> number of cells, or null if not indexed
+	private int size;
+
+	/**
+	 * Returns a new empty table that indexes its rows and columns.
+	 */
+	public static <R, C, V> IndexedTable<R, C, V> create() {
+		return new IndexedTable<R, C, V>(false);
+	}
+
+	/**
+	 * Returns a new empty table that indexes its rows and columns, and also
+	 * its values if indexValues is true.
+	 */
+	public static <R, C, V> IndexedTable<R, C, V> create(boolean indexValues) {
+		return new IndexedTable<R, C, V>(indexValues);
+	}
+
+	/**
+	 * Constructs a new empty table that indexes its rows and columns, and also
+	 * its values if indexValues is true.
+	 */
+	public IndexedTable(boolean indexValues) {
+		rows = new HashMap<R, Map<C, V>>();
+		columns = new HashMap<C, Map<R, V>>();
+		valueCounts = indexValues ? new HashMap<V, Integer>() : null;
+	}
+
+	public void clear() {
+		rows.clear();
+		columns.clear();
+		if (valueCounts != null) {
+			valueCounts.clear();
+		}
+		size = 0;
+	}
+
+	/**
+	 * Returns a live view of the given column, as a map from row keys to values.
+	 */
+	public Map<R, V> column(C columnKey) {
+		return new ColumnView(columnKey);
+	}
+
+	/**
+	 * Returns the set of column keys that have at least one cell.  The set
+	 * can't be changed, but sees later changes to the table.
+	 */
+	public Set<C> columnKeySet() {
+		return Collections.unmodifiableSet(columns.keySet());
+	}
+
+	/**
+	 * Returns a map from each column key to a live view of that column.
+	 * The map can't be changed, but the column views can.
+	 */
+	public Map<C, Map<R, V>> columnMap() {
+		return new LineMap<C, Map<R, V>>(columns) {
+			protected Map<R, V> view(C columnKey) {
+				return new ColumnView(columnKey);
+			}
+		};
+	}
+
+	public boolean contains(Object rowKey, Object columnKey) {
+		Map<C, V> row = rows.get(rowKey);
+		return row != null && row.containsKey(columnKey);
+	}
+
+	public boolean containsColumn(Object columnKey) {
+		return columns.containsKey(columnKey);
+	}
+
+	public boolean containsRow(Object rowKey) {
+		return rows.containsKey(rowKey);
+	}
+
+	/**
+	 * Returns true if any cell holds the given value.  Takes constant time if
+	 * this table indexes its values, and otherwise looks through every cell.
+	 */
+	public boolean containsValue(Object value) {
+		if (valueCounts != null) {
+			return valueCounts.containsKey(value);
+		}
+		for (Map<C, V> row : rows.values()) {
+			if (row.containsValue(value)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public V get(Object rowKey, Object columnKey) {
+		Map<C, V> row = rows.get(rowKey);
+		return row == null ? null : row.get(columnKey);
+	}
+
+	/**
+	 * Returns true if this table indexes its values.
+	 */
+	public boolean isValueIndexed() {
+		return valueCounts != null;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public V put(R rowKey, C columnKey, V value) {
+		Map<C, V> row = rows.get(rowKey);
+		if (row == null) {
+			row = new HashMap<C, V>();
+			rows.put(rowKey, row);
+		}
+		Map<R, V> column = columns.get(columnKey);
+		if (column == null) {
+			column = new HashMap<R, V>();
+			columns.put(columnKey, column);
+		}
+		boolean existed = row.containsKey(columnKey);
+		V old = row.put(columnKey, value);
+		column.put(rowKey, value);
+		if (existed) {
+			removeValue(old);
+		} else {
+			size++;
+		}
+		addValue(value);
+		return old;
+	}
+
+	public V remove(Object rowKey, Object columnKey) {
+		Map<C, V> row = rows.get(rowKey);
+		if (row == null || !row.containsKey(columnKey)) {
+			return null;
+		}
+		V old = row.remove(columnKey);
+		if (row.isEmpty()) {
+			rows.remove(rowKey);
+		}
+		removeFromColumn(rowKey, columnKey);
+		removeValue(old);
+		size--;
+		return old;
+	}
+
+	/**
+	 * Returns a live view of the given row, as a map from column keys to values.
+	 */
+	public Map<C, V> row(R rowKey) {
+		return new RowView(rowKey);
+	}
+
+	/**
+	 * Returns the set of row keys that have at least one cell.  The set can't
+	 * be changed, but sees later changes to the table.
+	 */
+	public Set<R> rowKeySet() {
+		return Collections.unmodifiableSet(rows.keySet());
+	}
+
+	/**
+	 * Returns a map from each row key to a live view of that row.
+	 * The map can't be changed, but the row views can.
+	 */
+	public Map<R, Map<C, V>> rowMap() {
+		return new LineMap<R, Map<C, V>>(rows) {
+			protected Map<C, V> view(R rowKey) {
+				return new RowView(rowKey);
+			}
+		};
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public String toString() {
+		return rows.toString();
+	}
+
+	/**
+	 * Returns all values in the table, row by row.  The collection can't be
+	 * changed, but sees later changes to the table.
+	 */
+	public Collection<V> values() {
+		return new AbstractCollection<V>() {
+			public Iterator<V> iterator() {
+				final Iterator<Map<C, V>> rowIterator = rows.values().iterator();
+				return new Iterator<V>() {
+					private Iterator<V> cells = Collections.<V>emptySet().iterator();
+
+					public boolean hasNext() {
+						while (!cells.hasNext() && rowIterator.hasNext()) {
+							cells = rowIterator.next().values().iterator();
+						}
+						return cells.hasNext();
+					}
+
+					public V next() {
+						if (!hasNext()) {
+							throw new NoSuchElementException();
+						}
+						return cells.next();
+					}
+
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+
+			public boolean contains(Object value) {
+				return containsValue(value);
+			}
+
+			public int size() {
+				return size;
+			}
+		};
+	}
+
+	private void addValue(V value) {
+		if (valueCounts != null) {
+			Integer count = valueCounts.get(value);
+			valueCounts.put(value, count == null ? 1 : count + 1);
+		}
+	}
+
+	private void removeValue(V value) {
+		if (valueCounts != null) {
+			Integer count = valueCounts.get(value);
+			if (count == null || count <= 1) {
+				valueCounts.remove(value);
+			} else {
+				valueCounts.put(value, count - 1);
+			}
+		}
+	}
+
+	private void removeFromColumn(Object rowKey, Object columnKey) {
+		Map<R, V> column = columns.get(columnKey);
+		column.remove(rowKey);
+		if (column.isEmpty()) {
+			columns.remove(columnKey);
+		}
+	}
+
+	private void removeFromRow(Object rowKey, Object columnKey) {
+		Map<C, V> row = rows.get(rowKey);
+		row.remove(columnKey);
+		if (row.isEmpty()) {
+			rows.remove(rowKey);
+		}
+	}
+
+	/*
+	 * An unmodifiable map from row or column keys to views of those rows or
+	 * columns, for rowMap and columnMap.
+	 */
+	private abstract static class LineMap<K, M> extends AbstractMap<K, M> {
+		private final Map<K, ?> lines;
+
+		public LineMap(Map<K, ?> lines) {
+			this.lines = lines;
+		}
+
+		protected abstract M view(K key);
+
+		@SuppressWarnings("unchecked")
+		public M get(Object key) {
+			return lines.containsKey(key) ? view((K) key) : null;
+		}
+
+		public boolean containsKey(Object key) {
+			return lines.containsKey(key);
+		}
+
+		public int size() {
+			return lines.size();
+		}
+
+		public Set<Map.Entry<K, M>> entrySet() {
+			return new AbstractSet<Map.Entry<K, M>>() {
+				public Iterator<Map.Entry<K, M>> iterator() {
+					final Iterator<K> keys = lines.keySet().iterator();
+					return new Iterator<Map.Entry<K, M>>() {
+						public boolean hasNext() {
+							return keys.hasNext();
+						}
+
+						public Map.Entry<K, M> next() {
+							K key = keys.next();
+							return new AbstractMap.SimpleImmutableEntry<K, M>(key, view(key));
+						}
+
+						public void remove() {
+							throw new UnsupportedOperationException();
+						}
+					};
+				}
+
+				public int size() {
+					return lines.size();
+				}
+			};
+		}
+	}
+
+	/*
+	 * A live view of one row or column.  Reads go to the line's map in rows or
+	 * columns; writes go through the table, which keeps both maps and the
+	 * value index up to date.
+	 */
+	private abstract class LineView<K> extends AbstractMap<K, V> {
+		// the line's map, or null if the line has no cells
+		protected abstract Map<K, V> line();
+		protected abstract V putCell(K key, V value);
+		protected abstract V removeCell(Object key);
+		// removes the cell's entries from everything but the line's own map
+		protected abstract void unlinkCell(K key, V value);
+
+		public void clear() {
+			Map<K, V> line = line();
+			if (line != null) {
+				for (K key : new ArrayList<K>(line.keySet())) {
+					removeCell(key);
+				}
+			}
+		}
+
+		public boolean containsKey(Object key) {
+			Map<K, V> line = line();
+			return line != null && line.containsKey(key);
+		}
+
+		public V get(Object key) {
+			Map<K, V> line = line();
+			return line == null ? null : line.get(key);
+		}
+
+		public V put(K key, V value) {
+			return putCell(key, value);
+		}
+
+		public V remove(Object key) {
+			return removeCell(key);
+		}
+
+		public int size() {
+			Map<K, V> line = line();
+			return line == null ? 0 : line.size();
+		}
+
+		public Set<Map.Entry<K, V>> entrySet() {
+			return new AbstractSet<Map.Entry<K, V>>() {
+				public Iterator<Map.Entry<K, V>> iterator() {
+					Map<K, V> line = line();
+					if (line == null) {
+						return Collections.<Map.Entry<K, V>>emptySet().iterator();
+					}
+					final Iterator<Map.Entry<K, V>> entries = line.entrySet().iterator();
+					return new Iterator<Map.Entry<K, V>>() {
+						private Map.Entry<K, V> current;
+
+						public boolean hasNext() {
+							return entries.hasNext();
+						}
+
+						public Map.Entry<K, V> next() {
+							current = entries.next();
+							final Map.Entry<K, V> entry = current;
+							return new AbstractMap.SimpleEntry<K, V>(entry) {
+								private static final long serialVersionUID = 1L;
+
+								public V setValue(V value) {
+									super.setValue(value);
+									return putCell(entry.getKey(), value);
+								}
+							};
+						}
+
+						public void remove() {
+							if (current == null) {
+								throw new IllegalStateException();
+							}
+							entries.remove();
+							unlinkCell(current.getKey(), current.getValue());
+							current = null;
+						}
+					};
+				}
+
+				public int size() {
+					return LineView.this.size();
+				}
+			};
+		}
+	}
+
+	private class RowView extends LineView<C> {
+		private final R rowKey;
+
+		public RowView(R rowKey) {
+			this.rowKey = rowKey;
+		}
+
+		protected Map<C, V> line() {
+			return rows.get(rowKey);
+		}
+
+		protected V putCell(C columnKey, V value) {
+			return IndexedTable.this.put(rowKey, columnKey, value);
+		}
+
+		protected V removeCell(Object columnKey) {
+			return IndexedTable.this.remove(rowKey, columnKey);
+		}
+
+		protected void unlinkCell(C columnKey, V value) {
+			// the row's own map may now be empty, but is still being iterated
+			if (rows.get(rowKey).isEmpty()) {
+				rows.remove(rowKey);
+			}
+			removeFromColumn(rowKey, columnKey);
+			removeValue(value);
+			size--;
+		}
+	}
+
+	private class ColumnView extends LineView<R> {
+		private final C columnKey;
+
+		public ColumnView(C columnKey) {
+			this.columnKey = columnKey;
+		}
+
+		protected Map<R, V> line() {
+			return columns.get(columnKey);
+		}
+
+		protected V putCell(R rowKey, V value) {
+			return IndexedTable.this.put(rowKey, columnKey, value);
+		}
+
+		protected V removeCell(Object rowKey) {
+			return IndexedTable.this.remove(rowKey, columnKey);
+		}
+
+		protected void unlinkCell(R rowKey, V value) {
+			if (columns.get(columnKey).isEmpty()) {
+				columns.remove(columnKey);
+			}
+			removeFromRow(rowKey, columnKey);
+			removeValue(value);
+			size--;
+		}
+	}
+}
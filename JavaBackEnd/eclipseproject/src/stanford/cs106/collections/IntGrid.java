@@ -0,0 +1,190 @@
+/*
+ * A grid of ints stored in one flat array, for simulations and other code
+ * that would otherwise use a Grid<Integer>.  Alongside Grid's methods it has
+ * bulk fills and copies, swap for double-buffering, and neighbor sums that
+ * skip bounds checks away from the edges.
+ *
+ * @author Marty Stepp
+ * @version 2015/05/28
+ */
+
+package stanford.cs106.collections;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+public class IntGrid extends AbstractPrimitiveGrid {
+	private int[] array;
+	
+	/*
+	 * Like Grid.Kernel, for a new IntGrid computed from this one.
+	 */
+	public interface Kernel {
+		public int map(IntGrid source, int row, int col);
+	}
+	
+	public IntGrid(int rows, int cols) {
+		resize(rows, cols);
+	}
+	
+	protected void allocate(int size) {
+		array = new int[size];
+	}
+	
+	/*
+	 * Copies a numRows x numCols region of src starting at (srcRow, srcCol)
+	 * into this grid starting at (row, col).  src may be this grid.
+	 */
+	public void copyRegion(IntGrid src, int srcRow, int srcCol, int row, int col, int numRows, int numCols) {
+		src.checkRegion(srcRow, srcCol, numRows, numCols);
+		checkRegion(row, col, numRows, numCols);
+		if (copyBackwards(src, this, srcRow, row)) {
+			for (int r = numRows - 1; r >= 0; r--) {
+				System.arraycopy(src.array, src.index(srcRow + r, srcCol), array, index(row + r, col), numCols);
+			}
+		} else {
+			for (int r = 0; r < numRows; r++) {
+				System.arraycopy(src.array, src.index(srcRow + r, srcCol), array, index(row + r, col), numCols);
+			}
+		}
+	}
+	
+	/*
+	 * Makes this grid the same size as the other and copies all of its cells.
+	 */
+	public void copyFrom(IntGrid other) {
+		if (rows != other.rows || cols != other.cols) {
+			resize(other.rows, other.cols);
+		}
+		System.arraycopy(other.array, 0, array, 0, array.length);
+	}
+	
+	public void fill(int value) {
+		Arrays.fill(array, value);
+	}
+	
+	public void fillRegion(int row, int col, int numRows, int numCols, int value) {
+		checkRegion(row, col, numRows, numCols);
+		for (int r = row; r < row + numRows; r++) {
+			int start = index(r, col);
+			Arrays.fill(array, start, start + numCols, value);
+		}
+	}
+	
+	public int get(int row, int col) {
+		checkIndex(row, col);
+		return array[row * cols + col];
+	}
+	
+	/*
+	 * Returns the grid's backing array, in row-major order; see index().
+	 */
+	public int[] getArray() {
+		return array;
+	}
+	
+	/*
+	 * Copies the given row into dest, which must hold at least numCols() values.
+	 */
+	public void getRow(int row, int[] dest) {
+		checkIndex(row, 0);
+		System.arraycopy(array, row * cols, dest, 0, cols);
+	}
+	
+	/*
+	 * Sets every cell of dest to the kernel's value for that cell of this grid,
+	 * in parallel on a shared pool.  Because the kernel reads only this grid and
+	 * each cell of dest is written once, the result doesn't depend on how the
+	 * work is split among threads.
+	 */
+	public void parallelMap(IntGrid dest, Kernel kernel) {
+		parallelMap(dest, kernel, ParallelGrid.getDefaultPool());
+	}
+	
+	/*
+	 * Like parallelMap(dest, kernel), but on the given pool.
+	 */
+	public void parallelMap(IntGrid dest, final Kernel kernel, ForkJoinPool pool) {
+		checkMapDestination(dest);
+		final IntGrid source = this;
+		final int[] out = dest.array;
+		final int cols = this.cols;
+		ParallelGrid.forEachRange(size(), 1, new ParallelGrid.RangeAction() {
+			public void run(int from, int to) {
+				int row = from / cols;
+				int col = from % cols;
+				for (int i = from; i < to; i++) {
+					out[i] = kernel.map(source, row, col);
+					if (++col == cols) {
+						col = 0;
+						row++;
+					}
+				}
+			}
+		}, pool);
+	}
+	
+	public void set(int row, int col, int value) {
+		checkIndex(row, col);
+		array[row * cols + col] = value;
+	}
+	
+	/*
+	 * Sets the given row from values, which must hold at least numCols() values.
+	 */
+	public void setRow(int row, int[] values) {
+		checkIndex(row, 0);
+		System.arraycopy(values, 0, array, row * cols, cols);
+	}
+	
+	/*
+	 * Returns the sum of the 8 cells around the given cell, counting cells
+	 * past the edges as 0.
+	 */
+	public int sumNeighbors(int row, int col) {
+		if (isInterior(row, col)) {
+			int above = (row - 1) * cols + col;
+			int i = above + cols;
+			int below = i + cols;
+			return array[above - 1] + array[above] + array[above + 1]
+					+ array[i - 1] + array[i + 1]
+					+ array[below - 1] + array[below] + array[below + 1];
+		}
+		checkIndex(row, col);
+		int sum = 0;
+		for (int r = row - 1; r <= row + 1; r++) {
+			for (int c = col - 1; c <= col + 1; c++) {
+				if ((r != row || c != col) && inBounds(r, c)) {
+					sum += array[r * cols + c];
+				}
+			}
+		}
+		return sum;
+	}
+	
+	/*
+	 * Exchanges the contents and sizes of this grid and the other, without
+	 * copying; useful for double-buffering a grid and its next generation.
+	 */
+	public void swap(IntGrid other) {
+		int[] temp = array;
+		array = other.array;
+		other.array = temp;
+		swapSize(other);
+	}
+	
+	public String toString() {
+		StringBuilder sb = new StringBuilder("[");
+		for (int r = 0; r < rows; r++) {
+			sb.append(r == 0 ? "[" : ", [");
+			for (int c = 0; c < cols; c++) {
+				if (c > 0) {
+					sb.append(", ");
+				}
+				sb.append(array[r * cols + c]);
+			}
+			sb.append("]");
+		}
+		return sb.append("]").toString();
+	}
+}
@@ -0,0 +1,402 @@
+/*
+ * @author Marty Stepp
+ * @version 2015/06/06
+ */
+
+package stanford.cs106.collections;
+
+import java.util.Arrays;
+
+/**
+ * An IntMultimap maps int keys to lists of int values, such as the vertex
+ * numbers of a graph to their neighbors, or word numbers to the documents
+ * they appear in.  Unlike a Multimap of Integers, it stores no objects per
+ * key or per value: the keys are held in an open-addressing hash table, and
+ * the values of all keys in one int array, each key's values next to each
+ * other in the order they were added.  A key's values may repeat.
+ *
+ * <p>
+ * An IntMultimap can also keep the reverse mapping from each value to the
+ * keys that have it, so that containsValue and keysWithValue take constant
+ * time.  This costs about as much memory again, and makes remove slower.
+ *
+ * <p>
+ * The forEach methods visit values without creating any objects.
+ */
+public class IntMultimap extends AbstractFlatMultimap {
+	/**
+	 * Something to be done for each key/value pair visited by forEach.
+	 */
+	public interface Visitor {
+		public void visit(int key, int value);
+	}
+
+	private static final int[] EMPTY = new int[0];
+
+	private int[] values = EMPTY;
+	private int[] hashKeys = new int[16];    // open addressing with linear probing
+	private int[] hashSlots = new int[16];   // [bucket] -> key's slot + 1, or 0 if empty
+	private int[] slotKeys = new int[16];    // [slot] -> key
+	private int keyCount;
+	private final IntMultimap reverse;       // [value] -> keys, or null if not indexed
+
+	/**
+	 * Returns a new empty multimap.
+	 */
+	public static IntMultimap create() {
+		return new IntMultimap(false);
+	}
+
+	/**
+	 * Returns a new empty multimap, which also keeps a reverse index from
+	 * values to keys if indexValues is true.
+	 */
+	public static IntMultimap create(boolean indexValues) {
+		return new IntMultimap(indexValues);
+	}
+
+	/**
+	 * Constructs a new empty multimap.
+	 */
+	public IntMultimap() {
+		this(false);
+	}
+
+	/**
+	 * Constructs a new empty multimap, which also keeps a reverse index from
+	 * values to keys if indexValues is true.
+	 */
+	public IntMultimap(boolean indexValues) {
+		reverse = indexValues ? new IntMultimap(false) : null;
+	}
+
+	public void clear() {
+		clearSlots();
+		Arrays.fill(hashSlots, 0);
+		keyCount = 0;
+		if (reverse != null) {
+			reverse.clear();
+		}
+	}
+
+	public boolean containsEntry(int key, int value) {
+		return indexOf(findSlot(key), value) >= 0;
+	}
+
+	public boolean containsKey(int key) {
+		return findSlot(key) >= 0;
+	}
+
+	/**
+	 * Returns true if any key has the given value.  Takes constant time if
+	 * this multimap has a reverse index, and otherwise looks at every value.
+	 */
+	public boolean containsValue(int value) {
+		if (reverse != null) {
+			return reverse.containsKey(value);
+		}
+		for (int slot = 0; slot < slotCount(); slot++) {
+			if (!isFree(slot) && indexOf(slot, value) >= 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the number of values the given key has.
+	 */
+	public int count(int key) {
+		int slot = findSlot(key);
+		return slot < 0 ? 0 : length(slot);
+	}
+
+	/**
+	 * Calls the visitor for every key/value pair, key by key.
+	 */
+	public void forEach(Visitor visitor) {
+		for (int slot = 0; slot < slotCount(); slot++) {
+			if (!isFree(slot)) {
+				visit(slot, visitor);
+			}
+		}
+	}
+
+	/**
+	 * Calls the visitor for each of the given key's values, in order.
+	 */
+	public void forEach(int key, Visitor visitor) {
+		int slot = findSlot(key);
+		if (slot >= 0) {
+			visit(slot, visitor);
+		}
+	}
+
+	/**
+	 * Returns a new array of the given key's values, in the order they were
+	 * added; empty if the key has none.
+	 */
+	public int[] get(int key) {
+		int slot = findSlot(key);
+		if (slot < 0) {
+			return EMPTY;
+		}
+		return Arrays.copyOfRange(values, start(slot), start(slot) + length(slot));
+	}
+
+	public boolean isEmpty() {
+		return keyCount == 0;
+	}
+
+	/**
+	 * Returns true if this multimap keeps a reverse index from values to keys.
+	 */
+	public boolean isValueIndexed() {
+		return reverse != null;
+	}
+
+	/**
+	 * Returns the number of keys that have at least one value.
+	 */
+	public int keyCount() {
+		return keyCount;
+	}
+
+	/**
+	 * Returns a new array of all keys that have at least one value.
+	 */
+	public int[] keys() {
+		int[] keys = new int[keyCount];
+		int i = 0;
+		for (int slot = 0; slot < slotCount(); slot++) {
+			if (!isFree(slot)) {
+				keys[i++] = slotKeys[slot];
+			}
+		}
+		return keys;
+	}
+
+	/**
+	 * Returns a new array of the keys that have the given value, once for each
+	 * time they have it.  Takes time in proportion to the number of such keys
+	 * if this multimap has a reverse index, and otherwise looks at every value.
+	 */
+	public int[] keysWithValue(int value) {
+		if (reverse != null) {
+			return reverse.get(value);
+		}
+		int[] keys = EMPTY;
+		int count = 0;
+		for (int slot = 0; slot < slotCount(); slot++) {
+			if (!isFree(slot)) {
+				for (int i = start(slot), end = i + length(slot); i < end; i++) {
+					if (values[i] == value) {
+						if (count == keys.length) {
+							keys = Arrays.copyOf(keys, Math.max(4, 2 * count));
+						}
+						keys[count++] = slotKeys[slot];
+					}
+				}
+			}
+		}
+		return Arrays.copyOf(keys, count);
+	}
+
+	/**
+	 * Adds the given value to the end of the key's values.  Always returns true.
+	 */
+	public boolean put(int key, int value) {
+		int slot = findSlot(key);
+		if (slot < 0) {
+			slot = addKey(key);
+		}
+		int index = append(slot);   // may replace values, so call it first
+		values[index] = value;
+		if (reverse != null) {
+			reverse.put(value, key);
+		}
+		return true;
+	}
+
+	/**
+	 * Removes the first occurrence of the given value from the key's values,
+	 * returning true if there was one.
+	 */
+	public boolean remove(int key, int value) {
+		int slot = findSlot(key);
+		int index = indexOf(slot, value);
+		if (index < 0) {
+			return false;
+		}
+		removeAt(slot, index - start(slot));
+		if (length(slot) == 0) {
+			removeKey(key);
+			freeSlot(slot);
+		}
+		if (reverse != null) {
+			reverse.remove(value, key);
+		}
+		return true;
+	}
+
+	/**
+	 * Removes the key and all of its values, and returns them in a new array.
+	 */
+	public int[] removeAll(int key) {
+		int slot = findSlot(key);
+		if (slot < 0) {
+			return EMPTY;
+		}
+		int[] removed = get(key);
+		removeKey(key);
+		freeSlot(slot);
+		if (reverse != null) {
+			for (int value : removed) {
+				reverse.remove(value, key);
+			}
+		}
+		return removed;
+	}
+
+	/**
+	 * Returns the number of key/value pairs.
+	 */
+	public int size() {
+		return valueCount();
+	}
+
+	/**
+	 * Returns a string of the form "{key=[value, ...], ...}".
+	 */
+	public String toString() {
+		StringBuilder sb = new StringBuilder("{");
+		for (int slot = 0; slot < slotCount(); slot++) {
+			if (!isFree(slot)) {
+				if (sb.length() > 1) {
+					sb.append(", ");
+				}
+				sb.append(slotKeys[slot]).append("=[");
+				for (int i = start(slot), end = i + length(slot); i < end; i++) {
+					if (i > start(slot)) {
+						sb.append(", ");
+					}
+					sb.append(values[i]);
+				}
+				sb.append(']');
+			}
+		}
+		return sb.append('}').toString();
+	}
+
+	protected Object valueArray() {
+		return values;
+	}
+
+	protected void setValueArray(Object values) {
+		this.values = (int[]) values;
+	}
+
+	protected Object newValueArray(int length) {
+		return new int[length];
+	}
+
+	protected void clearValueArray(int from, int to) {
+		// nothing to release
+	}
+
+	private int addKey(int key) {
+		if (2 * (keyCount + 1) > hashKeys.length) {
+			rehash(2 * hashKeys.length);
+		}
+		int slot = newSlot();
+		if (slot == slotKeys.length) {
+			slotKeys = Arrays.copyOf(slotKeys, 2 * slotKeys.length);
+		}
+		slotKeys[slot] = key;
+		int mask = hashKeys.length - 1;
+		int bucket = hash(key) & mask;
+		while (hashSlots[bucket] != 0) {
+			bucket = (bucket + 1) & mask;
+		}
+		hashKeys[bucket] = key;
+		hashSlots[bucket] = slot + 1;
+		keyCount++;
+		return slot;
+	}
+
+	private int findSlot(int key) {
+		int mask = hashKeys.length - 1;
+		for (int bucket = hash(key) & mask; hashSlots[bucket] != 0; bucket = (bucket + 1) & mask) {
+			if (hashKeys[bucket] == key) {
+				return hashSlots[bucket] - 1;
+			}
+		}
+		return -1;
+	}
+
+	// returns the index in values of the first occurrence of value in the slot, or -1
+	private int indexOf(int slot, int value) {
+		if (slot >= 0) {
+			for (int i = start(slot), end = i + length(slot); i < end; i++) {
+				if (values[i] == value) {
+					return i;
+				}
+			}
+		}
+		return -1;
+	}
+
+	private void rehash(int buckets) {
+		int[] oldKeys = hashKeys;
+		int[] oldSlots = hashSlots;
+		hashKeys = new int[buckets];
+		hashSlots = new int[buckets];
+		int mask = buckets - 1;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldSlots[i] != 0) {
+				int bucket = hash(oldKeys[i]) & mask;
+				while (hashSlots[bucket] != 0) {
+					bucket = (bucket + 1) & mask;
+				}
+				hashKeys[bucket] = oldKeys[i];
+				hashSlots[bucket] = oldSlots[i];
+			}
+		}
+	}
+
+	/*
+	 * Removes the key from the hash table, moving back any later keys in the
+	 * same run of buckets that can now be found sooner, so that no
+	 * "deleted" markers are needed.
+	 */
+	private void removeKey(int key) {
+		int mask = hashKeys.length - 1;
+		int gap = hash(key) & mask;
+		while (hashKeys[gap] != key || hashSlots[gap] == 0) {
+			gap = (gap + 1) & mask;
+		}
+		hashSlots[gap] = 0;
+		for (int bucket = (gap + 1) & mask; hashSlots[bucket] != 0; bucket = (bucket + 1) & mask) {
+			int home = hash(hashKeys[bucket]) & mask;
+			if (((bucket - home) & mask) >= ((bucket - gap) & mask)) {
+				hashKeys[gap] = hashKeys[bucket];
+				hashSlots[gap] = hashSlots[bucket];
+				hashSlots[bucket] = 0;
+				gap = bucket;
+			}
+		}
+		keyCount--;
+	}
+
+	private void visit(int slot, Visitor visitor) {
+		int key = slotKeys[slot];
+		for (int i = start(slot), end = i + length(slot); i < end; i++) {
+			visitor.visit(key, values[i]);
+		}
+	}
+
+	private static int hash(int key) {
+		int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+}
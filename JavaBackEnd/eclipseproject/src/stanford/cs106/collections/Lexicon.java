@@ -1,46 +1,306 @@
-/*
- * @author Marty Stepp
- * @version 2015/05/28
- */
-
-package stanford.cs106.collections;
-
-import java.util.*;
-
-public class Lexicon {
-	private Set<String> words;
-	private Set<String> knownPrefixes;
-	
-	public Lexicon() {
-		words = new HashSet<String>();
-		knownPrefixes = new HashSet<String>();
-		knownPrefixes.add("");
-		for (char c = 'A'; c <= 'Z'; c++) {
-			knownPrefixes.add(String.valueOf(c));
-		}
-	}
-	
-	public void add(String word) {
-		word = word.toUpperCase();
-		words.add(word);
-		for (int i = 2; i <= word.length(); i++) {
-			knownPrefixes.add(word.substring(0, i));
-		}
-	}
-	
-	public boolean contains(String word) {
-		return words.contains(word.toUpperCase());
-	}
-	
-	public boolean containsPrefix(String prefix) {
-		return knownPrefixes.contains(prefix.toUpperCase());
-	}
-	
-	public int size() {
-		return words.size();
-	}
-	
-	public int prefixCount() {
-		return knownPrefixes.size();
-	}
-}
+/*
+ * A set of words that can also tell whether any word starts with a given
+ * prefix, like the Stanford C++ library's Lexicon.  Words are case-insensitive.
+ *
+ * Words can come from a binary DAWG dictionary file (see Dawg), which is
+ * memory-mapped rather than copied onto the heap, or from a text file with one
+ * word per line.  Other words are kept in a trie whose edges are stored in an
+ * open-addressing hash table keyed by parent node and letter, so neither the
+ * words nor their prefixes are kept as Strings, each step of a lookup is a
+ * single probe rather than a scan of the node's children, and lookups do
+ * not allocate.
+ * 
+ * Searches that build words one letter at a time, such as a Boggle solver,
+ * can walk the lexicon in step with their own search instead of asking about
+ * each new String.  A position in the lexicon is a long "state": start from
+ * root(), extend it with step(state, ch), and stop once it is DEAD:
+ * 
+ *   long next = lexicon.step(state, board[r][c]);
+ *   if (next != Lexicon.DEAD) {
+ *       if (lexicon.isWord(next)) { ... }
+ *       // recur on neighbors with next
+ *   }
+ * 
+ * @author Marty Stepp
+ * @version 2015/05/28
+ */
+
+package stanford.cs106.collections;
+
+import java.io.*;
+import java.util.*;
+
+public class Lexicon {
+	public static final long DEAD = -1L;
+	private static final int INITIAL_CAPACITY = 64;
+	
+	private Dawg dawg;   // words loaded from a binary file, or null
+	
+	// trie of other words; node 0 is the root, for the empty prefix
+	private int[] edges;          // slot i holds parent node + 1 (0 if empty), letter, child at 3i..3i+2
+	private int edgeSlots;        // number of slots, a power of 2
+	private boolean[] isWord;     // [node] -> whether the node's prefix is a word
+	private int nodeCount;
+	private int wordCount;
+	private int trieOnlyPrefixCount;   // prefixes of 2+ letters in the trie and not the DAWG
+	
+	public Lexicon() {
+		edgeSlots = 2 * INITIAL_CAPACITY;
+		edges = new int[3 * edgeSlots];
+		isWord = new boolean[INITIAL_CAPACITY];
+		nodeCount = 1;
+	}
+	
+	/*
+	 * Constructs a lexicon holding the words from the given file,
+	 * which may be a binary DAWG file or a text file of words.
+	 */
+	public Lexicon(String filename) throws IOException {
+		this();
+		addWordsFromFile(filename);
+	}
+	
+	public void add(String word) {
+		if (contains(word)) {
+			return;
+		}
+		// uppercase one char at a time as lookups do, not with String.toUpperCase,
+		// which can change a word's length (a German sharp s becomes "SS")
+		int node = 0;
+		int state = dawg == null ? Dawg.DEAD : Dawg.ROOT;
+		for (int i = 0; i < word.length(); i++) {
+			char ch = toUpperCase(word.charAt(i));
+			if (state != Dawg.DEAD) {
+				state = dawg.step(state, ch);
+			}
+			int child = findChild(node, ch);
+			if (child < 0) {
+				child = addChild(node, ch);
+				if (i >= 1 && state == Dawg.DEAD) {
+					trieOnlyPrefixCount++;
+				}
+			}
+			node = child;
+		}
+		isWord[node] = true;
+		wordCount++;
+	}
+	
+	/*
+	 * Adds the words from the given file.  A binary DAWG file can only be
+	 * added to an empty lexicon; a text file holds one word per line.
+	 */
+	public void addWordsFromFile(String filename) throws IOException {
+		File file = new File(filename);
+		if (Dawg.isDawgFile(file)) {
+			if (size() > 0) {
+				throw new IllegalStateException("Binary lexicon files require an empty lexicon: " + filename);
+			}
+			dawg = Dawg.read(file);
+		} else {
+			BufferedReader reader = new BufferedReader(new FileReader(file));
+			try {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					add(line);
+				}
+			} finally {
+				reader.close();
+			}
+		}
+	}
+	
+	public boolean contains(CharSequence word) {
+		if (dawg == null) {
+			int node = findNode(word);
+			return node >= 0 && isWord[node];
+		}
+		long state = root();
+		for (int i = 0, len = word.length(); i < len && state != DEAD; i++) {
+			state = step(state, word.charAt(i));
+		}
+		return isWord(state);
+	}
+	
+	public boolean contains(char[] word, int offset, int length) {
+		if (dawg == null) {
+			int node = findNode(word, offset, length);
+			return node >= 0 && isWord[node];
+		}
+		long state = root();
+		for (int i = offset, end = offset + length; i < end && state != DEAD; i++) {
+			state = step(state, word[i]);
+		}
+		return isWord(state);
+	}
+	
+	public boolean containsPrefix(CharSequence prefix) {
+		int len = prefix.length();
+		if (len <= 1) {
+			return len == 0 || isLetter(toUpperCase(prefix.charAt(0)));
+		}
+		if (dawg == null) {
+			return findNode(prefix) >= 0;
+		}
+		long state = root();
+		for (int i = 0; i < len && state != DEAD; i++) {
+			state = step(state, prefix.charAt(i));
+		}
+		return state != DEAD;
+	}
+	
+	public boolean containsPrefix(char[] prefix, int offset, int length) {
+		if (length <= 1) {
+			return length == 0 || isLetter(toUpperCase(prefix[offset]));
+		}
+		if (dawg == null) {
+			return findNode(prefix, offset, length) >= 0;
+		}
+		long state = root();
+		for (int i = offset, end = offset + length; i < end && state != DEAD; i++) {
+			state = step(state, prefix[i]);
+		}
+		return state != DEAD;
+	}
+	
+	/*
+	 * Returns the state for the empty prefix, from which every word can be
+	 * reached with step.  States are good until a DAWG file is loaded.
+	 */
+	public long root() {
+		return toState(0, dawg == null ? Dawg.DEAD : Dawg.ROOT);
+	}
+	
+	/*
+	 * Returns the state reached by adding the given letter (in either case)
+	 * to the given state's prefix, or DEAD if no word starts that way.
+	 * Unlike containsPrefix, single letters that start no word are DEAD.
+	 */
+	public long step(long state, char ch) {
+		if (state == DEAD) {
+			return DEAD;
+		}
+		ch = toUpperCase(ch);
+		int node = (int) (state >> 32);
+		int dawgState = (int) state;
+		if (node >= 0) {
+			node = findChild(node, ch);
+		}
+		if (dawgState != Dawg.DEAD) {
+			dawgState = dawg.step(dawgState, ch);
+		}
+		return toState(node, dawgState);
+	}
+	
+	/*
+	 * Returns whether the given state's prefix is itself a word.
+	 */
+	public boolean isWord(long state) {
+		if (state == DEAD) {
+			return false;
+		}
+		int node = (int) (state >> 32);
+		int dawgState = (int) state;
+		return (node >= 0 && isWord[node]) || (dawgState != Dawg.DEAD && dawg.isWord(dawgState));
+	}
+	
+	public int size() {
+		return wordCount + (dawg == null ? 0 : dawg.size());
+	}
+	
+	public int prefixCount() {
+		// "", A-Z, and every distinct prefix of two or more letters
+		int count = 27 + trieOnlyPrefixCount;
+		if (dawg != null) {
+			count += dawg.prefixCount() - dawg.firstLetterCount();
+		}
+		return count;
+	}
+	
+	// a state is the trie node in the high half and the DAWG state in the low half
+	private static long toState(int node, int dawgState) {
+		return ((long) node << 32) | (dawgState & 0xffffffffL);
+	}
+	
+	// returns the trie node for the given letters (in either case), or -1 if there is none
+	private int findNode(CharSequence s) {
+		int node = 0;
+		for (int i = 0, len = s.length(); i < len && node >= 0; i++) {
+			node = findChild(node, toUpperCase(s.charAt(i)));
+		}
+		return node;
+	}
+	
+	private int findNode(char[] s, int offset, int length) {
+		int node = 0;
+		for (int i = offset, end = offset + length; i < end && node >= 0; i++) {
+			node = findChild(node, toUpperCase(s[i]));
+		}
+		return node;
+	}
+	
+	private int findChild(int node, char ch) {
+		int mask = edgeSlots - 1;
+		for (int slot = hash(node, ch) & mask; edges[3 * slot] != 0; slot = (slot + 1) & mask) {
+			int i = 3 * slot;
+			if (edges[i] == node + 1 && edges[i + 1] == ch) {
+				return edges[i + 2];
+			}
+		}
+		return -1;
+	}
+	
+	private int addChild(int node, char ch) {
+		if (nodeCount == isWord.length) {
+			isWord = Arrays.copyOf(isWord, 2 * nodeCount);
+		}
+		// there is one edge per node other than the root; keep the table at most half full
+		if (2 * nodeCount > edgeSlots) {
+			rehash(2 * edgeSlots);
+		}
+		int child = nodeCount++;
+		putEdge(node, ch, child);
+		return child;
+	}
+	
+	private void putEdge(int node, char ch, int child) {
+		int mask = edgeSlots - 1;
+		int slot = hash(node, ch) & mask;
+		while (edges[3 * slot] != 0) {
+			slot = (slot + 1) & mask;
+		}
+		edges[3 * slot] = node + 1;
+		edges[3 * slot + 1] = ch;
+		edges[3 * slot + 2] = child;
+	}
+	
+	private void rehash(int slots) {
+		int[] oldEdges = edges;
+		edgeSlots = slots;
+		edges = new int[3 * slots];
+		for (int i = 0; i < oldEdges.length; i += 3) {
+			if (oldEdges[i] != 0) {
+				putEdge(oldEdges[i] - 1, (char) oldEdges[i + 1], oldEdges[i + 2]);
+			}
+		}
+	}
+	
+	private static int hash(int node, char ch) {
+		int h = (node * 31 + ch) * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+	
+	// Character.toUpperCase, with a shortcut for the letters a-z
+	private static char toUpperCase(char ch) {
+		if (ch >= 'a' && ch <= 'z') {
+			return (char) (ch - ('a' - 'A'));
+		} else if (ch < 128) {
+			return ch;
+		}
+		return Character.toUpperCase(ch);
+	}
+	
+	private static boolean isLetter(char ch) {
+		return ch >= 'A' && ch <= 'Z';
+	}
+}
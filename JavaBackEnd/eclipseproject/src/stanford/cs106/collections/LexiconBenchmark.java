@@ -0,0 +1,290 @@
+/*
+ * Rough comparison of the old HashSet-based Lexicon with the current one,
+ * for heap use, load time and lookups/sec.
+ * Pass a word list file (one word per line) to use a real dictionary;
+ * otherwise about 170,000 made-up words are used.
+ *
+ * @author Marty Stepp
+ * @version 2015/05/28
+ */
+
+package stanford.cs106.collections;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+
+public class LexiconBenchmark {
+	private static final int WORD_COUNT = 170000;
+	private static final int QUERY_COUNT = 200000;
+	private static final int REPS = 10;
+	private static final String[] SYLLABLES = {
+		"a", "ab", "ac", "al", "an", "ar", "at", "be", "ca", "co", "con", "de", "di",
+		"en", "er", "es", "ex", "fi", "ge", "in", "is", "la", "le", "li", "lo", "ma",
+		"me", "mi", "na", "ne", "no", "o", "on", "or", "pa", "pe", "pre", "pro", "ra",
+		"re", "ri", "ro", "sa", "se", "si", "st", "ta", "te", "ti", "to", "tr", "un",
+		"ing", "ed", "ly", "ness", "ment", "tion", "s", "er", "est"
+	};
+
+	public static void main(String[] args) throws IOException {
+		List<String> words = args.length > 0 ? readWords(args[0]) : makeWords(WORD_COUNT);
+		File textFile = File.createTempFile("lexicon", ".txt");
+		File dawgFile = File.createTempFile("lexicon", ".dat");
+		textFile.deleteOnExit();
+		dawgFile.deleteOnExit();
+		writeWords(words, textFile);
+		OutputStream out = new FileOutputStream(dawgFile);
+		try {
+			Dawg.build(words).write(out);
+		} finally {
+			out.close();
+		}
+		System.out.println(words.size() + " words; DAWG file is " + dawgFile.length() + " bytes");
+
+		String[] queries = makeQueries(words, QUERY_COUNT, /* prefixes */ false);
+		String[] prefixes = makeQueries(words, QUERY_COUNT, /* prefixes */ true);
+
+		// load each one twice so that the timed load is warmed up
+		loadOld(textFile);
+		long heapBefore = usedHeap();
+		long start = System.nanoTime();
+		OldLexicon old = loadOld(textFile);
+		long loadNanos = System.nanoTime() - start;
+		long heap = usedHeap() - heapBefore;
+		report("old HashSet (text file)", loadNanos, heap, old.size(), old.prefixCount());
+
+		new Lexicon(textFile.getPath());
+		heapBefore = usedHeap();
+		start = System.nanoTime();
+		Lexicon trie = new Lexicon(textFile.getPath());
+		loadNanos = System.nanoTime() - start;
+		heap = usedHeap() - heapBefore;
+		report("new trie (text file)", loadNanos, heap, trie.size(), trie.prefixCount());
+
+		new Lexicon(dawgFile.getPath()).size();
+		heapBefore = usedHeap();
+		start = System.nanoTime();
+		Lexicon dawg = new Lexicon(dawgFile.getPath());
+		dawg.size();
+		loadNanos = System.nanoTime() - start;
+		heap = usedHeap() - heapBefore;
+		report("new DAWG (mapped file)", loadNanos, heap, dawg.size(), dawg.prefixCount());
+
+		System.out.println();
+		for (int pass = 0; pass < 2; pass++) {
+			// first pass is warm-up
+			boolean print = pass == 1;
+			timeOld(old, queries, prefixes, print);
+			timeNew("new trie", trie, queries, prefixes, print);
+			timeNew("new DAWG", dawg, queries, prefixes, print);
+		}
+		// keep all three reachable until the end so the heap numbers stay honest
+		if (old.size() + trie.size() + dawg.size() < 0) {
+			System.out.println();
+		}
+	}
+
+	private static void timeOld(OldLexicon lex, String[] queries, String[] prefixes, boolean print) {
+		long alloc = allocatedBytes();
+		long start = System.nanoTime();
+		int hits = 0;
+		for (int rep = 0; rep < REPS; rep++) {
+			for (String query : queries) {
+				if (lex.contains(query)) {
+					hits++;
+				}
+			}
+		}
+		reportLookups("old contains", start, alloc, hits, print);
+
+		alloc = allocatedBytes();
+		start = System.nanoTime();
+		hits = 0;
+		for (int rep = 0; rep < REPS; rep++) {
+			for (String prefix : prefixes) {
+				if (lex.containsPrefix(prefix)) {
+					hits++;
+				}
+			}
+		}
+		reportLookups("old containsPrefix", start, alloc, hits, print);
+	}
+
+	private static void timeNew(String name, Lexicon lex, String[] queries, String[] prefixes, boolean print) {
+		long alloc = allocatedBytes();
+		long start = System.nanoTime();
+		int hits = 0;
+		for (int rep = 0; rep < REPS; rep++) {
+			for (String query : queries) {
+				if (lex.contains(query)) {
+					hits++;
+				}
+			}
+		}
+		reportLookups(name + " contains", start, alloc, hits, print);
+
+		alloc = allocatedBytes();
+		start = System.nanoTime();
+		hits = 0;
+		for (int rep = 0; rep < REPS; rep++) {
+			for (String prefix : prefixes) {
+				if (lex.containsPrefix(prefix)) {
+					hits++;
+				}
+			}
+		}
+		reportLookups(name + " containsPrefix", start, alloc, hits, print);
+	}
+
+	private static void report(String name, long loadNanos, long heap, int size, int prefixCount) {
+		System.out.printf("%-26s load %8.1f ms   heap %8.1f MB   %d words, %d prefixes%n",
+				name, loadNanos / 1e6, heap / 1e6, size, prefixCount);
+	}
+
+	private static void reportLookups(String name, long startNanos, long startAlloc, int hits, boolean print) {
+		long nanos = System.nanoTime() - startNanos;
+		long lookups = (long) REPS * QUERY_COUNT;
+		long alloc = allocatedBytes();
+		if (print) {
+			String bytes = alloc < 0 ? "n/a" : String.format("%.1f", (alloc - startAlloc) / (double) lookups);
+			System.out.printf("%-26s %12.0f lookups/s   %6s B/lookup   (%d hits)%n",
+					name, lookups / (nanos / 1e9), bytes, hits);
+		}
+	}
+
+	private static OldLexicon loadOld(File file) throws IOException {
+		OldLexicon lex = new OldLexicon();
+		BufferedReader reader = new BufferedReader(new FileReader(file));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				lex.add(line);
+			}
+		} finally {
+			reader.close();
+		}
+		return lex;
+	}
+
+	private static List<String> readWords(String filename) throws IOException {
+		List<String> words = new ArrayList<String>();
+		BufferedReader reader = new BufferedReader(new FileReader(filename));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				line = line.trim().toLowerCase();
+				if (line.matches("[a-z]+")) {
+					words.add(line);
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		return words;
+	}
+
+	// made-up words built from common syllables, so they share prefixes and suffixes like real ones
+	private static List<String> makeWords(int count) {
+		Random rand = new Random(42);
+		Set<String> words = new TreeSet<String>();
+		while (words.size() < count) {
+			StringBuilder sb = new StringBuilder();
+			int syllables = 1 + rand.nextInt(4);
+			for (int i = 0; i < syllables; i++) {
+				sb.append(SYLLABLES[rand.nextInt(SYLLABLES.length)]);
+			}
+			if (sb.length() >= 2) {
+				words.add(sb.toString());
+			}
+		}
+		return new ArrayList<String>(words);
+	}
+
+	// half real words/prefixes, half with one letter changed; mixed case as user input would be
+	private static String[] makeQueries(List<String> words, int count, boolean prefixes) {
+		Random rand = new Random(17);
+		String[] queries = new String[count];
+		for (int i = 0; i < count; i++) {
+			String word = words.get(rand.nextInt(words.size()));
+			if (prefixes) {
+				word = word.substring(0, 1 + rand.nextInt(word.length()));
+			}
+			if (rand.nextBoolean()) {
+				char[] chars = word.toCharArray();
+				chars[rand.nextInt(chars.length)] = (char) ('a' + rand.nextInt(26));
+				word = new String(chars);
+			}
+			queries[i] = rand.nextBoolean() ? word.toUpperCase() : word;
+		}
+		return queries;
+	}
+
+	private static void writeWords(List<String> words, File file) throws IOException {
+		PrintWriter out = new PrintWriter(new FileWriter(file));
+		try {
+			for (String word : words) {
+				out.println(word);
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	private static long allocatedBytes() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+			if (sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled()) {
+				return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+			}
+		}
+		return -1;
+	}
+
+	// the previous implementation, kept here for comparison
+	private static class OldLexicon {
+		private Set<String> words;
+		private Set<String> knownPrefixes;
+
+		public OldLexicon() {
+			words = new HashSet<String>();
+			knownPrefixes = new HashSet<String>();
+			knownPrefixes.add("");
+			for (char c = 'A'; c <= 'Z'; c++) {
+				knownPrefixes.add(String.valueOf(c));
+			}
+		}
+
+		public void add(String word) {
+			word = word.toUpperCase();
+			words.add(word);
+			for (int i = 2; i <= word.length(); i++) {
+				knownPrefixes.add(word.substring(0, i));
+			}
+		}
+
+		public boolean contains(String word) {
+			return words.contains(word.toUpperCase());
+		}
+
+		public boolean containsPrefix(String prefix) {
+			return knownPrefixes.contains(prefix.toUpperCase());
+		}
+
+		public int size() {
+			return words.size();
+		}
+
+		public int prefixCount() {
+			return knownPrefixes.size();
+		}
+	}
+}
@@ -0,0 +1,129 @@
+/*
+ * Rough timing of HashMultimap against FlatMultimap and IntMultimap, with and
+ * without their value indexes, on 100,000 int keys with 10 values each:
+ * filling the multimap, iterating over every key's values, containsValue,
+ * and the heap used afterward (after compact for the flat multimaps).
+ *
+ * The flat multimaps still store boxed Integers, so where the garbage
+ * collector happens to put those objects matters about as much as the
+ * layout of the map itself; IntMultimap avoids this, and stores nothing
+ * per key or per value.
+ *
+ * @author Marty Stepp
+ * @version 2015/06/06
+ */
+
+package stanford.cs106.collections;
+
+import java.util.*;
+
+public class MultimapBenchmark {
+	private static final int KEYS = 100000;
+	private static final int VALUES_PER_KEY = 10;
+	private static final int LOOKUP_QUERIES = 200;
+
+	public static void main(String[] args) {
+		for (int pass = 0; pass < 2; pass++) {
+			// first pass is warm-up
+			boolean print = pass == 1;
+			time("HashMultimap", HashMultimap.<Integer, Integer>create(), print);
+			time("FlatMultimap", FlatMultimap.<Integer, Integer>create(), print);
+			time("FlatMultimap+values", FlatMultimap.<Integer, Integer>create(true), print);
+			time("IntMultimap", IntMultimap.create(), print);
+			time("IntMultimap+values", IntMultimap.create(true), print);
+			if (print) {
+				System.out.println();
+			}
+		}
+	}
+
+	private static void time(String name, Multimap<Integer, Integer> map, boolean print) {
+		long heap = usedHeap();
+		Random rand = new Random(42);
+		long start = System.nanoTime();
+		for (int i = 0; i < KEYS * VALUES_PER_KEY; i++) {
+			// interleave keys, as when reading edges or postings in no particular order
+			map.put(rand.nextInt(KEYS), rand.nextInt(1000000));
+		}
+		long fill = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		long sum = 0;
+		for (Integer key : map.keySet()) {
+			for (int value : map.get(key)) {
+				sum += value;
+			}
+		}
+		long iterate = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		int hits = 0;
+		for (int i = 0; i < LOOKUP_QUERIES; i++) {
+			if (map.containsValue(rand.nextInt(2000000))) {
+				hits++;
+			}
+		}
+		long contains = System.nanoTime() - start;
+
+		if (map instanceof FlatMultimap) {
+			((FlatMultimap<Integer, Integer>) map).compact();
+		}
+		long used = usedHeap() - heap;
+		if (print) {
+			print(name, fill, iterate, contains, used, sum, hits);
+		}
+		map.clear();
+	}
+
+	private static void time(String name, IntMultimap map, boolean print) {
+		long heap = usedHeap();
+		Random rand = new Random(42);
+		long start = System.nanoTime();
+		for (int i = 0; i < KEYS * VALUES_PER_KEY; i++) {
+			map.put(rand.nextInt(KEYS), rand.nextInt(1000000));
+		}
+		long fill = System.nanoTime() - start;
+
+		final long[] sum = new long[1];
+		IntMultimap.Visitor adder = new IntMultimap.Visitor() {
+			public void visit(int key, int value) {
+				sum[0] += value;
+			}
+		};
+		start = System.nanoTime();
+		map.forEach(adder);
+		long iterate = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		int hits = 0;
+		for (int i = 0; i < LOOKUP_QUERIES; i++) {
+			if (map.containsValue(rand.nextInt(2000000))) {
+				hits++;
+			}
+		}
+		long contains = System.nanoTime() - start;
+
+		map.compact();
+		long used = usedHeap() - heap;
+		if (print) {
+			print(name, fill, iterate, contains, used, sum[0], hits);
+		}
+		map.clear();
+	}
+
+	private static void print(String name, long fill, long iterate, long contains, long used,
+			long sum, int hits) {
+		System.out.printf("%-20s put %6.0f ns/value   iterate %6.2f ms   containsValue %9.2f us   "
+				+ "heap %6.1f MB   (%d, %d)%n",
+				name, (double) fill / (KEYS * VALUES_PER_KEY), iterate / 1e6,
+				contains / 1e3 / LOOKUP_QUERIES, used / 1e6, sum % 1000, hits);
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -0,0 +1,101 @@
+/*
+ * Runs work over the cells of a grid in parallel, for the parallelMap and
+ * parallelForEach methods of the grid classes.
+ *
+ * A grid's cells are numbered in row-major order, and that range of numbers
+ * is split in halves on a ForkJoinPool down to bands of a few thousand cells,
+ * a few per thread, so each task works on whole runs of adjacent memory.  The
+ * split points depend only on the grid's size and the pool's parallelism.
+ *
+ * @author Marty Stepp
+ * @version 2015/05/28
+ */
+
+package stanford.cs106.collections;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+final class ParallelGrid {
+	private static final int MIN_BAND_SIZE = 4096;
+	private static final int BANDS_PER_THREAD = 4;
+	
+	private static ForkJoinPool defaultPool;
+	
+	/*
+	 * Work to do on the cells numbered from (inclusive) to to (exclusive).
+	 */
+	interface RangeAction {
+		void run(int from, int to);
+	}
+	
+	private ParallelGrid() {
+		// empty
+	}
+	
+	/*
+	 * Returns the pool used when a caller doesn't supply one, with one thread
+	 * per available processor.
+	 */
+	static synchronized ForkJoinPool getDefaultPool() {
+		if (defaultPool == null) {
+			defaultPool = new ForkJoinPool();
+		}
+		return defaultPool;
+	}
+	
+	/*
+	 * Runs the action over the cells 0 to size - 1 on the given pool, splitting
+	 * only at multiples of align, and returns once all of it is done.
+	 */
+	static void forEachRange(int size, int align, RangeAction action, ForkJoinPool pool) {
+		if (size <= 0) {
+			return;
+		}
+		int bandSize = Math.max(MIN_BAND_SIZE, size / (pool.getParallelism() * BANDS_PER_THREAD));
+		pool.invoke(new RangeTask(0, size, bandSize, align, action));
+	}
+	
+	/*
+	 * Runs the action for every (row, col) cell in the cells from to to,
+	 * in a grid with the given number of columns.
+	 */
+	static void forEachCell(int from, int to, int cols, GridCellAction action) {
+		int row = from / cols;
+		int col = from % cols;
+		for (int i = from; i < to; i++) {
+			action.run(row, col);
+			if (++col == cols) {
+				col = 0;
+				row++;
+			}
+		}
+	}
+	
+	private static class RangeTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final int from;
+		private final int to;
+		private final int bandSize;
+		private final int align;
+		private final RangeAction action;
+		
+		public RangeTask(int from, int to, int bandSize, int align, RangeAction action) {
+			this.from = from;
+			this.to = to;
+			this.bandSize = bandSize;
+			this.align = align;
+			this.action = action;
+		}
+		
+		protected void compute() {
+			int mid = (from + (to - from) / 2) / align * align;
+			if (to - from <= bandSize || mid <= from || mid >= to) {
+				action.run(from, to);
+			} else {
+				invokeAll(new RangeTask(from, mid, bandSize, align, action),
+						new RangeTask(mid, to, bandSize, align, action));
+			}
+		}
+	}
+}
@@ -0,0 +1,176 @@
+/*
+ * Times the grids' parallelMap against a plain sequential loop on a Life step
+ * and a 3x3 blur, for pools of 1, 2, 4, ... threads up to the number of
+ * processors, and checks that every run gives exactly the sequential result.
+ * The grid size defaults to 4096x4096 and can be passed as an argument.
+ *
+ * @author Marty Stepp
+ * @version 2015/05/28
+ */
+
+package stanford.cs106.collections;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class ParallelGridBenchmark {
+	private static final int DEFAULT_SIZE = 4096;
+	private static final int ITERATIONS = 5;
+	private static final int BOXED_ITERATIONS = 2;
+
+	private static final IntGrid.Kernel LIFE = new IntGrid.Kernel() {
+		public int map(IntGrid source, int row, int col) {
+			int neighbors = source.sumNeighbors(row, col);
+			return (neighbors == 3 || (neighbors == 2 && source.get(row, col) != 0)) ? 1 : 0;
+		}
+	};
+
+	private static final DoubleGrid.Kernel BLUR = new DoubleGrid.Kernel() {
+		public double map(DoubleGrid source, int row, int col) {
+			if (!source.isInterior(row, col)) {
+				return source.get(row, col);
+			}
+			return (source.sumNeighbors(row, col) + source.get(row, col)) / 9;
+		}
+	};
+
+	private static final Grid.Kernel<Boolean, Boolean> BOXED_LIFE = new Grid.Kernel<Boolean, Boolean>() {
+		public Boolean map(Grid<Boolean> source, int row, int col) {
+			int neighbors = 0;
+			for (int r = row - 1; r <= row + 1; r++) {
+				for (int c = col - 1; c <= col + 1; c++) {
+					if (source.inBounds(r, c) && !(r == row && c == col) && source.get(r, c)) {
+						neighbors++;
+					}
+				}
+			}
+			return neighbors == 3 || (neighbors == 2 && source.get(row, col));
+		}
+	};
+
+	public static void main(String[] args) {
+		int size = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SIZE;
+		List<Integer> threadCounts = new ArrayList<Integer>();
+		int processors = Runtime.getRuntime().availableProcessors();
+		for (int threads = 1; threads < processors; threads *= 2) {
+			threadCounts.add(threads);
+		}
+		threadCounts.add(processors);
+		System.out.println(size + "x" + size + " grids, " + processors + " processors");
+
+		Random rand = new Random(42);
+		IntGrid life = new IntGrid(size, size);
+		DoubleGrid image = new DoubleGrid(size, size);
+		for (int i = 0; i < life.getArray().length; i++) {
+			life.getArray()[i] = rand.nextInt(10) < 3 ? 1 : 0;
+			image.getArray()[i] = rand.nextDouble();
+		}
+
+		// Life on IntGrid
+		IntGrid expectedLife = new IntGrid(size, size);
+		IntGrid next = new IntGrid(size, size);
+		life.parallelMap(next, LIFE);   // warm up the kernel before any timing
+		long start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			for (int row = 0; row < size; row++) {
+				for (int col = 0; col < size; col++) {
+					next.set(row, col, LIFE.map(life, row, col));
+				}
+			}
+		}
+		long sequential = System.nanoTime() - start;
+		expectedLife.copyFrom(next);
+		report("IntGrid Life", "sequential", sequential, ITERATIONS, sequential, true);
+		for (int threads : threadCounts) {
+			ForkJoinPool pool = new ForkJoinPool(threads);
+			life.parallelMap(next, LIFE, pool);   // warm up
+			start = System.nanoTime();
+			for (int i = 0; i < ITERATIONS; i++) {
+				life.parallelMap(next, LIFE, pool);
+			}
+			long elapsed = System.nanoTime() - start;
+			pool.shutdown();
+			report("IntGrid Life", threads + " threads", elapsed, ITERATIONS, sequential,
+					Arrays.equals(next.getArray(), expectedLife.getArray()));
+		}
+
+		// 3x3 blur on DoubleGrid
+		DoubleGrid expectedImage = new DoubleGrid(size, size);
+		DoubleGrid blurred = new DoubleGrid(size, size);
+		image.parallelMap(blurred, BLUR);
+		start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			for (int row = 0; row < size; row++) {
+				for (int col = 0; col < size; col++) {
+					blurred.set(row, col, BLUR.map(image, row, col));
+				}
+			}
+		}
+		sequential = System.nanoTime() - start;
+		expectedImage.copyFrom(blurred);
+		report("DoubleGrid blur", "sequential", sequential, ITERATIONS, sequential, true);
+		for (int threads : threadCounts) {
+			ForkJoinPool pool = new ForkJoinPool(threads);
+			image.parallelMap(blurred, BLUR, pool);
+			start = System.nanoTime();
+			for (int i = 0; i < ITERATIONS; i++) {
+				image.parallelMap(blurred, BLUR, pool);
+			}
+			long elapsed = System.nanoTime() - start;
+			pool.shutdown();
+			report("DoubleGrid blur", threads + " threads", elapsed, ITERATIONS, sequential,
+					Arrays.equals(blurred.getArray(), expectedImage.getArray()));
+		}
+
+		// Life on Grid<Boolean>
+		Grid<Boolean> boxed = new Grid<Boolean>(size, size);
+		for (int row = 0; row < size; row++) {
+			for (int col = 0; col < size; col++) {
+				boxed.set(row, col, life.get(row, col) != 0);
+			}
+		}
+		Grid<Boolean> boxedNext = new Grid<Boolean>(size, size);
+		start = System.nanoTime();
+		for (int i = 0; i < BOXED_ITERATIONS; i++) {
+			for (int row = 0; row < size; row++) {
+				for (int col = 0; col < size; col++) {
+					boxedNext.set(row, col, BOXED_LIFE.map(boxed, row, col));
+				}
+			}
+		}
+		sequential = System.nanoTime() - start;
+		report("Grid<Boolean> Life", "sequential", sequential, BOXED_ITERATIONS, sequential,
+				sameCells(boxedNext, expectedLife));
+		for (int threads : threadCounts) {
+			ForkJoinPool pool = new ForkJoinPool(threads);
+			start = System.nanoTime();
+			for (int i = 0; i < BOXED_ITERATIONS; i++) {
+				boxed.parallelMap(boxedNext, BOXED_LIFE, pool);
+			}
+			long elapsed = System.nanoTime() - start;
+			pool.shutdown();
+			report("Grid<Boolean> Life", threads + " threads", elapsed, BOXED_ITERATIONS, sequential,
+					sameCells(boxedNext, expectedLife));
+		}
+	}
+
+	private static boolean sameCells(Grid<Boolean> grid, IntGrid expected) {
+		for (int row = 0; row < grid.numRows(); row++) {
+			for (int col = 0; col < grid.numCols(); col++) {
+				if (grid.get(row, col) != (expected.get(row, col) != 0)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private static void report(String name, String mode, long nanos, int iterations, long sequentialNanos, boolean same) {
+		System.out.printf("%-20s %-12s %9.1f ms/iteration   speedup %5.2fx   %s%n",
+				name, mode, nanos / 1e6 / iterations, (double) sequentialNanos / nanos,
+				same ? "same result" : "DIFFERENT RESULT");
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * Rough timing of HashBasedTable against IndexedTable, with and without its
+ * value index, on a sparse 2000 x 2000 table of about 200,000 cells:
+ * filling it, then row-heavy access (summing whole rows), column-heavy access
+ * (summing whole columns), containsColumn, and containsValue.
+ *
+ * @author Marty Stepp
+ * @version 2015/06/06
+ */
+
+package stanford.cs106.collections;
+
+import java.util.*;
+
+public class TableBenchmark {
+	private static final int KEYS = 2000;
+	private static final int CELLS_PER_ROW = 100;
+	private static final int LINE_QUERIES = 2000;
+	private static final int LOOKUP_QUERIES = 200;
+
+	public static void main(String[] args) {
+		for (int pass = 0; pass < 2; pass++) {
+			// first pass is warm-up
+			boolean print = pass == 1;
+			time("HashBasedTable", HashBasedTable.<Integer, Integer, Integer>create(), print);
+			time("IndexedTable", IndexedTable.<Integer, Integer, Integer>create(), print);
+			time("IndexedTable+values", IndexedTable.<Integer, Integer, Integer>create(true), print);
+			if (print) {
+				System.out.println();
+			}
+		}
+	}
+
+	private static void time(String name, Table<Integer, Integer, Integer> table, boolean print) {
+		Random rand = new Random(42);
+		long start = System.nanoTime();
+		for (int row = 0; row < KEYS; row++) {
+			for (int i = 0; i < CELLS_PER_ROW; i++) {
+				table.put(row, rand.nextInt(KEYS), rand.nextInt(1000000));
+			}
+		}
+		long fill = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		long sum = 0;
+		for (int i = 0; i < LINE_QUERIES; i++) {
+			for (int value : table.row(rand.nextInt(KEYS)).values()) {
+				sum += value;
+			}
+		}
+		long rows = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		for (int i = 0; i < LINE_QUERIES; i++) {
+			for (int value : table.column(rand.nextInt(KEYS)).values()) {
+				sum += value;
+			}
+		}
+		long columns = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		int hits = 0;
+		for (int i = 0; i < LOOKUP_QUERIES; i++) {
+			if (table.containsColumn(rand.nextInt(2 * KEYS))) {
+				hits++;
+			}
+		}
+		long containsColumn = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		for (int i = 0; i < LOOKUP_QUERIES; i++) {
+			if (table.containsValue(rand.nextInt(2000000))) {
+				hits++;
+			}
+		}
+		long containsValue = System.nanoTime() - start;
+
+		if (print) {
+			System.out.printf("%-20s put %7.0f ns/cell   row %8.1f us   column %8.1f us   "
+					+ "containsColumn %8.2f us   containsValue %9.2f us   (%d, %d)%n",
+					name, (double) fill / (KEYS * CELLS_PER_ROW),
+					rows / 1e3 / LINE_QUERIES, columns / 1e3 / LINE_QUERIES,
+					containsColumn / 1e3 / LOOKUP_QUERIES, containsValue / 1e3 / LOOKUP_QUERIES,
+					sum % 1000, hits);
+		}
+	}
+}
@@ -6,6 +6,8 @@
 package stanford.cs106.collections;
 
 import java.awt.Color;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Observable;
 
 /**
@@ -18,6 +20,12 @@ import java.util.Observable;
  * vertexInfo(v)
  * }
  * </pre>
+ *
+ * <p>
+ * The previous, visited, cost, number and color markers of all vertexes in a
+ * graph can be reset at once by the graph's resetData method, which takes the
+ * same small time however many vertexes there are: each vertex notices that
+ * its markers are out of date, and resets them, the next time they are used.
  */
 public class Vertex extends Observable implements Comparable<Vertex>, Cloneable {
 	/** Maximum possible cost to reach a vertex from another; treat this as "infinity". */
@@ -30,6 +38,10 @@ public class Vertex extends Observable implements Comparable<Vertex>, Cloneable
 	private boolean visited;    // a mark for whether this vertex has been visited
 	private double cost;        // a mark for the minimum cost to reach this vertex
 	public Object extraData;    // anything else you want to store in here
+	private Context context;    // shared by all vertexes of the same graph
+	private int epoch;          // context's epoch when the markers above were last valid
+	private boolean changed;    // true if a notification is held back until a batch ends
+	private Object changeEvent; // the argument for that notification
 	
 	/**
 	 * Constructs information for the given vertex.
@@ -37,10 +49,19 @@ public class Vertex extends Observable implements Comparable<Vertex>, Cloneable
 	 * @throws NullPointerException If the vertex is null.
 	 */
 	public Vertex(String name) {
+		this(name, new Context());
+	}
+	
+	/**
+	 * Constructs information for the given vertex, belonging to a graph whose
+	 * vertexes all share the given context.
+	 */
+	Vertex(String name, Context context) {
 		if (name == null) {
 			throw new NullPointerException("null name");
 		}
 		this.name = name;
+		this.context = context;
 		this.clear();
 	}
 	
@@ -60,6 +81,7 @@ public class Vertex extends Observable implements Comparable<Vertex>, Cloneable
 		this.cost = MAX_COST;
 		this.number = -1;
 		this.color = null;
+		this.epoch = context.epoch;
 		if (clearExtraData) {
 			this.extraData = null;
 		}
@@ -71,6 +93,8 @@ public class Vertex extends Observable implements Comparable<Vertex>, Cloneable
 	public Vertex clone() {
 		try {
 			Vertex copy = (Vertex) super.clone();
+			copy.changed = false;
+			copy.changeEvent = null;
 			copy.clear();
 			return copy;
 		} catch (CloneNotSupportedException e) {
@@ -82,6 +106,7 @@ public class Vertex extends Observable implements Comparable<Vertex>, Cloneable
 	 * Returns color of vertex
 	 */
 	public Color color() {
+		checkEpoch();
 		return color;
 	}
 
@@ -95,6 +120,7 @@ public class Vertex extends Observable implements Comparable<Vertex>, Cloneable
 	 * Used internally in various path-finding algorithms.
 	 */
 	public double cost() {
+		checkEpoch();
 		return cost;
 	}
 	
@@ -126,11 +152,24 @@ public class Vertex extends Observable implements Comparable<Vertex>, Cloneable
 	}
 	
 	public void notifyObservers() {
-		setChanged();
-		super.notifyObservers();
+		notifyObservers(null);
 	}
 	
+	/**
+	 * Notifies this vertex's observers that it has changed, passing them the
+	 * given argument.  During a batch of changes (see BasicGraph.beginBatch)
+	 * the notification is held back instead, and each changed vertex notifies
+	 * its observers once when the batch ends, with the latest argument.
+	 */
 	public void notifyObservers(Object arg) {
+		if (context.batchDepth > 0) {
+			if (!changed) {
+				changed = true;
+				context.changed.add(this);
+			}
+			changeEvent = arg;
+			return;
+		}
 		setChanged();
 		super.notifyObservers(arg);
 	}
@@ -141,6 +180,7 @@ public class Vertex extends Observable implements Comparable<Vertex>, Cloneable
 	 * Used internally in various algorithms such as topological sort.
 	 */
 	public int number() {
+		checkEpoch();
 		return number;
 	}
 	
@@ -150,6 +190,7 @@ public class Vertex extends Observable implements Comparable<Vertex>, Cloneable
 	 * If no previous vertex has been set, returns null.
 	 */
 	public Vertex previous() {
+		checkEpoch();
 		return previous;
 	}
 	
@@ -157,6 +198,7 @@ public class Vertex extends Observable implements Comparable<Vertex>, Cloneable
 	 * Sets the vertex's color
 	 */
 	public void setColor(Color color) {
+		checkEpoch();
 		this.color = color;
 		notifyObservers(Event.COLOR_CHANGED);
 	}
@@ -167,6 +209,7 @@ public class Vertex extends Observable implements Comparable<Vertex>, Cloneable
 	 * @param cost the new cost to use
 	 */
 	public void setCost(double cost) {
+		checkEpoch();
 		this.cost = cost;
 	}
 	
@@ -176,6 +219,7 @@ public class Vertex extends Observable implements Comparable<Vertex>, Cloneable
 	 * @param number the new number to use
 	 */
 	public void setNumber(int number) {
+		checkEpoch();
 		this.number = number;
 	}
 	
@@ -185,6 +229,7 @@ public class Vertex extends Observable implements Comparable<Vertex>, Cloneable
 	 * If null is passed, the previous vertex is cleared.
 	 */
 	public void setPrevious(Vertex previous) {
+		checkEpoch();
 		this.previous = previous;
 	}
 	
@@ -201,6 +246,7 @@ public class Vertex extends Observable implements Comparable<Vertex>, Cloneable
 	 * Used internally in various path-finding algorithms.
 	 */
 	public void setVisited(boolean visited) {
+		checkEpoch();
 		this.visited = visited;
 	}
 	
@@ -209,6 +255,7 @@ public class Vertex extends Observable implements Comparable<Vertex>, Cloneable
 	 * Used internally in various path-finding algorithms.
 	 */
 	public boolean visited() {
+		checkEpoch();
 		return visited;
 	}
 	
@@ -216,6 +263,7 @@ public class Vertex extends Observable implements Comparable<Vertex>, Cloneable
 	 * Returns a string representation of the information about this vertex.
 	 */
 	public String toString() {
+		checkEpoch();
 		String result = "(" + this.name;
 		if (this.number != -1) {
 			result += ",#" + this.number;
@@ -235,7 +283,61 @@ public class Vertex extends Observable implements Comparable<Vertex>, Cloneable
 		return result + ")";
 	}
 	
+	// resets the markers if the graph has reset all vertexes since they were set
+	private void checkEpoch() {
+		if (epoch != context.epoch) {
+			clear(false);
+		}
+	}
+	
 	public static enum Event {
 		COLOR_CHANGED
 	}
+	
+	/*
+	 * State shared by all vertexes of one graph: the epoch their markers must
+	 * belong to in order to be current, and the vertexes whose notifications
+	 * are being held back during a batch of changes.
+	 */
+	static final class Context {
+		private int epoch;
+		private int batchDepth;
+		private List<Vertex> changed = new ArrayList<Vertex>();
+		
+		/*
+		 * Makes every vertex's markers out of date at once.
+		 */
+		void resetAll() {
+			epoch++;
+		}
+		
+		void beginBatch() {
+			batchDepth++;
+		}
+		
+		/*
+		 * Ends one level of batching; at the outermost level, sends each
+		 * changed vertex's held-back notification.
+		 */
+		void endBatch() {
+			if (batchDepth == 0) {
+				throw new IllegalStateException("endBatch called without beginBatch");
+			}
+			batchDepth--;
+			if (batchDepth == 0 && !changed.isEmpty()) {
+				List<Vertex> vertexes = changed;
+				changed = new ArrayList<Vertex>();
+				for (Vertex vertex : vertexes) {
+					Object event = vertex.changeEvent;
+					vertex.changed = false;
+					vertex.changeEvent = null;
+					vertex.notifyObservers(event);
+				}
+			}
+		}
+		
+		boolean isBatching() {
+			return batchDepth > 0;
+		}
+	}
 }
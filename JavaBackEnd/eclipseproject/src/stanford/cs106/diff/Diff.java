@@ -31,79 +31,183 @@ public class Diff {
 	public static List<Difference> diffAsList(String s1, String s2, int flags) {
 	    s1 = String.valueOf(s1);
 	    s2 = String.valueOf(s2);
-		String[] lines1 = s1.split("\r?\n");
-	    String[] lines2 = s2.split("\r?\n");
-//	    String[] lines1Original = Arrays.copyOf(lines1, lines1.length);
-//	    String[] lines2Original = Arrays.copyOf(lines2, lines2.length);
-
-	    if ((flags & IGNORE_NUMBERS) != 0) {
-	        s1 = s1.replaceAll("[0-9]+", "###");
-	        s2 = s2.replaceAll("[0-9]+", "###");
-	        lines1 = s1.split("\r?\n");
-	        lines2 = s2.split("\r?\n");
-	    }
-	    if ((flags & IGNORE_NONNUMBERS) != 0) {
-	        s1 = s1.replaceAll("[^0-9\n]+", " ");
-	        s2 = s2.replaceAll("[^0-9\n]+", " ");
-	        lines1 = s1.split("\r?\n");
-	        lines2 = s2.split("\r?\n");
-	    }
-	    if ((flags & IGNORE_PUNCTUATION) != 0) {
-	        String punct = "[.,?!'\"()\\/#$%@^&*_\\[\\]{}|<>:;-]+";
-	    	s1 = s1.replaceAll(punct, "");
-	        s2 = s2.replaceAll(punct, "");
-	        lines1 = s1.split("\r?\n");
-	        lines2 = s2.split("\r?\n");
-	    }
-	    if ((flags & IGNORE_AFTERDECIMAL) != 0) {
-	        s1 = s1.replaceAll("\\.[0-9]+", ".#");
-	        s2 = s2.replaceAll("\\.[0-9]+", ".#");
-	        lines1 = s1.split("\r?\n");
-	        lines2 = s2.split("\r?\n");
-	    }
-	    if ((flags & IGNORE_CASE) != 0) {
-	        s1 = s1.toLowerCase();
-	        s2 = s2.toLowerCase();
-	        lines1 = s1.split("\r?\n");
-	        lines2 = s2.split("\r?\n");
+	    String[] lines1Original = LineNormalizer.split(s1);
+	    String[] lines2Original = LineNormalizer.split(s2);
+	    LineNormalizer normalizer = new LineNormalizer(flags);
+	    String[] text1 = normalizer.normalizeText(lines1Original, s1.indexOf('\n') < 0);
+	    String[] text2 = normalizer.normalizeText(lines2Original, s2.indexOf('\n') < 0);
+
+	    List<Difference> out = new ArrayList<Difference>();
+	    if (sameText(text1, text2)) {
+	        return out;
 	    }
-	    if ((flags & IGNORE_CHARORDER) != 0) {
-	        ArrayList<String> lines1Sorted = new ArrayList<String>();
-	        for (String line : lines1) {
-	            line = StringUtils.sortChars(line);
-	            lines1Sorted.add(line);
+	    String[] lines1 = normalizer.removeWhitespace(text1);
+	    String[] lines2 = normalizer.removeWhitespace(text2);
+
+	    int[] actions = align(lines1, lines2, flags);
+
+	    int op = 0;
+	    int x0 = 0;
+	    int x1 = 0;
+	    int y0 = 0;
+	    int y1 = 0;
+
+	    for (int action : actions) {
+	        if (action == 1) {
+	            op |= action;
+	            x1++;
+	            continue;
+	        } else if (action == 2) {
+	            op |= action;
+	            y1++;
+	            continue;
 	        }
-	        lines1 = lines1Sorted.toArray(new String[0]);
-	        s1 = StringUtils.join(lines1, "\n");
 
-	        ArrayList<String> lines2Sorted = new ArrayList<String>();
-	        for (String line : lines2) {
-	            line = StringUtils.sortChars(line);
-	            lines2Sorted.add(line);
+	        if (op > 0) {
+	            addDifferences(out, x0, x1, y0, y1, flags);
 	        }
-	        lines2 = lines2Sorted.toArray(new String[0]);
-	        s2 = StringUtils.join(lines2, "\n");
+	        x1++;
+	        x0 = x1;
+	        y1++;
+	        y0 = y1;
+	        op = 0;
+	    }
+
+	    return out;
+	}
+
+	/*
+	 * Adds the Differences for one run of changed lines, in which lines
+	 * [x0, x1) of the expected text were deleted and lines [y0, y1) of the
+	 * actual text were added; one of the two ranges may be empty.
+	 */
+	static void addDifferences(List<Difference> out, int x0, int x1, int y0, int y1, int flags) {
+	    int op = (x1 > x0 ? 1 : 0) | (y1 > y0 ? 2 : 0);
+	    if (op == 1) {
+	    	out.add(new Difference(Difference.Type.DELETE, x0, x1-1, y0, y1-1));
+	    } else if (op == 3) {
+	    	out.add(new Difference(Difference.Type.MODIFY, x0, x1-1, y0, y1-1));
 	    }
-	    if ((flags & IGNORE_LINEORDER) != 0) {
-	        Arrays.sort(lines1);
-	        Arrays.sort(lines2);
-	        s1 = StringUtils.join(lines1, "\n");
-	        s2 = StringUtils.join(lines2, "\n");
+
+	    while (x0 < x1) {
+	    	out.add(new Difference(Difference.Type.DELETE, x0, x1-1, y0, y1-1));
+	        x0++;
+	    }   // deleted elems
+
+	    if (op == 2) {
+	        if ((flags & IGNORE_LEADING) == 0 || x1 > 0) {
+	        	out.add(new Difference(Difference.Type.ADD, x0, x1-1, y0, y1-1));
+	        }
 	    }
-	    if ((flags & IGNORE_WHITESPACE) != 0) {
-	        for (int i = 0; i < lines1.length; i++) {
-	            lines1[i] = StringUtils.removeWhitespace(lines1[i]);
+
+	    while (y0 < y1) {
+	        if ((flags & IGNORE_LEADING) == 0 || op != 2 || x1 > 0) {
+	        	out.add(new Difference(Difference.Type.ADD, x0, x1-1, y0, y1-1));
 	        }
-	        for (int i = 0; i < lines2.length; i++) {
-	            lines2[i] = StringUtils.removeWhitespace(lines2[i]);
+	        y0++;
+	    }   // added elems
+	}
+
+	/*
+	 * Adds the messages that diff shows for one run of changed lines, as in
+	 * addDifferences; deleted and added hold the original text of the lines
+	 * [x0, x1) and [y0, y1).
+	 */
+	static void addMessages(List<String> out, List<String> deleted, List<String> added,
+			int x0, int x1, int y0, int y1, int flags) {
+	    int op = (x1 > x0 ? 1 : 0) | (y1 > y0 ? 2 : 0);
+	    boolean multipleLines = (x1 != x0 + 1);
+	    String xstr = "" + (multipleLines ? ((x0 + 1) + "-" + x1) : x1);
+	    String ystr = "" + ((y1 != y0 + 1) ? ((y0 + 1) + "-" + y1) : y1);
+	    String linesStr = "\nLine" + (multipleLines ? "s " : " ");
+	    String doStr = "do" + (multipleLines ? "" : "es");
+	    if (op == 1) {
+	        out.add(linesStr + xstr + " deleted near student line " + y1);
+	    } else if (op == 3) {
+	        if (xstr.equals(ystr)) {
+	            out.add(linesStr + xstr + " " + doStr + " not match");
+	        } else {
+	            out.add(linesStr + xstr + " changed to student line " + ystr);
 	        }
 	    }
 
-	    List<Difference> out = new ArrayList<Difference>();
-	    if (StringUtils.trimR(s1).equals(StringUtils.trimR(s2))) {
-	        return out;
+	    for (String line : deleted) {
+	        out.add("EXPECTED < " + line);
+	    }   // deleted elems
+
+	    if (op == 2) {
+	        if ((flags & IGNORE_LEADING) == 0 || x1 > 0) {
+	            // out.add(linesStr + x1 + " added at student line " + ystr);
+	        	// Marty 2015/04/21
+	        	out.add(linesStr + " added near student line " + ystr);
+	        }
 	    }
 
+	    if ((flags & IGNORE_LEADING) == 0 || op != 2 || x1 > 0) {
+	        for (String line : added) {
+	            out.add("STUDENT  > " + line);
+	        }
+	    }   // added elems
+	}
+	
+	/*
+	 * Lines up the two lists of lines, returning the actions that walk through
+	 * both of them: 1 for a line deleted from lines1, 2 for a line added from
+	 * lines2, 4 for a line common to both, and 8 at the end.  As in the
+	 * original greedy search (see alignGreedy), lines added after the last
+	 * line of lines1 has matched are left out unless IGNORE_TRAILING is set.
+	 *
+	 * The lines are interned to int ids once and compared as ints using
+	 * Myers' O(ND) algorithm, in its linear-space form.  Lines that appear in
+	 * only one of the lists can never be common, so they are set aside
+	 * first; this keeps D small when many lines have changed.
+	 */
+	static int[] align(String[] lines1, String[] lines2, int flags) {
+		Map<String, Integer> ids = new HashMap<String, Integer>();
+		int[] a = intern(lines1, ids);
+		int[] b = intern(lines2, ids);
+		boolean[] commonA = new boolean[a.length];
+		boolean[] commonB = new boolean[b.length];
+		Integer emptyId = ids.get("");
+		markCommon(a, b, ids.size(), emptyId == null ? -1 : emptyId, commonA, commonB);
+
+		// common lines pair up in order; emit each gap's deletions before its additions
+		int[] actions = new int[a.length + b.length + 1];
+		int count = 0;
+		int i = 0;
+		int j = 0;
+		while (i < a.length) {
+			if (!commonA[i]) {
+				actions[count++] = 1;
+				i++;
+			} else if (!commonB[j]) {
+				actions[count++] = 2;
+				j++;
+			} else {
+				actions[count++] = 4;
+				i++;
+				j++;
+			}
+		}
+		boolean trailing = count == 0 || actions[count - 1] == 4;
+		if (!trailing || (flags & IGNORE_TRAILING) != 0) {
+			while (j < b.length) {
+				actions[count++] = 2;
+				j++;
+			}
+		}
+		actions[count++] = 8;
+		return Arrays.copyOf(actions, count);
+	}
+
+	/*
+	 * The original line-matching search: from each mismatch, looks for the
+	 * nearest (by Manhattan distance) pair of equal non-blank lines using
+	 * reverse indexes of each list.  Returns actions in the same form as
+	 * align.  This can take time quadratic or worse in the number of lines,
+	 * and is kept for comparison by DiffBenchmark.
+	 */
+	static int[] alignGreedy(String[] lines1, String[] lines2, int flags) {
 	    // build a reverse-index array using the line as key and line number as value
 	    // don't store blank lines, so they won't be targets of the shortest distance
 	    // search
@@ -208,66 +312,257 @@ public class Diff {
 
 	    // and this marks our ending point
 	    actions.add(8);
+	    int[] result = new int[actions.size()];
+	    for (int i = 0; i < result.length; i++) {
+	        result[i] = actions.get(i);
+	    }
+	    return result;
+	}
 
-	    int op = 0;
-	    int x0 = 0;
-	    int x1 = 0;
-	    int y0 = 0;
-	    int y1 = 0;
+	/*
+	 * Returns true if the two lists of lines, joined by newlines, would be
+	 * equal apart from any whitespace at the end.  Diff has always checked
+	 * this before removing whitespace for IGNORE_WHITESPACE, so it is given
+	 * lines from LineNormalizer.normalizeText.
+	 */
+	private static boolean sameText(String[] lines1, String[] lines2) {
+		int last = lastNonBlank(lines1);
+		if (last != lastNonBlank(lines2)) {
+			return false;
+		}
+		for (int i = 0; i < last; i++) {
+			if (!lines1[i].equals(lines2[i])) {
+				return false;
+			}
+		}
+		return last < 0 || StringUtils.trimR(lines1[last]).equals(StringUtils.trimR(lines2[last]));
+	}
 
-	    for (int action : actions) {
-	        if (action == 1) {
-	            op |= action;
-	            x1++;
-	            continue;
-	        } else if (action == 2) {
-	            op |= action;
-	            y1++;
-	            continue;
-	        }
+	// returns the index of the last line with any non-whitespace, or -1
+	private static int lastNonBlank(String[] lines) {
+		for (int i = lines.length - 1; i >= 0; i--) {
+			if (StringUtils.trimR(lines[i]).length() > 0) {
+				return i;
+			}
+		}
+		return -1;
+	}
 
-	        if (op > 0) {
-//	            boolean multipleLines = (x1 != x0 + 1);
-//	            String xstr = "" + (multipleLines ? ((x0 + 1) + "-" + x1) : x1);
-//	            String ystr = "" + ((y1 != y0 + 1) ? ((y0 + 1) + "-" + y1) : y1);
-//	            String linesStr = "\nLine" + (multipleLines ? "s " : " ");
-//	            String doStr = "do" + (multipleLines ? "" : "es");
-	            if (op == 1) {
-	            	out.add(new Difference(Difference.Type.DELETE, x0, x1-1, y0, y1-1));
-	            } else if (op == 3) {
-	            	out.add(new Difference(Difference.Type.MODIFY, x0, x1-1, y0, y1-1));
-	            }
+	/*
+	 * Marks the lines of a and b, given as ids below idCount, that belong to
+	 * a longest common subsequence of the two, apart from empty lines, whose
+	 * id is emptyId (or -1 if there are none).  As in alignGreedy, empty
+	 * lines never anchor the alignment, or an empty expected output would
+	 * match any output with an empty line in it; they are only matched where
+	 * both lists continue with them after a common line or at the start.
+	 */
+	static void markCommon(int[] a, int[] b, int idCount, int emptyId,
+			boolean[] commonA, boolean[] commonB) {
+		// equal lines at the start match one for one, as in alignGreedy and StreamingDiff
+		int start = 0;
+		while (start < a.length && start < b.length && a[start] == b[start]) {
+			commonA[start] = true;
+			commonB[start] = true;
+			start++;
+		}
 
-	            while (x0 < x1) {
-	            	out.add(new Difference(Difference.Type.DELETE, x0, x1-1, y0, y1-1));
-	                x0++;
-	            }   // deleted elems
+		int[] countA = new int[idCount];
+		int[] countB = new int[idCount];
+		for (int i = start; i < a.length; i++) {
+			countA[a[i]]++;
+		}
+		for (int j = start; j < b.length; j++) {
+			countB[b[j]]++;
+		}
+		if (emptyId >= 0) {
+			countA[emptyId] = 0;
+			countB[emptyId] = 0;
+		}
 
-	            if (op == 2) {
-	                if ((flags & IGNORE_LEADING) == 0 || x1 > 0) {
-		            	out.add(new Difference(Difference.Type.ADD, x0, x1-1, y0, y1-1));
-	                }
-	            } else if (op == 3) {
-	                // out += "---";
-	            }
+		int[] indexA = sharedLines(a, start, countB);
+		int[] indexB = sharedLines(b, start, countA);
+		Myers myers = new Myers(select(a, indexA), select(b, indexB));
+		myers.compare(0, indexA.length, 0, indexB.length);
+		for (int i = 0; i < indexA.length; i++) {
+			commonA[indexA[i]] = myers.commonA[i];
+		}
+		for (int i = 0; i < indexB.length; i++) {
+			commonB[indexB[i]] = myers.commonB[i];
+		}
 
-	            while (y0 < y1) {
-	                if ((flags & IGNORE_LEADING) == 0 || op != 2 || x1 > 0) {
-		            	out.add(new Difference(Difference.Type.ADD, x0, x1-1, y0, y1-1));
-	                }
-	                y0++;
-	            }   // added elems
-	        }
-	        x1++;
-	        x0 = x1;
-	        y1++;
-	        y0 = y1;
-	        op = 0;
-	    }
+		// match equal lines at the start of each gap, as alignGreedy does
+		int i = start;
+		int j = start;
+		while (i < a.length && j < b.length) {
+			if (!commonA[i] && !commonB[j] && a[i] == b[j]) {
+				commonA[i] = true;
+				commonB[j] = true;
+				i++;
+				j++;
+			} else {
+				// skip to just past the next common line
+				while (i < a.length && !commonA[i]) {
+					i++;
+				}
+				while (j < b.length && !commonB[j]) {
+					j++;
+				}
+				i++;
+				j++;
+			}
+		}
+	}
 
-	    return out;
+	// returns the id of each line, giving new lines the next unused id
+	private static int[] intern(String[] lines, Map<String, Integer> ids) {
+		int[] result = new int[lines.length];
+		for (int i = 0; i < lines.length; i++) {
+			Integer id = ids.get(lines[i]);
+			if (id == null) {
+				id = ids.size();
+				ids.put(lines[i], id);
+			}
+			result[i] = id;
+		}
+		return result;
 	}
-	
+
+	// returns the indexes, from the given one on, of the lines whose ids have a nonzero count in the other list
+	private static int[] sharedLines(int[] lines, int from, int[] otherCounts) {
+		int[] result = new int[lines.length];
+		int count = 0;
+		for (int i = from; i < lines.length; i++) {
+			if (otherCounts[lines[i]] > 0) {
+				result[count++] = i;
+			}
+		}
+		return Arrays.copyOf(result, count);
+	}
+
+	private static int[] select(int[] lines, int[] indexes) {
+		int[] result = new int[indexes.length];
+		for (int i = 0; i < indexes.length; i++) {
+			result[i] = lines[indexes[i]];
+		}
+		return result;
+	}
+
+	/*
+	 * Myers' diff algorithm in linear space: finds the "middle snake" of an
+	 * optimal edit path by searching forward from the start and backward
+	 * from the end at once, marks its lines as common, and recurs on the
+	 * parts before and after it.  See E. Myers, "An O(ND) Difference
+	 * Algorithm and Its Variations", Algorithmica 1 (1986).
+	 */
+	private static class Myers {
+		private final int[] a;
+		private final int[] b;
+		private final boolean[] commonA;
+		private final boolean[] commonB;
+		private final int[] forward;    // [diagonal k + offset] -> furthest x reached
+		private final int[] backward;   // same, from the ends of a and b
+		private final int offset;
+
+		// the middle snake found by middleSnake: from (snakeX, snakeY), length snakeLength
+		private int snakeX;
+		private int snakeY;
+		private int snakeLength;
+
+		public Myers(int[] a, int[] b) {
+			this.a = a;
+			this.b = b;
+			commonA = new boolean[a.length];
+			commonB = new boolean[b.length];
+			offset = (a.length + b.length + 1) / 2 + 1;
+			forward = new int[2 * offset + 1];
+			backward = new int[2 * offset + 1];
+		}
+
+		/*
+		 * Marks the common lines of a[aLo..aHi) and b[bLo..bHi).
+		 */
+		public void compare(int aLo, int aHi, int bLo, int bHi) {
+			while (aLo < aHi && bLo < bHi && a[aLo] == b[bLo]) {
+				commonA[aLo++] = true;
+				commonB[bLo++] = true;
+			}
+			while (aLo < aHi && bLo < bHi && a[aHi - 1] == b[bHi - 1]) {
+				commonA[--aHi] = true;
+				commonB[--bHi] = true;
+			}
+			if (aLo == aHi || bLo == bHi) {
+				return;   // the rest are all deletions or all additions
+			}
+
+			middleSnake(aLo, aHi, bLo, bHi);
+			int x = snakeX;
+			int y = snakeY;
+			int length = snakeLength;
+			for (int i = 0; i < length; i++) {
+				commonA[x + i] = true;
+				commonB[y + i] = true;
+			}
+			compare(aLo, x, bLo, y);
+			compare(x + length, aHi, y + length, bHi);
+		}
+
+		/*
+		 * Finds the middle snake of a[aLo..aHi) and b[bLo..bHi), which must
+		 * both be non-empty and differ at both ends.  Diagonal k holds the
+		 * points with x - y == k, relative to (aLo, bLo) going forward and to
+		 * (aHi, bHi) going backward.
+		 */
+		private void middleSnake(int aLo, int aHi, int bLo, int bHi) {
+			int n = aHi - aLo;
+			int m = bHi - bLo;
+			int delta = n - m;
+			boolean odd = (delta & 1) != 0;
+			forward[offset + 1] = 0;
+			backward[offset + 1] = 0;
+			for (int d = 0; d <= (n + m + 1) / 2; d++) {
+				for (int k = -d; k <= d; k += 2) {
+					int x = (k == -d || (k != d && forward[offset + k - 1] < forward[offset + k + 1]))
+							? forward[offset + k + 1] : forward[offset + k - 1] + 1;
+					int y = x - k;
+					int x0 = x;
+					while (x < n && y < m && a[aLo + x] == b[bLo + y]) {
+						x++;
+						y++;
+					}
+					forward[offset + k] = x;
+					if (odd && k >= delta - (d - 1) && k <= delta + (d - 1)
+							&& x + backward[offset + delta - k] >= n) {
+						setSnake(aLo + x0, bLo + x0 - k, x - x0);
+						return;
+					}
+				}
+				for (int k = -d; k <= d; k += 2) {
+					int x = (k == -d || (k != d && backward[offset + k - 1] < backward[offset + k + 1]))
+							? backward[offset + k + 1] : backward[offset + k - 1] + 1;
+					int y = x - k;
+					int x0 = x;
+					while (x < n && y < m && a[aHi - 1 - x] == b[bHi - 1 - y]) {
+						x++;
+						y++;
+					}
+					backward[offset + k] = x;
+					if (!odd && delta - k >= -d && delta - k <= d
+							&& x + forward[offset + delta - k] >= n) {
+						setSnake(aHi - x, bHi - y, x - x0);
+						return;
+					}
+				}
+			}
+			throw new IllegalStateException("no middle snake found");
+		}
+
+		private void setSnake(int x, int y, int length) {
+			snakeX = x;
+			snakeY = y;
+			snakeLength = length;
+		}
+	}
+
 	public static class Difference {
 		public static enum Type { DELETE, ADD, MODIFY }
 		public Type type;
@@ -317,182 +612,19 @@ public class Diff {
 	public static String diff(String s1, String s2, int flags) {
 	    s1 = String.valueOf(s1);
 	    s2 = String.valueOf(s2);
-		String[] lines1 = s1.split("\r?\n");
-	    String[] lines2 = s2.split("\r?\n");
-	    String[] lines1Original = Arrays.copyOf(lines1, lines1.length);
-	    String[] lines2Original = Arrays.copyOf(lines2, lines2.length);
-
-	    if ((flags & IGNORE_NUMBERS) != 0) {
-	        s1 = s1.replaceAll("[0-9]+", "###");
-	        s2 = s2.replaceAll("[0-9]+", "###");
-	        lines1 = s1.split("\r?\n");
-	        lines2 = s2.split("\r?\n");
-	    }
-	    if ((flags & IGNORE_NONNUMBERS) != 0) {
-	        s1 = s1.replaceAll("[^0-9\n]+", " ");
-	        s2 = s2.replaceAll("[^0-9\n]+", " ");
-	        lines1 = s1.split("\r?\n");
-	        lines2 = s2.split("\r?\n");
-	    }
-	    if ((flags & IGNORE_PUNCTUATION) != 0) {
-	        String punct = "[.,?!'\"()\\/#$%@^&*_\\[\\]{}|<>:;-]+";
-	    	s1 = s1.replaceAll(punct, "");
-	        s2 = s2.replaceAll(punct, "");
-	        lines1 = s1.split("\r?\n");
-	        lines2 = s2.split("\r?\n");
-	    }
-	    if ((flags & IGNORE_AFTERDECIMAL) != 0) {
-	        s1 = s1.replaceAll("\\.[0-9]+", ".#");
-	        s2 = s2.replaceAll("\\.[0-9]+", ".#");
-	        lines1 = s1.split("\r?\n");
-	        lines2 = s2.split("\r?\n");
-	    }
-	    if ((flags & IGNORE_CASE) != 0) {
-	        s1 = s1.toLowerCase();
-	        s2 = s2.toLowerCase();
-	        lines1 = s1.split("\r?\n");
-	        lines2 = s2.split("\r?\n");
-	    }
-	    if ((flags & IGNORE_CHARORDER) != 0) {
-	        ArrayList<String> lines1Sorted = new ArrayList<String>();
-	        for (String line : lines1) {
-	            line = StringUtils.sortChars(line);
-	            lines1Sorted.add(line);
-	        }
-	        lines1 = lines1Sorted.toArray(new String[0]);
-	        s1 = StringUtils.join(lines1, "\n");
+	    String[] lines1Original = LineNormalizer.split(s1);
+	    String[] lines2Original = LineNormalizer.split(s2);
+	    LineNormalizer normalizer = new LineNormalizer(flags);
+	    String[] text1 = normalizer.normalizeText(lines1Original, s1.indexOf('\n') < 0);
+	    String[] text2 = normalizer.normalizeText(lines2Original, s2.indexOf('\n') < 0);
 
-	        ArrayList<String> lines2Sorted = new ArrayList<String>();
-	        for (String line : lines2) {
-	            line = StringUtils.sortChars(line);
-	            lines2Sorted.add(line);
-	        }
-	        lines2 = lines2Sorted.toArray(new String[0]);
-	        s2 = StringUtils.join(lines2, "\n");
-	    }
-	    if ((flags & IGNORE_LINEORDER) != 0) {
-	        Arrays.sort(lines1);
-	        Arrays.sort(lines2);
-	        s1 = StringUtils.join(lines1, "\n");
-	        s2 = StringUtils.join(lines2, "\n");
-	    }
-	    if ((flags & IGNORE_WHITESPACE) != 0) {
-	        for (int i = 0; i < lines1.length; i++) {
-	            lines1[i] = StringUtils.removeWhitespace(lines1[i]);
-	        }
-	        for (int i = 0; i < lines2.length; i++) {
-	            lines2[i] = StringUtils.removeWhitespace(lines2[i]);
-	        }
-	    }
-
-	    if (StringUtils.trimR(s1).equals(StringUtils.trimR(s2))) {
+	    if (sameText(text1, text2)) {
 	        return NO_DIFFS_MESSAGE;
 	    }
+	    String[] lines1 = normalizer.removeWhitespace(text1);
+	    String[] lines2 = normalizer.removeWhitespace(text2);
 
-	    // build a reverse-index array using the line as key and line number as value
-	    // don't store blank lines, so they won't be targets of the shortest distance
-	    // search
-	    Map<String, Set<Integer>> reverse1 = new TreeMap<String, Set<Integer>>();
-	    Map<String, Set<Integer>> reverse2 = new TreeMap<String, Set<Integer>>();
-	    for (int i = 0; i < lines1.length; i++) {
-	        String line = lines1[i];
-	        if (line.length() > 0) {
-	            if (!reverse1.containsKey(line)) {
-	            	reverse1.put(line, new TreeSet<Integer>());
-	            }
-	        	reverse1.get(line).add(i);
-	        }
-	    }
-	    for (int i = 0; i < lines2.length; i++) {
-	        String line = lines2[i];
-	        if (line.length() > 0) {
-	            if (!reverse2.containsKey(line)) {
-	            	reverse2.put(line, new TreeSet<Integer>());
-	            }
-	        	reverse2.get(line).add(i);
-	        }
-	    }
-
-	    // indexes of current lines within each file
-	    // (start at beginning of each list)
-	    int index1 = 0;
-	    int index2 = 0;
-	    List<Integer> actions = new ArrayList<Integer>();
-
-	    // walk this loop until we reach the end of one of the lists of lines
-	    while (index1 < (int) lines1.length && index2 < (int) lines2.length) {
-	        // if we have a common line, save it and go to the next
-	        if (lines1[index1].equals(lines2[index2])) {
-	            actions.add(4);
-	            index1++;
-	            index2++;
-	            continue;
-	        }
-	        // otherwise, find the shortest move (Manhattan-distance) from the
-	        // current location
-	        int best1 = lines1.length;
-	        int best2 = lines2.length;
-	        int sub1 = index1;
-	        int sub2 = index2;
-	        while ((sub1 + sub2 - index1 - index2) < (best1 + best2 - index1 - index2)) {
-	            int d = -1;
-	            if (lines2.length > sub2 && reverse1.containsKey(lines2[sub2])) {
-	                for (int lineNumber : reverse1.get(lines2[sub2])) {
-	                    if (lineNumber >= sub1) {
-	                        d = lineNumber;
-	                        break;
-	                    }
-	                }
-	            }
-	            if (d >= sub1 && (d + sub2 - index1 - index2) < (best1 + best2 - index1 - index2)) {
-	                best1 = d;
-	                best2 = sub2;
-	            }
-
-	            d = -1;
-	            if (lines1.length > sub1 && reverse2.containsKey(lines1[sub1])) {
-	                for (int lineNumber : reverse2.get(lines1[sub1])) {
-	                    if (lineNumber >= sub2) {
-	                        d = lineNumber;
-	                        break;
-	                    }
-	                }
-	            }
-	            if (d >= sub2 && (d + sub1 - index1 - index2) < (best1 + best2 - index1 - index2)) {
-	                best1 = sub1;
-	                best2 = d;
-	            }
-
-	            sub1++;
-	            sub2++;
-	        }
-
-	        while (index1 < best1) {
-	            actions.add(1);
-	            index1++;
-	        }  // deleted elements
-
-	        while (index2 < best2) {
-	            actions.add(2);
-	            index2++;
-	        }  // added elements
-	    }
-
-	    // we've reached the end of one list, now walk to the end of the other
-	    while (index1 < (int) lines1.length) {
-	        actions.add(1);
-	        index1++;
-	    }  // deleted elements
-
-	    if ((flags & IGNORE_TRAILING) != 0) {
-	        while (index2 < (int) lines2.length) {
-	            actions.add(2);
-	            index2++;
-	        }  // added elements
-	    }
-
-	    // and this marks our ending point
-	    actions.add(8);
+	    int[] actions = align(lines1, lines2, flags);
 
 	    int op = 0;
 	    int x0 = 0;
@@ -513,42 +645,8 @@ public class Diff {
 	        }
 
 	        if (op > 0) {
-	            boolean multipleLines = (x1 != x0 + 1);
-	            String xstr = "" + (multipleLines ? ((x0 + 1) + "-" + x1) : x1);
-	            String ystr = "" + ((y1 != y0 + 1) ? ((y0 + 1) + "-" + y1) : y1);
-	            String linesStr = "\nLine" + (multipleLines ? "s " : " ");
-	            String doStr = "do" + (multipleLines ? "" : "es");
-	            if (op == 1) {
-	                out.add(linesStr + xstr + " deleted near student line " + y1);
-	            } else if (op == 3) {
-	                if (xstr.equals(ystr)) {
-	                    out.add(linesStr + xstr + " " + doStr + " not match");
-	                } else {
-	                    out.add(linesStr + xstr + " changed to student line " + ystr);
-	                }
-	            }
-
-	            while (x0 < x1) {
-	                out.add("EXPECTED < " + lines1Original[x0]);
-	                x0++;
-	            }   // deleted elems
-
-	            if (op == 2) {
-	                if ((flags & IGNORE_LEADING) == 0 || x1 > 0) {
-	                    // out.add(linesStr + x1 + " added at student line " + ystr);
-	                	// Marty 2015/04/21
-	                	out.add(linesStr + " added near student line " + ystr);
-	                }
-	            } else if (op == 3) {
-	                // out += "---";
-	            }
-
-	            while (y0 < y1) {
-	                if ((flags & IGNORE_LEADING) == 0 || op != 2 || x1 > 0) {
-	                    out.add("STUDENT  > " + lines2Original[y0]);
-	                }
-	                y0++;
-	            }   // added elems
+	            addMessages(out, Arrays.asList(lines1Original).subList(x0, x1),
+	                    Arrays.asList(lines2Original).subList(y0, y1), x0, x1, y0, y1, flags);
 	        }
 	        x1++;
 	        x0 = x1;
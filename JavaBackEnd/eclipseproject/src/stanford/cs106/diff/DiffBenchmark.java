@@ -0,0 +1,238 @@
+/*
+ * Rough timing of the original greedy line-matching search against the
+ * Myers diff now used by Diff, on program output of 100,000 lines with a
+ * few hundred, and then ten thousand, lines added, removed, or changed.  Since the greedy search
+ * does not always find a minimal diff, the number of lines each one
+ * reports as different is printed too.
+ *
+ * Then times the normalization done for the IGNORE_* flags, the old way
+ * (a regular expression over the whole text per flag, splitting the text
+ * again after each) against LineNormalizer, and whole diffs with strict
+ * and lenient flags.
+ *
+ * Last, times StreamingDiff against diffAsList on the same output, and on a
+ * student program that never stops printing, either the same line or blank
+ * lines, which StreamingDiff gives up on after its default limit of
+ * differing lines.
+ *
+ * @author Marty Stepp
+ * @version 2015/06/06
+ */
+
+package stanford.cs106.diff;
+
+import java.io.*;
+import java.util.*;
+
+public class DiffBenchmark {
+	private static final int LINES = 100000;
+	private static final int[] EDITS = {300, 10000};
+	private static final int LENIENT = Diff.FLAGS_DEFAULT_LENIENT | Diff.IGNORE_NUMBERS
+			| Diff.IGNORE_PUNCTUATION | Diff.IGNORE_AFTERDECIMAL;
+
+	public static void main(String[] args) throws IOException {
+		for (int pass = 0; pass < 2; pass++) {
+			// first pass is warm-up, on smaller output
+			boolean print = pass == 1;
+			int lines = print ? LINES : LINES / 10;
+			for (int edits : EDITS) {
+				time(lines, edits, print);
+			}
+			timeNormalize(lines, print);
+			timeStreaming(lines, print);
+		}
+	}
+
+	private static void time(int lines, int edits, boolean print) {
+		String[][] output = makeOutput(lines, edits, new Random(42));
+		String[] expected = output[0];
+		String[] student = output[1];
+
+		long start = System.nanoTime();
+		int[] greedy = Diff.alignGreedy(expected, student, Diff.FLAGS_DEFAULT);
+		long greedyTime = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		int[] myers = Diff.align(expected, student, Diff.FLAGS_DEFAULT);
+		long myersTime = System.nanoTime() - start;
+
+		if (print) {
+			System.out.printf("%d lines, %d edits%n", lines, edits);
+			System.out.printf("greedy %8.1f ms   %5d lines differ%n", greedyTime / 1e6, countChanges(greedy));
+			System.out.printf("Myers  %8.1f ms   %5d lines differ%n", myersTime / 1e6, countChanges(myers));
+		}
+	}
+
+	private static void timeNormalize(int lines, boolean print) {
+		String[][] output = makeOutput(lines, EDITS[0], new Random(42));
+		String expected = join(output[0]);
+		String student = join(output[1]);
+
+		long start = System.nanoTime();
+		String[] regex = regexNormalize(expected, LENIENT);
+		long regexTime = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		String[] normalized = new LineNormalizer(LENIENT).normalize(LineNormalizer.split(expected), false);
+		long normalizerTime = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		int strictCount = Diff.diffAsList(expected, student, Diff.FLAGS_DEFAULT).size();
+		long strictTime = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		int lenientCount = Diff.diffAsList(expected, student, LENIENT).size();
+		long lenientTime = System.nanoTime() - start;
+
+		if (print) {
+			System.out.printf("normalize %d lines: regex %6.1f ms, LineNormalizer %6.1f ms (%s)%n",
+					lines, regexTime / 1e6, normalizerTime / 1e6,
+					Arrays.equals(regex, normalized) ? "same result" : "DIFFERENT RESULT");
+			System.out.printf("diffAsList: strict %6.1f ms (%d), lenient %6.1f ms (%d)%n",
+					strictTime / 1e6, strictCount, lenientTime / 1e6, lenientCount);
+		}
+	}
+
+	private static void timeStreaming(int lines, boolean print) throws IOException {
+		String[][] output = makeOutput(lines, EDITS[0], new Random(42));
+		String expected = join(output[0]);
+		String student = join(output[1]);
+
+		long start = System.nanoTime();
+		List<Diff.Difference> list = Diff.diffAsList(expected, student, Diff.FLAGS_DEFAULT_STRICT);
+		long listTime = System.nanoTime() - start;
+
+		StreamingDiff streaming = new StreamingDiff(Diff.FLAGS_DEFAULT_STRICT);
+		streaming.setMaxDifferences(Integer.MAX_VALUE);
+		start = System.nanoTime();
+		StreamingDiff.Result result = streaming.diff(new StringReader(expected), new StringReader(student));
+		long streamingTime = System.nanoTime() - start;
+
+		if (print) {
+			System.out.printf("diffAsList    %6.1f ms (%d)%n", listTime / 1e6, list.size());
+			System.out.printf("StreamingDiff %6.1f ms (%d)%n", streamingTime / 1e6, result.getDifferences().size());
+		}
+		timeRunaway(expected, "still running...\n", print);
+		timeRunaway(expected, "\n", print);
+	}
+
+	/*
+	 * Times StreamingDiff on the expected output followed by the given line
+	 * forever, as from a student program stuck in a loop.
+	 */
+	private static void timeRunaway(final String expected, final String line, boolean print)
+			throws IOException {
+		Reader runaway = new Reader() {
+			private long index;
+
+			public int read(char[] buffer, int offset, int length) {
+				for (int i = 0; i < length; i++, index++) {
+					buffer[offset + i] = index < expected.length() ? expected.charAt((int) index)
+							: line.charAt((int) ((index - expected.length()) % line.length()));
+				}
+				return length;
+			}
+
+			public void close() {
+				// nothing to close
+			}
+		};
+		long start = System.nanoTime();
+		StreamingDiff.Result result = StreamingDiff.diff(new StringReader(expected), runaway,
+				Diff.FLAGS_DEFAULT_STRICT);
+		long time = System.nanoTime() - start;
+
+		if (print) {
+			System.out.printf("runaway output of %-20s %6.1f ms, stopped after %d lines (%s)%n",
+					line.trim().isEmpty() ? "blank lines:" : "\"" + line.trim() + "\":",
+					time / 1e6, result.getActualLineCount(),
+					result.isTruncated() ? "truncated" : "NOT TRUNCATED");
+		}
+	}
+
+	/*
+	 * The normalization Diff used to do for these flags, which are the only
+	 * ones timed here.
+	 */
+	private static String[] regexNormalize(String s, int flags) {
+		String[] lines = s.split("\r?\n");
+		if ((flags & Diff.IGNORE_NUMBERS) != 0) {
+			s = s.replaceAll("[0-9]+", "###");
+			lines = s.split("\r?\n");
+		}
+		if ((flags & Diff.IGNORE_PUNCTUATION) != 0) {
+			s = s.replaceAll("[.,?!'\"()\\/#$%@^&*_\\[\\]{}|<>:;-]+", "");
+			lines = s.split("\r?\n");
+		}
+		if ((flags & Diff.IGNORE_AFTERDECIMAL) != 0) {
+			s = s.replaceAll("\\.[0-9]+", ".#");
+			lines = s.split("\r?\n");
+		}
+		if ((flags & Diff.IGNORE_CASE) != 0) {
+			s = s.toLowerCase();
+			lines = s.split("\r?\n");
+		}
+		if ((flags & Diff.IGNORE_WHITESPACE) != 0) {
+			for (int i = 0; i < lines.length; i++) {
+				lines[i] = lines[i].replaceAll("[ \r\n\t\f]+", "");
+			}
+		}
+		return lines;
+	}
+
+	private static String join(String[] lines) {
+		StringBuilder sb = new StringBuilder();
+		for (String line : lines) {
+			sb.append(line).append('\n');
+		}
+		return sb.toString();
+	}
+
+	private static int countChanges(int[] actions) {
+		int count = 0;
+		for (int action : actions) {
+			if (action == 1 || action == 2) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/*
+	 * Returns output that looks like a test program's, with many repeated
+	 * lines: results drawn from a few thousand possibilities, separator and
+	 * blank lines, and a student version with scattered lines added,
+	 * removed, and changed.
+	 */
+	private static String[][] makeOutput(int lines, int edits, Random rand) {
+		List<String> expected = new ArrayList<String>();
+		for (int i = 0; i < lines; i++) {
+			if (i % 50 == 0) {
+				expected.add("");
+			} else if (i % 50 == 1) {
+				expected.add("----------------");
+			} else {
+				expected.add("result " + rand.nextInt(100) + " = " + rand.nextInt(50));
+			}
+		}
+		List<String> student = new ArrayList<String>(expected);
+		for (int i = 0; i < edits; i++) {
+			int index = rand.nextInt(student.size());
+			switch (rand.nextInt(3)) {
+			case 0:
+				student.add(index, "debug: " + rand.nextInt(100));
+				break;
+			case 1:
+				student.remove(index);
+				break;
+			default:
+				student.set(index, "result " + rand.nextInt(100) + " = " + rand.nextInt(50));
+				break;
+			}
+		}
+		return new String[][] {
+			expected.toArray(new String[0]),
+			student.toArray(new String[0])
+		};
+	}
+}
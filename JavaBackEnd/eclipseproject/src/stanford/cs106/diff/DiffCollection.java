@@ -78,7 +78,7 @@ public class DiffCollection {
 	 * <code>onANotB</code>, and <code>onBNotA</code>.
 	 */
 	protected void traverseSequences() {
-		Integer[] matches = getLongestCommonSubsequences();
+		int[] matches = longestCommonSubsequence();
 
 		int lastA = a.length - 1;
 		int lastB = b.length - 1;
@@ -88,12 +88,12 @@ public class DiffCollection {
 		int lastMatch = matches.length - 1;
 
 		for (ai = 0; ai <= lastMatch; ++ai) {
-			Integer bLine = matches[ai];
+			int bLine = matches[ai];
 
-			if (bLine == null) {
+			if (bLine == Difference.NONE) {
 				onANotB(ai, bi);
 			} else {
-				while (bi < bLine.intValue()) {
+				while (bi < bLine) {
 					onBNotA(ai, bi++);
 				}
 
@@ -216,6 +216,204 @@ public class DiffCollection {
 	 * Returns an array of the longest common subsequences.
 	 */
 	public Integer[] getLongestCommonSubsequences() {
+		int[] matches = longestCommonSubsequence();
+		Integer[] result = new Integer[matches.length];
+		for (int i = 0; i < matches.length; i++) {
+			if (matches[i] != Difference.NONE) {
+				result[i] = matches[i];
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns a longest common subsequence of a and b, as an array whose
+	 * element i is the index in b matched with a[i], or Difference.NONE.  The
+	 * array ends at the last matched element of a.
+	 *
+	 * <p>
+	 * This is the Hunt-Szymanski algorithm on primitive arrays: the elements
+	 * are numbered once, the thresholds are an int array searched with binary
+	 * search, and the links that record each match's predecessor are kept in
+	 * a pool of ints that is compacted when it fills up.
+	 */
+	protected int[] longestCommonSubsequence() {
+		int aStart = 0;
+		int aEnd = a.length - 1;
+		int bStart = 0;
+		int bEnd = b.length - 1;
+		int[] matches = new int[a.length];
+		Arrays.fill(matches, Difference.NONE);
+
+		while (aStart <= aEnd && bStart <= bEnd && equals(a[aStart], b[bStart])) {
+			matches[aStart++] = bStart++;
+		}
+		while (aStart <= aEnd && bStart <= bEnd && equals(a[aEnd], b[bEnd])) {
+			matches[aEnd--] = bEnd--;
+		}
+
+		// number the elements of b, and list the positions of each number in b
+		Map<Object, Integer> ids = null;
+		if (a.length > 0 && a[0] instanceof Comparable<?>) {
+			// this uses the Comparable interface
+			ids = new TreeMap<Object, Integer>();
+		} else {
+			// this just uses hashCode()
+			ids = new HashMap<Object, Integer>();
+		}
+		int bLength = Math.max(0, bEnd - bStart + 1);
+		int[] bIds = new int[bLength];
+		for (int bi = bStart; bi <= bEnd; bi++) {
+			Integer id = ids.get(b[bi]);
+			if (id == null) {
+				id = ids.size();
+				ids.put(b[bi], id);
+			}
+			bIds[bi - bStart] = id;
+		}
+		int[] positionStart = new int[ids.size() + 1];   // positions of id are [start[id], start[id + 1])
+		for (int id : bIds) {
+			positionStart[id + 1]++;
+		}
+		for (int id = 0; id < ids.size(); id++) {
+			positionStart[id + 1] += positionStart[id];
+		}
+		int[] positions = new int[bLength];
+		int[] next = Arrays.copyOf(positionStart, ids.size());
+		for (int bi = bStart; bi <= bEnd; bi++) {
+			positions[next[bIds[bi - bStart]]++] = bi;
+		}
+
+		// thresh[k] is the smallest index in b at which a common subsequence
+		// of length k + 1 can end; threshLinks[k] is its link in the pool
+		int[] thresh = new int[Math.min(Math.max(0, aEnd - aStart + 1), bLength)];
+		int[] threshLinks = new int[thresh.length];
+		int length = 0;
+		LinkPool links = new LinkPool();
+		for (int i = aStart; i <= aEnd; i++) {
+			Integer id = ids.get(a[i]);
+			if (id == null) {
+				continue;
+			}
+			// go backward through b, so that one element of a can't extend its own match
+			int hi = length;
+			for (int p = positionStart[id + 1] - 1; p >= positionStart[id]; p--) {
+				int j = positions[p];
+				int lo = 0;
+				while (lo < hi) {
+					int mid = (lo + hi) >>> 1;
+					if (thresh[mid] < j) {
+						lo = mid + 1;
+					} else {
+						hi = mid;
+					}
+				}
+				int k = lo;
+				if (k < length && thresh[k] == j) {
+					continue;
+				}
+				if (links.isFull()) {
+					links.compact(threshLinks, length);
+				}
+				thresh[k] = j;
+				threshLinks[k] = links.add(k == 0 ? LinkPool.NONE : threshLinks[k - 1], i, j);
+				if (k == length) {
+					length++;
+				}
+				hi = k;   // later positions are smaller, so they go no higher
+			}
+		}
+
+		if (length > 0) {
+			for (int link = threshLinks[length - 1]; link != LinkPool.NONE; link = links.previous(link)) {
+				matches[links.aIndex(link)] = links.bIndex(link);
+			}
+		}
+
+		int size = matches.length;
+		while (size > 0 && matches[size - 1] == Difference.NONE) {
+			size--;
+		}
+		return Arrays.copyOf(matches, size);
+	}
+
+	/*
+	 * The links of longestCommonSubsequence, each a match of a[aIndex] with
+	 * b[bIndex] and the index of the link for the match before it, stored
+	 * three ints apiece.  Links no longer reachable from the thresholds are
+	 * dropped when the pool fills up; a link always comes after the one
+	 * before it, so this keeps the links in order.
+	 */
+	private static class LinkPool {
+		public static final int NONE = -1;
+
+		private int[] data = new int[3 * 1024];
+		private int size;   // number of links
+
+		public int add(int previous, int aIndex, int bIndex) {
+			data[3 * size] = previous;
+			data[3 * size + 1] = aIndex;
+			data[3 * size + 2] = bIndex;
+			return size++;
+		}
+
+		public int previous(int link) {
+			return data[3 * link];
+		}
+
+		public int aIndex(int link) {
+			return data[3 * link + 1];
+		}
+
+		public int bIndex(int link) {
+			return data[3 * link + 2];
+		}
+
+		public boolean isFull() {
+			return 3 * size == data.length;
+		}
+
+		/*
+		 * Drops the links that can't be reached from the first count links
+		 * of threshLinks, updating those to the links' new indexes, and makes
+		 * sure there is room for at least as many links again.
+		 */
+		public void compact(int[] threshLinks, int count) {
+			int[] newIndex = new int[size];
+			Arrays.fill(newIndex, NONE);
+			for (int k = 0; k < count; k++) {
+				for (int link = threshLinks[k]; link != NONE && newIndex[link] == NONE;
+						link = previous(link)) {
+					newIndex[link] = 0;   // mark it as reachable
+				}
+			}
+			int live = 0;
+			for (int link = 0; link < size; link++) {
+				if (newIndex[link] != NONE) {
+					int previous = previous(link);
+					data[3 * live] = previous == NONE ? NONE : newIndex[previous];
+					data[3 * live + 1] = aIndex(link);
+					data[3 * live + 2] = bIndex(link);
+					newIndex[link] = live++;
+				}
+			}
+			for (int k = 0; k < count; k++) {
+				threshLinks[k] = newIndex[threshLinks[k]];
+			}
+			size = live;
+			if (6 * live > data.length) {
+				data = Arrays.copyOf(data, 2 * data.length);
+			}
+		}
+	}
+
+	/**
+	 * The original, boxed version of getLongestCommonSubsequences, kept for
+	 * comparison by DiffCollectionBenchmark.  Its links are keyed by threshold
+	 * index rather than chained, so a later match can replace the predecessor
+	 * of an earlier one; the result is not always a common subsequence.
+	 */
+	Integer[] boxedLongestCommonSubsequences() {
 		int aStart = 0;
 		int aEnd = a.length - 1;
 
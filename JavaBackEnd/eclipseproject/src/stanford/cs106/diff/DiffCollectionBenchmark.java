@@ -0,0 +1,85 @@
+/*
+ * Rough timing of DiffCollection's original boxed longest common
+ * subsequence against the primitive-array version it now uses, on two
+ * sequences of 50,000 elements: a sequence of values drawn from a few
+ * thousand possibilities, and a copy with scattered elements added,
+ * removed, and changed.  The number of matched elements is printed for each,
+ * and whether they form a valid common subsequence.
+ *
+ * @author Marty Stepp
+ * @version 2015/06/06
+ */
+
+package stanford.cs106.diff;
+
+import java.util.*;
+
+public class DiffCollectionBenchmark {
+	private static final int LENGTH = 50000;
+	private static final int[] EDITS = {500, 5000};
+
+	public static void main(String[] args) {
+		for (int pass = 0; pass < 2; pass++) {
+			// first pass is warm-up, on shorter sequences
+			boolean print = pass == 1;
+			int length = print ? LENGTH : LENGTH / 10;
+			for (int edits : EDITS) {
+				time(length, edits, print);
+			}
+		}
+	}
+
+	private static void time(int length, int edits, boolean print) {
+		Random rand = new Random(42);
+		List<String> a = new ArrayList<String>();
+		for (int i = 0; i < length; i++) {
+			a.add("value " + rand.nextInt(5000));
+		}
+		List<String> b = new ArrayList<String>(a);
+		for (int i = 0; i < edits; i++) {
+			int index = rand.nextInt(b.size());
+			switch (rand.nextInt(3)) {
+			case 0:
+				b.add(index, "added " + rand.nextInt(100));
+				break;
+			case 1:
+				b.remove(index);
+				break;
+			default:
+				b.set(index, "value " + rand.nextInt(5000));
+				break;
+			}
+		}
+		String[] aArray = a.toArray(new String[0]);
+		String[] bArray = b.toArray(new String[0]);
+
+		long start = System.nanoTime();
+		Integer[] boxed = new DiffCollection(aArray, bArray).boxedLongestCommonSubsequences();
+		long boxedTime = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		Integer[] primitive = new DiffCollection(aArray, bArray).getLongestCommonSubsequences();
+		long primitiveTime = System.nanoTime() - start;
+
+		if (print) {
+			System.out.printf("%d elements, %d edits%n", length, edits);
+			System.out.printf("boxed     %8.1f ms   %s%n", boxedTime / 1e6, describe(boxed));
+			System.out.printf("primitive %8.1f ms   %s%n", primitiveTime / 1e6, describe(primitive));
+		}
+	}
+
+	// returns the number of matches, and whether they are in order in both sequences
+	private static String describe(Integer[] matches) {
+		int count = 0;
+		int last = -1;
+		boolean valid = true;
+		for (Integer match : matches) {
+			if (match != null) {
+				valid = valid && match > last;
+				last = match;
+				count++;
+			}
+		}
+		return count + " matched" + (valid ? "" : " (NOT A COMMON SUBSEQUENCE)");
+	}
+}
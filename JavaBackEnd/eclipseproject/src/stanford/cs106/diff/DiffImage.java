@@ -32,6 +32,9 @@ public class DiffImage extends JPanel implements ActionListener, ChangeListener
     private BufferedImage image2;
     private String image1name;
     private int numDiffPixels;
+    private int tolerance = 0;
+    private ImageDiff.Result diff;          // null if the images changed since it was found
+    private BufferedImage highlightMask;    // diff's mask in highlightColor, or null
     private int opacity = 50;
     private String label1Text = "Expected";
     private String label2Text = "Actual";
@@ -80,6 +83,7 @@ public class DiffImage extends JPanel implements ActionListener, ChangeListener
                                                    "Choose highlight color", highlightColor);
             if (color != null) {
                 highlightColor = color;
+                highlightMask = null;
                 colorButton.setBackground(color);
                 colorButton.setForeground(color);
                 repaint();
@@ -93,30 +97,15 @@ public class DiffImage extends JPanel implements ActionListener, ChangeListener
         }
     }
     
-    // Counts number of pixels that differ between the two images.
+    // Counts number of pixels that differ between the two images,
+    // by more than the tolerance in any channel.
     public void countDiffPixels() {
         if (image1 == null || image2 == null) {
             return;
         }
-        
-        int w1 = image1.getWidth();
-        int h1 = image1.getHeight();
-        int w2 = image2.getWidth();
-        int h2 = image2.getHeight();
-        int wmax = Math.max(w1, w2);
-        int hmax = Math.max(h1, h2);
-        
-        // check each pair of pixels
-        numDiffPixels = 0;
-        for (int y = 0; y < hmax; y++) {
-            for (int x = 0; x < wmax; x++) {
-                int pixel1 = (x < w1 && y < h1) ? image1.getRGB(x, y) : 0;
-                int pixel2 = (x < w2 && y < h2) ? image2.getRGB(x, y) : 0;
-                if (pixel1 != pixel2) {
-                    numDiffPixels++;
-                }
-            }
-        }
+        diff = new ImageDiff(tolerance).compare(image1, image2);
+        highlightMask = null;
+        numDiffPixels = diff.getDiffPixelCount();
     }
     
     // initializes diffimage panel
@@ -155,6 +144,22 @@ public class DiffImage extends JPanel implements ActionListener, ChangeListener
         g2.drawImage(image, 0, 0, this);
     }
     
+    // returns the smallest rectangle holding all differing pixels, or null if none
+    public Rectangle getDiffBounds() {
+        if (diff == null) {
+            countDiffPixels();
+        }
+        return diff == null ? null : diff.getBounds();
+    }
+    
+    // returns the number of pixels that differ between the two images
+    public int getDiffPixelCount() {
+        if (diff == null) {
+            countDiffPixels();
+        }
+        return numDiffPixels;
+    }
+    
     // paints the DiffImage panel
     public void paintComponent(Graphics g) {
         super.paintComponent(g);
@@ -176,25 +181,13 @@ public class DiffImage extends JPanel implements ActionListener, ChangeListener
         
         // draw the highlighted diffs (if so desired)
         if (highlightDiffs && image1 != null && image2 != null) {
-            int w1 = image1.getWidth();
-            int h1 = image1.getHeight();
-            int w2 = image2.getWidth();
-            int h2 = image2.getHeight();
-            
-            int wmax = Math.max(w1, w2);
-            int hmax = Math.max(h1, h2);
-            
-            // check each pair of pixels
-            g2.setColor(highlightColor);
-            for (int y = 0; y < hmax; y++) {
-                for (int x = 0; x < wmax; x++) {
-                    int pixel1 = (x < w1 && y < h1) ? image1.getRGB(x, y) : 0;
-                    int pixel2 = (x < w2 && y < h2) ? image2.getRGB(x, y) : 0;
-                    if (pixel1 != pixel2) {
-                        g2.fillRect(x, y, 1, 1);
-                    }
-                }
+            if (diff == null) {
+                countDiffPixels();
+            }
+            if (highlightMask == null) {
+                highlightMask = diff.getMask(highlightColor);
             }
+            g2.drawImage(highlightMask, 0, 0, this);
         }
     }
     
@@ -261,6 +254,7 @@ public class DiffImage extends JPanel implements ActionListener, ChangeListener
         }
         
         image1 = image;
+        diff = null;
         setPreferredSize(new Dimension(
                                        Math.max(getPreferredSize().width, image.getWidth()),
                                        Math.max(getPreferredSize().height, image.getHeight()))
@@ -307,6 +301,7 @@ public class DiffImage extends JPanel implements ActionListener, ChangeListener
         }
         
         image2 = image;
+        diff = null;
         setPreferredSize(new Dimension(
                                        Math.max(getPreferredSize().width, image.getWidth()),
                                        Math.max(getPreferredSize().height, image.getHeight()))
@@ -327,6 +322,20 @@ public class DiffImage extends JPanel implements ActionListener, ChangeListener
 
     }
     
+    // sets how much each channel of a pixel may change without counting as
+    // a difference (0-255), and counts the differing pixels again
+    public void setTolerance(int tolerance) {
+        if (tolerance < 0 || tolerance > 255) {
+            throw new IllegalArgumentException("tolerance must be between 0 and 255: " + tolerance);
+        }
+        this.tolerance = tolerance;
+        countDiffPixels();
+        if (diffPixelsLabel != null) {
+            diffPixelsLabel.setText("(" + numDiffPixels + " pixels differ)");
+        }
+        repaint();
+    }
+    
     private void setupComponents() {
         String title = "DiffImage";
         if (image1name != null) {
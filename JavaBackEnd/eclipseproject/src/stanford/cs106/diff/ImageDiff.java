@@ -0,0 +1,340 @@
+/*
+ * @author Marty Stepp
+ * @version 2015/06/06
+ */
+
+package stanford.cs106.diff;
+
+import java.awt.*;
+import java.awt.image.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * An ImageDiff compares two images pixel by pixel, as DiffImage shows them:
+ * the images are lined up at their top-left corners, and where one image is
+ * smaller than the other, its missing pixels count as 0 (transparent black).
+ * Two pixels differ if any of their alpha, red, green and blue values differ
+ * by more than a tolerance, which is 0 unless set otherwise.
+ *
+ * <p>
+ * One pass over the pixels finds how many differ, the smallest rectangle
+ * holding them, and a mask image with the differing pixels set.  Images of
+ * type TYPE_INT_RGB and TYPE_INT_ARGB are read straight from the int arrays
+ * behind their rasters; others are first copied into an int array in one
+ * step.  Bands of rows are compared in parallel on a
+ * ForkJoinPool.
+ */
+public class ImageDiff {
+	/**
+	 * The color in which getMask() shows differing pixels.
+	 */
+	public static final Color DEFAULT_MASK_COLOR = new Color(224, 0, 224);
+
+	private static final int MIN_BAND_PIXELS = 16384;
+	private static final int BANDS_PER_THREAD = 4;
+
+	private static ForkJoinPool defaultPool;
+
+	private final int tolerance;
+
+	/**
+	 * Constructs an ImageDiff that counts any change to a pixel as a
+	 * difference.
+	 */
+	public ImageDiff() {
+		this(0);
+	}
+
+	/**
+	 * Constructs an ImageDiff that ignores changes of up to the given amount
+	 * in each of a pixel's alpha, red, green and blue values.
+	 * @throws IllegalArgumentException if tolerance is not between 0 and 255
+	 */
+	public ImageDiff(int tolerance) {
+		if (tolerance < 0 || tolerance > 255) {
+			throw new IllegalArgumentException("tolerance must be between 0 and 255: " + tolerance);
+		}
+		this.tolerance = tolerance;
+	}
+
+	public int getTolerance() {
+		return tolerance;
+	}
+
+	/**
+	 * Compares the two images, in parallel on a shared pool.
+	 */
+	public Result compare(BufferedImage image1, BufferedImage image2) {
+		return compare(image1, image2, getDefaultPool());
+	}
+
+	/**
+	 * Compares the two images, in parallel on the given pool.
+	 */
+	public Result compare(BufferedImage image1, BufferedImage image2, ForkJoinPool pool) {
+		Pixels pixels1 = new Pixels(image1);
+		Pixels pixels2 = new Pixels(image2);
+		int width = Math.max(pixels1.width, pixels2.width);
+		int height = Math.max(pixels1.height, pixels2.height);
+		Result result = new Result(width, height);
+		if (width == 0 || height == 0) {
+			return result;
+		}
+
+		int bandRows = Math.max((MIN_BAND_PIXELS + width - 1) / width,
+				height / (pool.getParallelism() * BANDS_PER_THREAD));
+		CompareTask task = new CompareTask(pixels1, pixels2, result, 0, height, bandRows);
+		Band band = bandRows >= height ? task.compute() : pool.invoke(task);
+		result.count = band.count;
+		if (band.count > 0) {
+			result.bounds = new Rectangle(band.minX, band.minY,
+					band.maxX - band.minX + 1, band.maxY - band.minY + 1);
+		}
+		return result;
+	}
+
+	/*
+	 * Returns the pool used when a caller doesn't supply one, with one thread
+	 * per available processor.
+	 */
+	private static synchronized ForkJoinPool getDefaultPool() {
+		if (defaultPool == null) {
+			defaultPool = new ForkJoinPool();
+		}
+		return defaultPool;
+	}
+
+	/**
+	 * The differences found by an ImageDiff.
+	 */
+	public static class Result {
+		private final BufferedImage mask;   // 1 bit per pixel, set where the pixels differ
+		private final byte[] maskBits;
+		private final int maskStride;       // bytes per row of maskBits
+		private int count;
+		private Rectangle bounds;
+
+		private Result(int width, int height) {
+			mask = new BufferedImage(Math.max(1, width), Math.max(1, height),
+					BufferedImage.TYPE_BYTE_BINARY, maskColors(DEFAULT_MASK_COLOR));
+			maskBits = ((DataBufferByte) mask.getRaster().getDataBuffer()).getData();
+			maskStride = ((MultiPixelPackedSampleModel) mask.getSampleModel()).getScanlineStride();
+		}
+
+		/**
+		 * Returns the number of pixels that differ.
+		 */
+		public int getDiffPixelCount() {
+			return count;
+		}
+
+		public boolean hasDifferences() {
+			return count > 0;
+		}
+
+		/**
+		 * Returns the smallest rectangle that holds all of the differing
+		 * pixels, or null if there are none.
+		 */
+		public Rectangle getBounds() {
+			return bounds == null ? null : new Rectangle(bounds);
+		}
+
+		/**
+		 * Returns an image the size of the larger of the two images, in which
+		 * the differing pixels are DEFAULT_MASK_COLOR and the rest are
+		 * transparent, for drawing over the images.
+		 */
+		public BufferedImage getMask() {
+			return mask;
+		}
+
+		/**
+		 * Like getMask(), but with the differing pixels in the given color.
+		 * The image shares its pixels with the mask, so this doesn't compare
+		 * the images again.
+		 */
+		public BufferedImage getMask(Color color) {
+			return new BufferedImage(maskColors(color), mask.getRaster(), false, null);
+		}
+
+		private static IndexColorModel maskColors(Color color) {
+			byte[] r = {0, (byte) color.getRed()};
+			byte[] g = {0, (byte) color.getGreen()};
+			byte[] b = {0, (byte) color.getBlue()};
+			byte[] a = {0, (byte) color.getAlpha()};
+			return new IndexColorModel(1, 2, r, g, b, a);
+		}
+	}
+
+	/*
+	 * The pixels of one image as 0xAARRGGBB ints: pixel (x, y) is
+	 * data[offset + y * stride + x] | alpha.
+	 */
+	private static class Pixels {
+		private final int[] data;
+		private final int offset;
+		private final int stride;
+		private final int alpha;   // 0xFF000000 for TYPE_INT_RGB, whose ints have no alpha
+		private final int width;
+		private final int height;
+
+		public Pixels(BufferedImage image) {
+			width = image.getWidth();
+			height = image.getHeight();
+			WritableRaster raster = image.getRaster();
+			int type = image.getType();
+			if ((type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB)
+					&& raster.getDataBuffer() instanceof DataBufferInt
+					&& raster.getSampleModel() instanceof SinglePixelPackedSampleModel) {
+				DataBufferInt buffer = (DataBufferInt) raster.getDataBuffer();
+				data = buffer.getData();
+				stride = ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride();
+				offset = buffer.getOffset() - raster.getSampleModelTranslateY() * stride
+						- raster.getSampleModelTranslateX();
+				alpha = type == BufferedImage.TYPE_INT_RGB ? 0xFF000000 : 0;
+			} else {
+				data = toIntArgb(image);
+				offset = 0;
+				stride = width;
+				alpha = 0;
+			}
+		}
+
+		/*
+		 * Returns the image's pixels as getRGB does.  The byte-interleaved
+		 * types that ImageIO loads most PNG and JPEG files as are copied by
+		 * drawing them into a TYPE_INT_ARGB image, which Java2D does with a
+		 * native loop that gives the same ints as getRGB, only much faster;
+		 * other types go through getRGB itself.
+		 */
+		private static int[] toIntArgb(BufferedImage image) {
+			int type = image.getType();
+			if (type != BufferedImage.TYPE_3BYTE_BGR && type != BufferedImage.TYPE_4BYTE_ABGR
+					&& type != BufferedImage.TYPE_INT_BGR) {
+				return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+			}
+			BufferedImage copy = new BufferedImage(image.getWidth(), image.getHeight(),
+					BufferedImage.TYPE_INT_ARGB);
+			Graphics2D g = copy.createGraphics();
+			g.setComposite(AlphaComposite.Src);
+			g.drawImage(image, 0, 0, null);
+			g.dispose();
+			return ((DataBufferInt) copy.getRaster().getDataBuffer()).getData();
+		}
+	}
+
+	// the differing pixels found in some rows
+	private static class Band {
+		private int count;
+		private int minX = Integer.MAX_VALUE;
+		private int minY = Integer.MAX_VALUE;
+		private int maxX = -1;
+		private int maxY = -1;
+
+		public void add(Band other) {
+			count += other.count;
+			minX = Math.min(minX, other.minX);
+			minY = Math.min(minY, other.minY);
+			maxX = Math.max(maxX, other.maxX);
+			maxY = Math.max(maxY, other.maxY);
+		}
+	}
+
+	/*
+	 * Compares the rows from (inclusive) to to (exclusive), splitting them in
+	 * halves down to bands of bandRows rows.  Each task sets the mask bits of
+	 * its own rows only, and rows of the mask start on byte boundaries, so
+	 * no two tasks write the same byte.
+	 */
+	private class CompareTask extends RecursiveTask<Band> {
+		private static final long serialVersionUID = 1L;
+		private final Pixels pixels1;
+		private final Pixels pixels2;
+		private final Result result;
+		private final int from;
+		private final int to;
+		private final int bandRows;
+
+		public CompareTask(Pixels pixels1, Pixels pixels2, Result result, int from, int to, int bandRows) {
+			this.pixels1 = pixels1;
+			this.pixels2 = pixels2;
+			this.result = result;
+			this.from = from;
+			this.to = to;
+			this.bandRows = bandRows;
+		}
+
+		protected Band compute() {
+			if (to - from <= bandRows) {
+				return compareRows();
+			}
+			int mid = from + (to - from) / 2;
+			CompareTask top = new CompareTask(pixels1, pixels2, result, from, mid, bandRows);
+			CompareTask bottom = new CompareTask(pixels1, pixels2, result, mid, to, bandRows);
+			top.fork();
+			Band band = bottom.compute();
+			band.add(top.join());
+			return band;
+		}
+
+		private Band compareRows() {
+			Band band = new Band();
+			int width = Math.max(pixels1.width, pixels2.width);
+			int[] data1 = pixels1.data;
+			int[] data2 = pixels2.data;
+			int alpha1 = pixels1.alpha;
+			int alpha2 = pixels2.alpha;
+			byte[] mask = result.maskBits;
+			for (int y = from; y < to; y++) {
+				int width1 = y < pixels1.height ? pixels1.width : 0;
+				int width2 = y < pixels2.height ? pixels2.width : 0;
+				int common = Math.min(width1, width2);
+				int row1 = pixels1.offset + y * pixels1.stride;
+				int row2 = pixels2.offset + y * pixels2.stride;
+				int maskRow = y * result.maskStride;
+				int count = 0;
+				int minX = width;
+				int maxX = -1;
+				for (int x = 0; x < width; x++) {
+					int pixel1;
+					int pixel2;
+					if (x < common) {
+						pixel1 = data1[row1 + x] | alpha1;
+						pixel2 = data2[row2 + x] | alpha2;
+					} else {
+						pixel1 = x < width1 ? data1[row1 + x] | alpha1 : 0;
+						pixel2 = x < width2 ? data2[row2 + x] | alpha2 : 0;
+					}
+					if (pixel1 != pixel2 && (tolerance == 0 || exceedsTolerance(pixel1, pixel2))) {
+						count++;
+						minX = Math.min(minX, x);
+						maxX = x;
+						mask[maskRow + (x >> 3)] |= (byte) (0x80 >>> (x & 7));
+					}
+				}
+				if (count > 0) {
+					band.count += count;
+					band.minX = Math.min(band.minX, minX);
+					band.maxX = Math.max(band.maxX, maxX);
+					band.minY = Math.min(band.minY, y);
+					band.maxY = y;
+				}
+			}
+			return band;
+		}
+
+		// returns true if any channel of the two pixels differs by more than the tolerance
+		private boolean exceedsTolerance(int pixel1, int pixel2) {
+			for (int shift = 0; shift < 32; shift += 8) {
+				int value1 = (pixel1 >>> shift) & 0xFF;
+				int value2 = (pixel2 >>> shift) & 0xFF;
+				if (Math.abs(value1 - value2) > tolerance) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+}
@@ -0,0 +1,134 @@
+/*
+ * Rough timing of DiffImage's original pixel-by-pixel comparison, two
+ * getRGB calls per pixel, against ImageDiff, on a pair of 1920x1080
+ * screenshots of a drawing in which a few shapes moved or changed color.
+ * The images are compared as TYPE_INT_RGB, which ImageDiff reads directly,
+ * and as TYPE_3BYTE_BGR, as ImageIO loads most PNG files, which it converts
+ * first.  The number of differing pixels and their
+ * bounds are printed for each, and then the count with a small tolerance.
+ *
+ * @author Marty Stepp
+ * @version 2015/06/06
+ */
+
+package stanford.cs106.diff;
+
+import java.awt.*;
+import java.awt.image.*;
+import java.util.*;
+
+public class ImageDiffBenchmark {
+	private static final int WIDTH = 1920;
+	private static final int HEIGHT = 1080;
+	private static final int SHAPES = 200;
+	private static final int TOLERANCE = 8;
+
+	public static void main(String[] args) {
+		int[] types = {BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_3BYTE_BGR};
+		for (int pass = 0; pass < 2; pass++) {
+			// first pass is warm-up
+			boolean print = pass == 1;
+			for (int type : types) {
+				time(type, print);
+			}
+		}
+		System.exit(0);
+	}
+
+	private static void time(int type, boolean print) {
+		BufferedImage expected = draw(type, false);
+		BufferedImage actual = draw(type, true);
+
+		long start = System.nanoTime();
+		Rectangle bounds = new Rectangle();
+		int perPixelCount = countPerPixel(expected, actual, bounds);
+		long perPixelTime = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		ImageDiff.Result result = new ImageDiff().compare(expected, actual);
+		long imageDiffTime = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		ImageDiff.Result tolerant = new ImageDiff(TOLERANCE).compare(expected, actual);
+		long tolerantTime = System.nanoTime() - start;
+
+		if (print) {
+			boolean same = perPixelCount == result.getDiffPixelCount()
+					&& (perPixelCount == 0 || bounds.equals(result.getBounds()));
+			System.out.printf("%dx%d, %s%n", WIDTH, HEIGHT,
+					type == BufferedImage.TYPE_INT_RGB ? "TYPE_INT_RGB" : "TYPE_3BYTE_BGR");
+			System.out.printf("getRGB    %8.1f ms   %7d pixels differ%n", perPixelTime / 1e6, perPixelCount);
+			System.out.printf("ImageDiff %8.1f ms   %7d pixels differ in %s   %s%n", imageDiffTime / 1e6,
+					result.getDiffPixelCount(), describe(result.getBounds()),
+					same ? "same result" : "DIFFERENT RESULT");
+			System.out.printf("tolerance %d %6.1f ms   %7d pixels differ%n", TOLERANCE,
+					tolerantTime / 1e6, tolerant.getDiffPixelCount());
+		}
+	}
+
+	/*
+	 * Draws a few hundred random shapes; if changed is true, a few of them
+	 * move by a pixel or change color slightly.
+	 */
+	private static BufferedImage draw(int type, boolean changed) {
+		BufferedImage image = new BufferedImage(WIDTH, HEIGHT, type);
+		Graphics2D g = image.createGraphics();
+		g.setColor(Color.WHITE);
+		g.fillRect(0, 0, WIDTH, HEIGHT);
+		Random rand = new Random(42);
+		for (int i = 0; i < SHAPES; i++) {
+			int x = rand.nextInt(WIDTH);
+			int y = rand.nextInt(HEIGHT);
+			int w = 10 + rand.nextInt(200);
+			int h = 10 + rand.nextInt(200);
+			int rgb = rand.nextInt(0x1000000);
+			int change = rand.nextInt(20);
+			if (changed && change == 0) {
+				x++;
+			} else if (changed && change == 1) {
+				rgb ^= 0x040404;
+			}
+			g.setColor(new Color(rgb));
+			if (i % 2 == 0) {
+				g.fillRect(x, y, w, h);
+			} else {
+				g.fillOval(x, y, w, h);
+			}
+		}
+		g.dispose();
+		return image;
+	}
+
+	// DiffImage's original comparison, also finding the bounds of the differences
+	private static int countPerPixel(BufferedImage image1, BufferedImage image2, Rectangle bounds) {
+		int w1 = image1.getWidth();
+		int h1 = image1.getHeight();
+		int w2 = image2.getWidth();
+		int h2 = image2.getHeight();
+		int wmax = Math.max(w1, w2);
+		int hmax = Math.max(h1, h2);
+		int count = 0;
+		for (int y = 0; y < hmax; y++) {
+			for (int x = 0; x < wmax; x++) {
+				int pixel1 = (x < w1 && y < h1) ? image1.getRGB(x, y) : 0;
+				int pixel2 = (x < w2 && y < h2) ? image2.getRGB(x, y) : 0;
+				if (pixel1 != pixel2) {
+					if (count == 0) {
+						bounds.setBounds(x, y, 1, 1);
+					} else {
+						bounds.add(new Rectangle(x, y, 1, 1));
+					}
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	private static String describe(Rectangle bounds) {
+		if (bounds == null) {
+			return "(none)";
+		}
+		return "(" + bounds.x + ", " + bounds.y + ", " + bounds.width + "x" + bounds.height + ")";
+	}
+}
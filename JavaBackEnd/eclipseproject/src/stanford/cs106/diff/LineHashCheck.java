@@ -0,0 +1,90 @@
+/*
+ * Checks that the hashes LineNormalizer gives lines for StreamingDiff,
+ * which compares lines only by hash, differ for all short lines that
+ * normalize differently: every line of up to three printable ASCII
+ * characters under IGNORE_CHARORDER, whose hash is a sum over the
+ * characters, and every line of up to two such characters otherwise.
+ * Prints any collision found and exits with status 1 if there was one.
+ *
+ * @author Marty Stepp
+ * @version 2015/06/06
+ */
+
+package stanford.cs106.diff;
+
+import java.io.*;
+import java.util.*;
+
+public class LineHashCheck {
+	private static final char FIRST = ' ';
+	private static final char LAST = '~';
+
+	public static void main(String[] args) throws IOException {
+		int collisions = check(Diff.IGNORE_CHARORDER, 3) + check(Diff.FLAGS_DEFAULT, 2);
+
+		// a doubled character once hashed the same as a single other one
+		StreamingDiff.Result result = StreamingDiff.diff(new StringReader("A"),
+				new StringReader("  "), Diff.IGNORE_CHARORDER);
+		if (!result.hasDifferences()) {
+			System.out.println("\"A\" and \"  \" compare equal under IGNORE_CHARORDER");
+			collisions++;
+		}
+
+		System.out.println(collisions == 0 ? "no collisions" : collisions + " COLLISIONS");
+		System.exit(collisions == 0 ? 0 : 1);
+	}
+
+	/*
+	 * Hashes every line of up to maxLength characters from FIRST to LAST,
+	 * only in sorted order for IGNORE_CHARORDER, and returns the number of
+	 * lines whose hash is the same as that of a different normalized line.
+	 */
+	private static int check(int flags, int maxLength) {
+		LineNormalizer normalizer = new LineNormalizer(flags);
+		boolean sorted = (flags & Diff.IGNORE_CHARORDER) != 0;
+		Map<Long, String> lines = new HashMap<Long, String>();
+		int collisions = 0;
+		int count = 0;
+		char[] chars = new char[maxLength];
+		for (int length = 0; length <= maxLength; length++) {
+			Arrays.fill(chars, 0, length, FIRST);
+			while (true) {
+				String line = new String(chars, 0, length);
+				normalizer.startLine();
+				for (int i = 0; i < length; i++) {
+					normalizer.put(chars[i]);
+				}
+				normalizer.endLine();
+				String normalized = normalizer.normalize(line);
+				String old = lines.put(normalizer.hash(), normalized);
+				if (old != null && !old.equals(normalized)) {
+					System.out.printf("flags %d: \"%s\" and \"%s\" have the same hash%n", flags, old, normalized);
+					collisions++;
+				}
+				count++;
+				if (!next(chars, length, sorted)) {
+					break;
+				}
+			}
+		}
+		System.out.printf("flags %d: %d lines of up to %d characters%n", flags, count, maxLength);
+		return collisions;
+	}
+
+	/*
+	 * Advances the first length chars to the next line, keeping them in
+	 * nondecreasing order if sorted is true; returns false after the last.
+	 */
+	private static boolean next(char[] chars, int length, boolean sorted) {
+		for (int i = length - 1; i >= 0; i--) {
+			if (chars[i] < LAST) {
+				chars[i]++;
+				for (int k = i + 1; k < length; k++) {
+					chars[k] = sorted ? chars[i] : FIRST;
+				}
+				return true;
+			}
+		}
+		return false;
+	}
+}
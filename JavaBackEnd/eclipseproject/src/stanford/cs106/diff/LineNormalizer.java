@@ -0,0 +1,437 @@
+/*
+ * @author Marty Stepp
+ * @version 2015/06/06
+ */
+
+package stanford.cs106.diff;
+
+import java.util.*;
+
+/**
+ * A LineNormalizer applies the transformations selected by Diff's IGNORE_*
+ * flags to lines of text, so that lines that should count as the same come
+ * out equal.  The flags are turned once into a chain of stages, and each
+ * line's characters are passed through the whole chain in a single pass,
+ * with no regular expressions and no copies of the whole text.
+ *
+ * <p>
+ * The stages run in the order Diff has always applied the flags:
+ * IGNORE_NUMBERS replaces each run of digits with "###";
+ * IGNORE_NONNUMBERS replaces each run of non-digits with a space;
+ * IGNORE_PUNCTUATION removes punctuation;
+ * IGNORE_AFTERDECIMAL replaces the digits after a '.' with "#";
+ * and IGNORE_CASE lowercases letters.
+ * Then IGNORE_CHARORDER sorts the characters of each line,
+ * IGNORE_LINEORDER sorts the lines, and last IGNORE_WHITESPACE removes
+ * whitespace from each line.  Diff checks whether two texts have no
+ * differences at all on the lines as they are before that last step, as
+ * it always has.
+ */
+final class LineNormalizer {
+	private static final String PUNCTUATION = ".,?!'\"()/#$%@^&*_[]{}|<>:;-";
+	private static final String WHITESPACE = " \r\n\t\f";
+	private static final long FNV_OFFSET = 0xCBF29CE484222325L;
+	private static final long FNV_PRIME = 0x100000001B3L;
+
+	private final StringBuilder line = new StringBuilder();
+	private final Stage first;
+	private final boolean sortChars;
+	private final boolean sortLines;
+	private final boolean ignoreWhitespace;
+	private final boolean trimEnd;    // true if lines emptied by the text stages are dropped at the end
+	private int textLength;           // length of the line after the text stages
+
+	// the state of a line being hashed; see startLine
+	private boolean hashing;
+	private long hash;
+	private long textHash;      // hash of the line before whitespace is removed
+	private long trimmedHash;   // textHash without the line's trailing whitespace
+	private boolean blank;      // true if the line is all whitespace so far
+
+	/**
+	 * Constructs a normalizer for the given IGNORE_* flags of Diff.
+	 */
+	public LineNormalizer(int flags) {
+		Stage sink = new Sink();
+		Stage stage = sink;
+		if ((flags & Diff.IGNORE_CASE) != 0) {
+			stage = new LowerCase(stage);
+		}
+		if ((flags & Diff.IGNORE_AFTERDECIMAL) != 0) {
+			stage = new AfterDecimal(stage);
+		}
+		if ((flags & Diff.IGNORE_PUNCTUATION) != 0) {
+			stage = new Filter(stage, PUNCTUATION);
+		}
+		if ((flags & Diff.IGNORE_NONNUMBERS) != 0) {
+			stage = new Runs(stage, false, " ");
+		}
+		if ((flags & Diff.IGNORE_NUMBERS) != 0) {
+			stage = new Runs(stage, true, "###");
+		}
+		first = stage;
+		sortChars = (flags & Diff.IGNORE_CHARORDER) != 0;
+		sortLines = (flags & Diff.IGNORE_LINEORDER) != 0;
+		ignoreWhitespace = (flags & Diff.IGNORE_WHITESPACE) != 0;
+		trimEnd = first != sink;
+	}
+
+	/**
+	 * Returns the given line with this normalizer's transformations applied,
+	 * other than sorting lines.
+	 */
+	public String normalize(String s) {
+		return removeWhitespace(normalizeText(s));
+	}
+
+	// returns the line with the transformations before IGNORE_WHITESPACE applied
+	private String normalizeText(String s) {
+		if (!trimEnd && !sortChars) {
+			return s;
+		}
+		line.setLength(0);
+		textLength = 0;
+		for (int i = 0; i < s.length(); i++) {
+			first.put(s.charAt(i));
+		}
+		first.end();
+		if (sortChars) {
+			char[] chars = new char[line.length()];
+			line.getChars(0, chars.length, chars, 0);
+			Arrays.sort(chars);
+			line.setLength(0);
+			line.append(chars);
+		}
+		if (line.length() == s.length() && s.contentEquals(line)) {
+			return s;   // unchanged; don't make a copy
+		}
+		return line.toString();
+	}
+
+	// returns s without the characters IGNORE_WHITESPACE removes, if it is set
+	private String removeWhitespace(String s) {
+		int i = 0;
+		while (ignoreWhitespace && i < s.length() && WHITESPACE.indexOf(s.charAt(i)) < 0) {
+			i++;
+		}
+		if (!ignoreWhitespace || i == s.length()) {
+			return s;   // no whitespace to remove; don't make a copy
+		}
+		line.setLength(0);
+		line.append(s, 0, i);
+		for (; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (WHITESPACE.indexOf(c) < 0) {
+				line.append(c);
+			}
+		}
+		return line.toString();
+	}
+
+	/**
+	 * Returns the given lines with this normalizer's transformations applied,
+	 * sorted if lines are to be sorted.  Returns the same array if nothing
+	 * is to be done to it, and otherwise a new array.
+	 *
+	 * <p>
+	 * Diff used to apply the flags through IGNORE_CASE to the whole text and
+	 * split it into lines again, which dropped any lines at the end that
+	 * those flags left empty.  Such lines are dropped here too, so that the
+	 * same lines are compared; pass keepOne as true to keep at least one
+	 * line, as splitting a text with no newlines always does.
+	 */
+	public String[] normalize(String[] lines, boolean keepOne) {
+		return removeWhitespace(normalizeText(lines, keepOne));
+	}
+
+	/*
+	 * Like normalize(String[], boolean), but without removing whitespace: the
+	 * lines are sorted, if they are to be, as they are before that step.
+	 */
+	String[] normalizeText(String[] lines, boolean keepOne) {
+		if (!trimEnd && !sortChars && !sortLines) {
+			return lines;
+		}
+		String[] result = new String[lines.length];
+		int size = keepOne ? Math.min(1, lines.length) : 0;
+		for (int i = 0; i < lines.length; i++) {
+			result[i] = normalizeText(lines[i]);
+			if (!trimEnd || textLength > 0) {
+				size = i + 1;
+			}
+		}
+		if (size < result.length) {
+			result = Arrays.copyOf(result, size);
+		}
+		if (sortLines) {
+			Arrays.sort(result);
+		}
+		return result;
+	}
+
+	/*
+	 * Returns lines from normalizeText with whitespace removed if
+	 * IGNORE_WHITESPACE is set; a new array if any line changes, and
+	 * otherwise the same array.
+	 */
+	String[] removeWhitespace(String[] lines) {
+		String[] result = lines;
+		for (int i = 0; i < lines.length && ignoreWhitespace; i++) {
+			String s = removeWhitespace(lines[i]);
+			if (s != lines[i]) {
+				if (result == lines) {
+					result = lines.clone();
+				}
+				result[i] = s;
+			}
+		}
+		return result;
+	}
+
+	/*
+	 * Starts a line whose characters will be given one at a time to put, for
+	 * StreamingDiff, which may not be able to hold a whole line.  Instead of
+	 * building the normalized line, the normalizer keeps a 64-bit hash of it,
+	 * and of it before whitespace is removed, with and without its trailing
+	 * whitespace; call endLine after the last character, then hash,
+	 * textHash, trimmedHash, isBlank and isEmptied.
+	 */
+	void startLine() {
+		hashing = true;
+		hash = emptyHash();
+		textHash = hash;
+		trimmedHash = hash;
+		blank = true;
+		textLength = 0;
+	}
+
+	void put(char c) {
+		first.put(c);
+	}
+
+	void endLine() {
+		first.end();
+		if (blank) {
+			trimmedHash = emptyHash();
+		}
+		hashing = false;
+	}
+
+	// the hash of an empty normalized line
+	long emptyHash() {
+		return sortChars ? 0 : FNV_OFFSET;
+	}
+
+	// the hash of the normalized line; equal lines have equal hashes
+	long hash() {
+		return hash;
+	}
+
+	// the hash of the line as normalizeText would leave it
+	long textHash() {
+		return textHash;
+	}
+
+	// the hash of the line as normalizeText would leave it, with StringUtils.trimR applied
+	long trimmedHash() {
+		return trimmedHash;
+	}
+
+	// true if the line as normalizeText would leave it is empty or all whitespace
+	boolean isBlank() {
+		return blank;
+	}
+
+	/*
+	 * Returns true if the line would be dropped from the end of the text by
+	 * normalize(String[], boolean): if it was empty, or if the text stages
+	 * left nothing of it.
+	 */
+	boolean isEmptied(boolean rawEmpty) {
+		return rawEmpty || (trimEnd && textLength == 0);
+	}
+
+	/**
+	 * Splits the text into lines the way text.split("\r?\n") does, dropping
+	 * any empty lines at the end, but without a regular expression.
+	 */
+	public static String[] split(String text) {
+		if (text.indexOf('\n') < 0) {
+			return new String[] {text};
+		}
+		List<String> lines = new ArrayList<String>();
+		int start = 0;
+		for (int i = text.indexOf('\n'); i >= 0; i = text.indexOf('\n', start)) {
+			int end = i > start && text.charAt(i - 1) == '\r' ? i - 1 : i;
+			lines.add(text.substring(start, end));
+			start = i + 1;
+		}
+		lines.add(text.substring(start));
+		int size = lines.size();
+		while (size > 0 && lines.get(size - 1).isEmpty()) {
+			size--;
+		}
+		return lines.subList(0, size).toArray(new String[size]);
+	}
+
+	/*
+	 * One step of the chain: takes characters one at a time and passes its
+	 * output on to the next stage.  end is called after a line's last
+	 * character.
+	 */
+	private abstract static class Stage {
+		protected final Stage next;
+
+		public Stage(Stage next) {
+			this.next = next;
+		}
+
+		public abstract void put(char c);
+
+		public void end() {
+			if (next != null) {
+				next.end();
+			}
+		}
+	}
+
+	/*
+	 * The end of the chain, which counts the characters that reach it in
+	 * textLength and collects the line, or hashes it if a line was started
+	 * with startLine; whitespace is left out of hash, but not textHash, if
+	 * IGNORE_WHITESPACE is set.  The hashes are FNV-1a over the characters,
+	 * except that for IGNORE_CHARORDER they are sums of a hash of each
+	 * character, so that they don't depend on their order.  Each character
+	 * is put through mix first, or sums of a few characters would often be
+	 * equal, such as one 'A' and two spaces.  Sorting puts whitespace before
+	 * other characters (apart from a few rare Unicode spaces), so for
+	 * IGNORE_CHARORDER only a blank line loses any whitespace to trimming.
+	 */
+	private class Sink extends Stage {
+		public Sink() {
+			super(null);
+		}
+
+		public void put(char c) {
+			textLength++;
+			if (!hashing) {
+				line.append(c);
+				return;
+			}
+			textHash = step(textHash, c);
+			if (!ignoreWhitespace || WHITESPACE.indexOf(c) < 0) {
+				hash = step(hash, c);
+			}
+			if (sortChars) {
+				trimmedHash = textHash;
+				blank &= Character.isWhitespace(c);
+			} else if (!Character.isWhitespace(c)) {
+				trimmedHash = textHash;
+				blank = false;
+			}
+		}
+
+		private long step(long h, char c) {
+			return sortChars ? h + mix(c + 1) : (h ^ c) * FNV_PRIME;
+		}
+	}
+
+	// drops the given characters
+	private static class Filter extends Stage {
+		private final String dropped;
+
+		public Filter(Stage next, String dropped) {
+			super(next);
+			this.dropped = dropped;
+		}
+
+		public void put(char c) {
+			if (dropped.indexOf(c) < 0) {
+				next.put(c);
+			}
+		}
+	}
+
+	// replaces each run of digits, or of non-digits, with the given text
+	private static class Runs extends Stage {
+		private final boolean digits;
+		private final String replacement;
+		private boolean inRun;
+
+		public Runs(Stage next, boolean digits, String replacement) {
+			super(next);
+			this.digits = digits;
+			this.replacement = replacement;
+		}
+
+		public void put(char c) {
+			if (isDigit(c) == digits) {
+				if (!inRun) {
+					for (int i = 0; i < replacement.length(); i++) {
+						next.put(replacement.charAt(i));
+					}
+					inRun = true;
+				}
+			} else {
+				inRun = false;
+				next.put(c);
+			}
+		}
+
+		public void end() {
+			inRun = false;
+			super.end();
+		}
+	}
+
+	// replaces the digits after each '.' with a single '#'
+	private static class AfterDecimal extends Stage {
+		private boolean afterDot;
+		private boolean inDigits;
+
+		public AfterDecimal(Stage next) {
+			super(next);
+		}
+
+		public void put(char c) {
+			if (inDigits && isDigit(c)) {
+				return;
+			}
+			inDigits = false;
+			if (afterDot && isDigit(c)) {
+				next.put('#');
+				inDigits = true;
+			} else {
+				next.put(c);
+			}
+			afterDot = c == '.';
+		}
+
+		public void end() {
+			afterDot = false;
+			inDigits = false;
+			super.end();
+		}
+	}
+
+	private static class LowerCase extends Stage {
+		public LowerCase(Stage next) {
+			super(next);
+		}
+
+		public void put(char c) {
+			next.put(Character.toLowerCase(c));
+		}
+	}
+
+	// the 64-bit finalizer of MurmurHash3, each bit of whose result depends on every bit of x
+	private static long mix(long x) {
+		x = (x ^ (x >>> 33)) * 0xFF51AFD7ED558CCDL;
+		x = (x ^ (x >>> 33)) * 0xC4CEB9FE1A85EC53L;
+		return x ^ (x >>> 33);
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+}
@@ -0,0 +1,832 @@
+/*
+ * @author Marty Stepp
+ * @version 2015/06/06
+ */
+
+package stanford.cs106.diff;
+
+import java.io.*;
+import java.util.*;
+import stanford.cs106.util.*;
+
+/**
+ * A StreamingDiff compares two texts read from Readers, such as the expected
+ * output of a program and its actual output, without holding either text in
+ * memory.  It finds the same kind of differences as Diff.diffAsList and
+ * Diff.diff, honoring the same IGNORE_* flags other than IGNORE_LINEORDER,
+ * but can be used on outputs far too big for those, such as the output of a
+ * student's program that is stuck in a loop.
+ *
+ * <p>
+ * Each line is normalized and hashed as it is read, and lines are compared
+ * by their 64-bit hashes.  The next few thousand lines of each text are
+ * lined up at a time, with the same algorithm Diff uses, so a stretch of
+ * changes longer than that window may be lined up less closely than Diff
+ * would line it up; the lines reported as changed are always really
+ * changed.  Lines waiting to be compared are kept in memory up to a limit,
+ * and after that in a temporary file.  Only the first maxLineLength
+ * characters of each line are kept, for showing in messages.  Blank lines
+ * that Diff would ignore at the end of a text are looked ahead over only a
+ * window's worth at a time; a longer run of them is compared like any
+ * other lines, so that output that is nothing but blank lines forever is
+ * still stopped by maxDifferences.
+ *
+ * <p>
+ * The comparison stops once more than maxDifferences lines have been
+ * deleted or added, so a runaway output is reported quickly and in bounded
+ * memory.  The Result is then marked as truncated, and its last difference
+ * may have been cut short.  The Readers are read only as far as needed and
+ * are not closed.
+ */
+public class StreamingDiff {
+	public static final int DEFAULT_MAX_DIFFERENCES = 1000;
+	public static final int DEFAULT_WINDOW = 4096;
+	public static final int DEFAULT_MAX_LINE_LENGTH = 1000;
+	public static final long DEFAULT_MEMORY_LIMIT = 4 << 20;   // chars
+
+	private static final int LINE_OVERHEAD = 32;   // chars of memory a stored line costs beyond its text
+	private static final int MIN_WINDOW = 64;
+
+	// how the lines matched so far compare before whitespace is removed; see matchText
+	private static final int TEXT_SAME = 0;
+	private static final int TEXT_SAME_AT_END = 1;   // same if only blank lines follow
+	private static final int TEXT_DIFFERENT = 2;
+
+	private final int flags;
+	private int maxDifferences = DEFAULT_MAX_DIFFERENCES;
+	private int window = DEFAULT_WINDOW;
+	private int maxLineLength = DEFAULT_MAX_LINE_LENGTH;
+	private long memoryLimit = DEFAULT_MEMORY_LIMIT;
+
+	/**
+	 * Compares the two texts with the given flags and the default limits.
+	 */
+	public static Result diff(Reader expected, Reader actual, int flags) throws IOException {
+		return new StreamingDiff(flags).diff(expected, actual);
+	}
+
+	/**
+	 * Constructs a StreamingDiff with the default flags.
+	 */
+	public StreamingDiff() {
+		this(Diff.FLAGS_DEFAULT);
+	}
+
+	/**
+	 * Constructs a StreamingDiff with the given IGNORE_* flags of Diff.
+	 * @throws IllegalArgumentException if IGNORE_LINEORDER is set, since
+	 *         sorting the lines needs all of them at once
+	 */
+	public StreamingDiff(int flags) {
+		if ((flags & Diff.IGNORE_LINEORDER) != 0) {
+			throw new IllegalArgumentException("IGNORE_LINEORDER can't be used on streams");
+		}
+		this.flags = flags;
+	}
+
+	public int getFlags() {
+		return flags;
+	}
+
+	public int getMaxDifferences() {
+		return maxDifferences;
+	}
+
+	/**
+	 * Sets how many lines may be deleted or added before the comparison
+	 * stops.
+	 */
+	public void setMaxDifferences(int maxDifferences) {
+		if (maxDifferences < 0) {
+			throw new IllegalArgumentException("negative maxDifferences: " + maxDifferences);
+		}
+		this.maxDifferences = maxDifferences;
+	}
+
+	public int getWindow() {
+		return window;
+	}
+
+	/**
+	 * Sets how many lines of each text are lined up at a time.
+	 */
+	public void setWindow(int window) {
+		if (window < 2) {
+			throw new IllegalArgumentException("window must be at least 2: " + window);
+		}
+		this.window = window;
+	}
+
+	public int getMaxLineLength() {
+		return maxLineLength;
+	}
+
+	/**
+	 * Sets how many characters of each line are kept for showing in
+	 * messages; longer lines are shown cut off, followed by "...".
+	 */
+	public void setMaxLineLength(int maxLineLength) {
+		if (maxLineLength < 0) {
+			throw new IllegalArgumentException("negative maxLineLength: " + maxLineLength);
+		}
+		this.maxLineLength = maxLineLength;
+	}
+
+	public long getMemoryLimit() {
+		return memoryLimit;
+	}
+
+	/**
+	 * Sets roughly how many characters' worth of lines each text may keep in
+	 * memory before more are written to a temporary file.  The lines being
+	 * lined up are always held in memory.
+	 */
+	public void setMemoryLimit(long memoryLimit) {
+		if (memoryLimit < 0) {
+			throw new IllegalArgumentException("negative memoryLimit: " + memoryLimit);
+		}
+		this.memoryLimit = memoryLimit;
+	}
+
+	/**
+	 * Compares the expected text to the actual one.
+	 */
+	public Result diff(Reader expected, Reader actual) throws IOException {
+		Result result = new Result(flags, maxDifferences);
+		Source a = new Source(expected);
+		Source b = new Source(actual);
+		try {
+			compare(a, b, result);
+		} finally {
+			a.close();
+			b.close();
+		}
+		result.expectedLines = a.lineCount();
+		result.actualLines = b.lineCount();
+		return result;
+	}
+
+	/*
+	 * Walks through both texts: equal lines are matched one at a time, and
+	 * where the texts differ, windows of them are lined up and the surer
+	 * part of the result is used.  As in Diff.align, lines added after the
+	 * last line of the expected text are left out if the last line before
+	 * them matched, unless IGNORE_TRAILING is set.
+	 */
+	private void compare(Source a, Source b, Result result) throws IOException {
+		int text = TEXT_SAME;
+		while (!result.truncated) {
+			a.fill(window);
+			b.fill(window);
+			int na = Math.min(a.available(), window);
+			int nb = Math.min(b.available(), window);
+			if (na > 0 && nb > 0 && a.first().hash == b.first().hash) {
+				text = matchText(text, a.first(), b.first());
+				a.poll();
+				b.poll();
+				result.match();
+			} else if (na == 0 && nb == 0) {
+				break;
+			} else if (!result.hasChanges() && sameRest(a, b, text)) {
+				break;
+			} else if (na == 0) {
+				if (result.afterMatch && (flags & Diff.IGNORE_TRAILING) == 0) {
+					break;
+				}
+				result.add(b.poll());
+			} else {
+				// most changes are small, so try lining up a few lines first
+				int size = Math.min(MIN_WINDOW, window);
+				while (!alignWindows(a, b, Math.min(na, size), Math.min(nb, size), size, result)) {
+					size = Math.min(2 * size, window);
+				}
+			}
+		}
+		result.finish();
+	}
+
+	/*
+	 * Returns how the texts compare before whitespace is removed, as
+	 * Diff.sameText compares them, once the lines x and y are matched, given
+	 * how the lines matched before them compared.  Lines that differ only in
+	 * trailing whitespace, or blank lines that differ at all, leave the texts
+	 * the same only if no non-blank lines come after them.
+	 */
+	private static int matchText(int text, Line x, Line y) {
+		if (x.blank && y.blank) {
+			return x.textHash == y.textHash ? text : Math.max(text, TEXT_SAME_AT_END);
+		} else if (text == TEXT_SAME && x.textHash == y.textHash) {
+			return TEXT_SAME;
+		} else if (text == TEXT_SAME && x.trimmedHash == y.trimmedHash) {
+			return TEXT_SAME_AT_END;
+		} else {
+			return TEXT_DIFFERENT;
+		}
+	}
+
+	/*
+	 * Returns true if the two texts, all of whose lines so far have matched
+	 * and compare as given by matchText, are equal apart from any whitespace
+	 * at the end, which Diff doesn't count as a difference; see
+	 * Diff.sameText.  Their first lines are known to differ.
+	 */
+	private boolean sameRest(Source a, Source b, int text) throws IOException {
+		if (text == TEXT_DIFFERENT) {
+			return false;
+		}
+		int from = 0;
+		if (text == TEXT_SAME && a.available() > 0 && b.available() > 0 && !a.first().blank
+				&& a.first().trimmedHash == b.first().trimmedHash) {
+			from = 1;   // the last non-blank line of each, differing only in trailing whitespace
+		}
+		return a.isBlankFrom(from) && b.isBlankFrom(from);
+	}
+
+	/*
+	 * Lines up the next na lines of a with the next nb lines of b, which
+	 * start out different, and commits as much of the result as can be
+	 * trusted: everything if the windows hold the rest of both texts, and
+	 * otherwise up to the last common line in the first half of both
+	 * windows, since what comes after it might line up differently once more
+	 * lines are read.  Returns false without committing anything if there is
+	 * no such line and the windows, of the given size, could be bigger.
+	 * Otherwise, if there is no such line, commits up to the first common
+	 * line, or if no lines are common, takes the first half of each window
+	 * as changed, unless the window holds the rest of its text, whose lines
+	 * might still match lines further on in the other.
+	 */
+	private boolean alignWindows(Source a, Source b, int na, int nb, int size, Result result)
+			throws IOException {
+		long[] hashes = new long[na + nb];
+		a.store.copyHashes(hashes, 0, na);
+		b.store.copyHashes(hashes, na, nb);
+		long[] distinct = hashes.clone();
+		Arrays.sort(distinct);
+		int idCount = 0;
+		for (int i = 0; i < distinct.length; i++) {
+			if (i == 0 || distinct[i] != distinct[i - 1]) {
+				distinct[idCount++] = distinct[i];
+			}
+		}
+		int[] idsA = new int[na];
+		int[] idsB = new int[nb];
+		for (int i = 0; i < na; i++) {
+			idsA[i] = Arrays.binarySearch(distinct, 0, idCount, hashes[i]);
+		}
+		for (int j = 0; j < nb; j++) {
+			idsB[j] = Arrays.binarySearch(distinct, 0, idCount, hashes[na + j]);
+		}
+		boolean[] commonA = new boolean[na];
+		boolean[] commonB = new boolean[nb];
+		int emptyId = Arrays.binarySearch(distinct, 0, idCount, a.normalizer.emptyHash());
+		Diff.markCommon(idsA, idsB, idCount, Math.max(emptyId, -1), commonA, commonB);
+
+		// the actions of Diff.align for the windows, without any lines of b after the last of a
+		int[] actions = new int[na + nb];
+		int count = 0;
+		int i = 0;
+		int j = 0;
+		int lastCut = 0;    // actions through the last common line in the first halves
+		int firstCut = 0;   // actions through the first common line
+		boolean completeA = a.isComplete(size);
+		boolean completeB = b.isComplete(size);
+		int halfA = completeA ? na : na / 2;
+		int halfB = completeB ? nb : nb / 2;
+		while (i < na) {
+			if (!commonA[i]) {
+				actions[count++] = 1;
+				i++;
+			} else if (!commonB[j]) {
+				actions[count++] = 2;
+				j++;
+			} else {
+				actions[count++] = 4;
+				if (i < halfA && j < halfB) {
+					lastCut = count;
+				}
+				if (firstCut == 0) {
+					firstCut = count;
+				}
+				i++;
+				j++;
+			}
+		}
+
+		if (completeA && completeB) {
+			commit(actions, count, a, b, result);   // any lines left in b are trailing
+		} else if (lastCut > 0) {
+			commit(actions, lastCut, a, b, result);
+		} else if (size < window) {
+			return false;
+		} else if (firstCut > 0) {
+			commit(actions, firstCut, a, b, result);
+		} else {
+			for (int k = 0; k < (completeA ? 0 : na / 2) && !result.truncated; k++) {
+				result.delete(a.poll());
+			}
+			for (int k = 0; k < (completeB ? 0 : nb / 2) && !result.truncated; k++) {
+				result.add(b.poll());
+			}
+		}
+		return true;
+	}
+
+	// carries out the first count of the given actions, in the form Diff.align returns
+	private void commit(int[] actions, int count, Source a, Source b, Result result) throws IOException {
+		for (int k = 0; k < count && !result.truncated; k++) {
+			if (actions[k] == 1) {
+				result.delete(a.poll());
+			} else if (actions[k] == 2) {
+				result.add(b.poll());
+			} else {
+				a.poll();
+				b.poll();
+				result.match();
+			}
+		}
+	}
+
+	/**
+	 * The differences found by a StreamingDiff, with counts of the lines
+	 * read and changed.
+	 */
+	public static class Result {
+		private final int flags;
+		private final int maxDifferences;
+		private final List<Diff.Difference> differences = new ArrayList<Diff.Difference>();
+		private final List<String> messages = new ArrayList<String>();
+		private final List<String> deletedLines = new ArrayList<String>();
+		private final List<String> addedLines = new ArrayList<String>();
+
+		// the changes since the last match: expected lines [x0, x1) deleted, actual lines [y0, y1) added
+		private int x0;
+		private int x1;
+		private int y0;
+		private int y1;
+		private boolean afterMatch = true;   // true if nothing or a match was seen last
+		private boolean truncated;
+		private int expectedLines;
+		private int actualLines;
+
+		private Result(int flags, int maxDifferences) {
+			this.flags = flags;
+			this.maxDifferences = maxDifferences;
+		}
+
+		/**
+		 * Returns the differences found, in the same form as Diff.diffAsList.
+		 */
+		public List<Diff.Difference> getDifferences() {
+			return Collections.unmodifiableList(differences);
+		}
+
+		/**
+		 * Returns the text of the lines of the expected text that were deleted
+		 * or changed, in order, each cut off at the maximum line length.
+		 */
+		public List<String> getDeletedLines() {
+			return Collections.unmodifiableList(deletedLines);
+		}
+
+		/**
+		 * Returns the text of the lines of the actual text that were added or
+		 * changed, in order, each cut off at the maximum line length.
+		 */
+		public List<String> getAddedLines() {
+			return Collections.unmodifiableList(addedLines);
+		}
+
+		public int getDeletedLineCount() {
+			return deletedLines.size();
+		}
+
+		public int getAddedLineCount() {
+			return addedLines.size();
+		}
+
+		/**
+		 * Returns the number of lines of the expected text that were read.
+		 * This is all of its lines unless the comparison was truncated.
+		 */
+		public int getExpectedLineCount() {
+			return expectedLines;
+		}
+
+		/**
+		 * Returns the number of lines of the actual text that were read.  This
+		 * is all of its lines unless the comparison was truncated or lines
+		 * added at its end were left out.
+		 */
+		public int getActualLineCount() {
+			return actualLines;
+		}
+
+		/**
+		 * Returns true if any differences were found.
+		 */
+		public boolean hasDifferences() {
+			return !differences.isEmpty() || truncated;
+		}
+
+		/**
+		 * Returns true if the comparison stopped early because too many lines
+		 * differed.
+		 */
+		public boolean isTruncated() {
+			return truncated;
+		}
+
+		/**
+		 * Returns the differences in the form of Diff.diff's messages, or
+		 * Diff.NO_DIFFS_MESSAGE if there are none.
+		 */
+		public String toString() {
+			if (!hasDifferences()) {
+				return Diff.NO_DIFFS_MESSAGE;
+			}
+			List<String> out = new ArrayList<String>(messages);
+			if (truncated) {
+				out.add("\n(stopped after " + maxDifferences + " differing lines)");
+			}
+			out.add("");
+			return StringUtils.join(out, "\n").trim();
+		}
+
+		private boolean hasChanges() {
+			return !deletedLines.isEmpty() || !addedLines.isEmpty();
+		}
+
+		private void delete(String line) {
+			if (spend()) {
+				deletedLines.add(line);
+				x1++;
+				afterMatch = false;
+			}
+		}
+
+		private void add(String line) {
+			if (spend()) {
+				addedLines.add(line);
+				y1++;
+				afterMatch = false;
+			}
+		}
+
+		private void match() {
+			finish();
+			x1++;
+			x0 = x1;
+			y1++;
+			y0 = y1;
+			afterMatch = true;
+		}
+
+		// reports the changes since the last match, if any
+		private void finish() {
+			if (x1 > x0 || y1 > y0) {
+				int deletedFrom = deletedLines.size() - (x1 - x0);
+				int addedFrom = addedLines.size() - (y1 - y0);
+				Diff.addDifferences(differences, x0, x1, y0, y1, flags);
+				Diff.addMessages(messages, deletedLines.subList(deletedFrom, deletedLines.size()),
+						addedLines.subList(addedFrom, addedLines.size()), x0, x1, y0, y1, flags);
+				x0 = x1;
+				y0 = y1;
+			}
+		}
+
+		// counts one more changed line against the budget, returning false if it is used up
+		private boolean spend() {
+			if (deletedLines.size() + addedLines.size() >= maxDifferences) {
+				truncated = true;
+			}
+			return !truncated;
+		}
+	}
+
+	/*
+	 * One line, or a run of equal lines, as stored by a LineStore.
+	 */
+	private static class Line {
+		private final long hash;
+		private final long textHash;      // before whitespace is removed
+		private final long trimmedHash;   // before whitespace is removed, without trailing whitespace
+		private final boolean blank;
+		private final String text;   // the original line, cut off at maxLineLength
+		private int count = 1;
+
+		public Line(long hash, long textHash, long trimmedHash, boolean blank, String text) {
+			this.hash = hash;
+			this.textHash = textHash;
+			this.trimmedHash = trimmedHash;
+			this.blank = blank;
+			this.text = text;
+		}
+
+		public boolean sameAs(Line other) {
+			return hash == other.hash && textHash == other.textHash && trimmedHash == other.trimmedHash
+					&& blank == other.blank && text.equals(other.text);
+		}
+	}
+
+	/*
+	 * Reads one of the texts a line at a time, splitting and normalizing it as
+	 * LineNormalizer.split and normalize would, and stores the lines read
+	 * until they are compared.  Lines that normalize would drop if they came
+	 * at the end of the text are held back until a line that it wouldn't drop
+	 * comes after them, or until more than a window of them have been read.
+	 */
+	private class Source {
+		private final Reader reader;
+		private final char[] buffer = new char[8192];
+		private int bufferIndex;
+		private int bufferLength;
+		private final LineNormalizer normalizer = new LineNormalizer(flags);
+		private final StringBuilder text = new StringBuilder();
+		private int length;               // length of the line being read
+		private final LineStore store = new LineStore();
+		private int held;                 // lines at the end of store being held back
+		private int taken;                // lines taken from store by poll
+		private int lastNonBlank = -1;    // number of the last non-blank line read
+		private boolean sawNewline;
+		private boolean eof;
+
+		public Source(Reader reader) {
+			this.reader = reader;
+		}
+
+		// returns the number of lines read and not yet taken, other than any held back
+		public int available() {
+			return store.size() - held;
+		}
+
+		// reads lines until n are available or the text ends
+		public void fill(int n) throws IOException {
+			while (!eof && available() < n) {
+				readLine();
+			}
+		}
+
+		public Line first() throws IOException {
+			return store.first();
+		}
+
+		// returns true if the available lines are all that is left and number at most n
+		public boolean isComplete(int n) {
+			return eof && available() <= n;
+		}
+
+		/*
+		 * Returns true if every line left from the given index of the available
+		 * lines on is blank.  Reads as far as the next non-blank line, but not
+		 * more than a window past the index; if the lines up to there are all
+		 * blank and the text goes on, returns false.
+		 */
+		public boolean isBlankFrom(int index) throws IOException {
+			while (!eof && lastNonBlank < taken + index && store.size() < index + window) {
+				readLine();
+			}
+			return eof && lastNonBlank < taken + index;
+		}
+
+		public int lineCount() {
+			return taken + available();
+		}
+
+		// takes the first available line, returning its text
+		public String poll() throws IOException {
+			taken++;
+			return store.poll();
+		}
+
+		public void close() throws IOException {
+			store.close();
+		}
+
+		private void readLine() throws IOException {
+			normalizer.startLine();
+			text.setLength(0);
+			length = 0;
+			boolean cr = false;   // a '\r' that may be part of a "\r\n"
+			int c;
+			while ((c = nextChar()) != '\n') {
+				if (cr) {
+					append('\r');
+				}
+				if (c < 0) {
+					eof = true;
+					break;
+				}
+				cr = c == '\r';
+				if (!cr) {
+					append((char) c);
+				}
+			}
+			if (c == '\n') {
+				sawNewline = true;
+			}
+			normalizer.endLine();
+
+			if (length > maxLineLength) {
+				text.append("...");
+			}
+			store.add(new Line(normalizer.hash(), normalizer.textHash(), normalizer.trimmedHash(),
+					normalizer.isBlank(), text.toString()));
+			if (!normalizer.isBlank()) {
+				lastNonBlank = taken + store.size() - 1;
+			}
+			if (normalizer.isEmptied(length == 0) && held < window) {
+				held++;
+			} else {
+				held = 0;   // a non-empty line, or a run too long to hold back
+			}
+			if (eof && !sawNewline) {
+				held = 0;   // a text with no line breaks is always one line
+			}
+		}
+
+		private void append(char c) {
+			normalizer.put(c);
+			if (length < maxLineLength) {
+				text.append(c);
+			}
+			length++;
+		}
+
+		private int nextChar() throws IOException {
+			if (bufferIndex == bufferLength) {
+				bufferLength = reader.read(buffer);
+				bufferIndex = 0;
+				if (bufferLength <= 0) {
+					bufferLength = 0;
+					return -1;
+				}
+			}
+			return buffer[bufferIndex++];
+		}
+	}
+
+	/*
+	 * A queue of lines, kept in memory up to about memoryLimit chars and after
+	 * that in a temporary file, which is read back as lines are taken from the
+	 * front and emptied once it has all been read.  A run of equal lines, such
+	 * as the blank lines of a program printing in a loop, is stored once with
+	 * a count.  The last line is kept in memory so that its run can grow.
+	 */
+	private class LineStore {
+		private Line[] ring = new Line[16];   // the lines in memory, from ring[head] on
+		private int head;
+		private int count;        // lines in ring, counting each run once
+		private int ringSize;     // lines in ring
+		private long memory;      // chars used by the lines in ring
+		private int spilled;      // lines in the file, counting each run once
+		private Line last;        // the line after all others, or null
+		private int size;
+		private File file;
+		private DataOutputStream out;
+		private DataInputStream in;
+
+		public int size() {
+			return size;
+		}
+
+		public void add(Line line) throws IOException {
+			size++;
+			if (last != null && last.sameAs(line)) {
+				last.count++;
+				return;
+			}
+			if (last != null) {
+				if (spilled == 0 && memory < memoryLimit) {
+					push(last);
+				} else {
+					write(last);
+				}
+			}
+			last = line;
+		}
+
+		public Line first() throws IOException {
+			if (count == 0 && !load()) {
+				return last;
+			}
+			return ring[head];
+		}
+
+		// removes the first line and returns its text
+		public String poll() throws IOException {
+			Line line = first();
+			size--;
+			line.count--;
+			if (line == last) {
+				if (line.count == 0) {
+					last = null;
+				}
+				return line.text;
+			}
+			ringSize--;
+			if (line.count == 0) {
+				ring[head] = null;
+				head = (head + 1) % ring.length;
+				count--;
+				memory -= line.text.length() + LINE_OVERHEAD;
+				while (memory < memoryLimit && load()) {
+					// read back lines from the file
+				}
+			}
+			return line.text;
+		}
+
+		/*
+		 * Copies the hashes of the first n lines into hashes starting at the
+		 * given index, reading lines back from the file as needed.
+		 */
+		public void copyHashes(long[] hashes, int index, int n) throws IOException {
+			while (ringSize < n && load()) {
+				// the lines being lined up are always held in memory
+			}
+			int end = index + n;
+			for (int k = 0; k < count && index < end; k++) {
+				Line line = ring[(head + k) % ring.length];
+				for (int c = 0; c < line.count && index < end; c++) {
+					hashes[index++] = line.hash;
+				}
+			}
+			while (index < end) {
+				hashes[index++] = last.hash;
+			}
+		}
+
+		public void close() throws IOException {
+			if (file != null) {
+				out.close();
+				in.close();
+				file.delete();
+				file = null;
+			}
+		}
+
+		private void push(Line line) {
+			if (count == ring.length) {
+				Line[] bigger = new Line[2 * ring.length];
+				for (int k = 0; k < count; k++) {
+					bigger[k] = ring[(head + k) % ring.length];
+				}
+				ring = bigger;
+				head = 0;
+			}
+			ring[(head + count) % ring.length] = line;
+			count++;
+			ringSize += line.count;
+			memory += line.text.length() + LINE_OVERHEAD;
+		}
+
+		private void write(Line line) throws IOException {
+			if (file == null) {
+				file = File.createTempFile("diff", ".lines");
+				file.deleteOnExit();
+				open();
+			}
+			out.writeLong(line.hash);
+			out.writeLong(line.textHash);
+			out.writeLong(line.trimmedHash);
+			out.writeBoolean(line.blank);
+			out.writeInt(line.count);
+			out.writeInt(line.text.length());
+			out.writeChars(line.text);
+			spilled++;
+		}
+
+		// moves the next line in the file to the end of ring, returning false if there is none
+		private boolean load() throws IOException {
+			if (spilled == 0) {
+				return false;
+			}
+			out.flush();
+			long hash = in.readLong();
+			long textHash = in.readLong();
+			long trimmedHash = in.readLong();
+			boolean blank = in.readBoolean();
+			int runLength = in.readInt();
+			char[] chars = new char[in.readInt()];
+			for (int i = 0; i < chars.length; i++) {
+				chars[i] = in.readChar();
+			}
+			Line line = new Line(hash, textHash, trimmedHash, blank, new String(chars));
+			line.count = runLength;
+			push(line);
+			spilled--;
+			if (spilled == 0) {
+				// all read back; start the file over
+				out.close();
+				in.close();
+				open();
+			}
+			return true;
+		}
+
+		private void open() throws IOException {
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		}
+	}
+}
@@ -6,7 +6,9 @@
 
 package stanford.cs106.junit;
 
+import java.io.*;
 import stanford.cs106.diff.*;
+import stanford.cs106.util.StringUtils;
 
 public class Assert {
 	private Assert() {
@@ -32,6 +34,29 @@ public class Assert {
 		}
 	}
 	
+	public static void assertDiff(String message, Reader expected, Reader actual) throws IOException {
+		assertDiff(message, expected, actual, Diff.FLAGS_DEFAULT_LENIENT);
+	}
+	
+	/*
+	 * Compares outputs that may be too big to hold as Strings, using a
+	 * StreamingDiff; the failure shows only the lines that differ.
+	 */
+	public static void assertDiff(String message, Reader expected, Reader actual, int flags) throws IOException {
+		StreamingDiff.Result result = new StreamingDiff(flags).diff(expected, actual);
+		if (result.hasDifferences()) {
+			ComparisonFailureEnhanced failure = new ComparisonFailureEnhanced(
+					UnitTestType.ASSERT_DIFF,
+					"string",
+					message,
+					StringUtils.join(result.getDeletedLines(), "\n"),
+					StringUtils.join(result.getAddedLines(), "\n")
+			);
+			failure.setDetails(result.toString());
+			throw failure;
+		}
+	}
+	
 	public static void assertEquals(String message, String expected, String actual) {
 		if (((expected == null) != (actual == null)) || 
 				(expected != null && actual != null && !expected.equals(actual))) {
@@ -0,0 +1,18 @@
+package stanford.spl;
+
+import acm.util.TokenScanner;
+
+/**
+ * Starts a batch of commands whose repaints are merged into one per window.
+ * 
+ * @author Marty Stepp
+ * @version 2015/08/12
+ */
+public class Batch_begin extends JBECommand {
+	// Batch.begin();
+	public void execute(TokenScanner paramTokenScanner, JavaBackEnd paramJavaBackEnd) {
+		paramTokenScanner.verifyToken("(");
+		paramTokenScanner.verifyToken(")");
+		paramJavaBackEnd.beginBatch();
+	}
+}
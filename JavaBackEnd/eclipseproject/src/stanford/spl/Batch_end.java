@@ -0,0 +1,18 @@
+package stanford.spl;
+
+import acm.util.TokenScanner;
+
+/**
+ * Ends a batch of commands, repainting each window that changed exactly once.
+ * 
+ * @author Marty Stepp
+ * @version 2015/08/12
+ */
+public class Batch_end extends JBECommand {
+	// Batch.end();
+	public void execute(TokenScanner paramTokenScanner, JavaBackEnd paramJavaBackEnd) {
+		paramTokenScanner.verifyToken("(");
+		paramTokenScanner.verifyToken(")");
+		paramJavaBackEnd.endBatch();
+	}
+}
@@ -3,6 +3,9 @@ package stanford.spl;
 import java.awt.*;
 import java.awt.image.*;
 import java.io.*;
+import java.nio.*;
+import java.util.Arrays;
+import java.util.zip.*;
 
 import javax.imageio.*;
 import javax.swing.*;
@@ -16,11 +19,19 @@ import javax.swing.*;
 public class GBufferedImage extends GInteractor {
 	private static final long serialVersionUID = 1L;
 	
+	// ways pixels can be encoded when sent through the pipe
+	public static final String ENCODING_BASE64 = "base64";
+	public static final String ENCODING_DEFLATE = "deflate";
+	
 	private BufferedImage bufferedImage;
 	private int imageWidth;
 	private int imageHeight;
 	private int backgroundColor;
+	private static final int PIXEL_STREAM_BUFFER_SIZE = 8192;
+	
 	private JLabel label;
+	private ImageIcon icon;
+	private transient byte[] scratchRow;
 	
 	public GBufferedImage(int width, int height) {
 		this(width, height, 0);   // black
@@ -44,21 +55,27 @@ public class GBufferedImage extends GInteractor {
 	}
 	
 	public void fill(int rgb) {
-		for (int y = 0; y < imageHeight; y++) {
-			for (int x = 0; x < imageWidth; x++) {
-				bufferedImage.setRGB(x, y, rgb);
-			}
-		}
+		Arrays.fill(getPixels(), 0, imageWidth * imageHeight, rgb & 0x00ffffff);
 		repaintImage();
 	}
 	
 	public void fillRegion(int x, int y, int width, int height, int rgb) {
-		for (int yy = y; yy < y + height; yy++) {
-			for (int xx = x; xx < x + width; xx++) {
-				bufferedImage.setRGB(xx, yy, rgb);
-			}
+		// clip region to the image bounds
+		int x1 = Math.max(0, x);
+		int y1 = Math.max(0, y);
+		int x2 = Math.min(imageWidth, x + width);
+		int y2 = Math.min(imageHeight, y + height);
+		if (x1 >= x2 || y1 >= y2) {
+			return;
 		}
-		repaintImage();
+		
+		int[] pixels = getPixels();
+		rgb &= 0x00ffffff;
+		for (int yy = y1; yy < y2; yy++) {
+			int rowStart = yy * imageWidth;
+			Arrays.fill(pixels, rowStart + x1, rowStart + x2, rgb);
+		}
+		repaintImage(x1, y1, x2 - x1, y2 - y1);
 	}
 	
 	public BufferedImage getBufferedImage() {
@@ -73,12 +90,122 @@ public class GBufferedImage extends GInteractor {
 		return imageWidth;
 	}
 	
+	public static boolean isSupportedEncoding(String encoding) {
+		return ENCODING_BASE64.equals(encoding) || ENCODING_DEFLATE.equals(encoding);
+	}
+	
+	/*
+	 * Loads the given file and sends its pixels back using the given encoding.
+	 * "deflate" streams the pixels through a Deflater and Base64 encoder straight
+	 * into the long result lines, without building the Base64 text in memory.
+	 */
+	public void load(String filename, String encoding) {
+		if (!ENCODING_DEFLATE.equals(encoding)) {
+			load(filename);
+			return;
+		}
+		
+		try {
+			readImageFile(filename);
+		} catch (Exception ex) {
+			SplPipeDecoder.writeResult("error:" + ex.getClass().getSimpleName() + ": " + String.valueOf(ex.getMessage()).replace('\n', ' '));
+			return;
+		}
+		
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		OutputStream out = new DeflaterOutputStream(
+				new Base64.OutputStream(SplPipeDecoder.openLongResult(), Base64.ENCODE),
+				deflater, PIXEL_STREAM_BUFFER_SIZE);
+		try {
+			writePixels(out);
+			out.close();
+		} catch (IOException ioe) {
+			// can't happen; the pipe writer doesn't throw
+			System.err.println(ioe);
+		} finally {
+			deflater.end();
+		}
+	}
+	
+	/*
+	 * Replaces this image's pixels with ones read from the given stream of
+	 * Base64 text in the given encoding (see load).  The pixels are decoded
+	 * row by row into the image's own pixel array.
+	 */
+	public void fromEncodedStream(InputStream base64, String encoding) throws IOException {
+		InputStream in = new Base64.InputStream(base64, Base64.DECODE);
+		Inflater inflater = null;
+		if (ENCODING_DEFLATE.equals(encoding)) {
+			inflater = new Inflater();
+			in = new InflaterInputStream(in, inflater, PIXEL_STREAM_BUFFER_SIZE);
+		}
+		try {
+			readPixels(in);
+		} finally {
+			if (inflater != null) {
+				inflater.end();
+			}
+		}
+	}
+	
+	/*
+	 * Writes this image as width and height (2 bytes each) followed by
+	 * 3 bytes (r, g, b) per pixel, one row at a time.
+	 */
+	private void writePixels(OutputStream out) throws IOException {
+		out.write((imageWidth >> 8) & 0xff);
+		out.write(imageWidth & 0xff);
+		out.write((imageHeight >> 8) & 0xff);
+		out.write(imageHeight & 0xff);
+		int[] pixels = getPixels();
+		byte[] row = getScratchRow(imageWidth * 3);
+		for (int y = 0; y < imageHeight; y++) {
+			for (int x = 0, i = y * imageWidth, b = 0; x < imageWidth; x++, i++, b += 3) {
+				int px = pixels[i];
+				row[b] = (byte) (px >> 16);
+				row[b + 1] = (byte) (px >> 8);
+				row[b + 2] = (byte) px;
+			}
+			out.write(row, 0, imageWidth * 3);
+		}
+	}
+	
+	/*
+	 * Returns a reusable buffer of at least the given size for one row of
+	 * encoded pixels, so that repeated transfers don't allocate.
+	 */
+	private byte[] getScratchRow(int size) {
+		if (scratchRow == null || scratchRow.length < size) {
+			scratchRow = new byte[size];
+		}
+		return scratchRow;
+	}
+	
+	/*
+	 * Reads pixels in the format written by writePixels, resizing this image
+	 * if needed.
+	 */
+	private void readPixels(InputStream in) throws IOException {
+		DataInputStream data = new DataInputStream(in);
+		int w = data.readUnsignedShort();
+		int h = data.readUnsignedShort();
+		if (w != imageWidth || h != imageHeight) {
+			this.resize(w, h, /* retain */ false);
+		}
+		int[] pixels = getPixels();
+		byte[] row = getScratchRow(w * 3);
+		for (int y = 0; y < h; y++) {
+			data.readFully(row, 0, w * 3);
+			for (int x = 0, i = y * w, b = 0; x < w; x++, i++, b += 3) {
+				pixels[i] = ((row[b] & 0xff) << 16) | ((row[b + 1] & 0xff) << 8) | (row[b + 2] & 0xff);
+			}
+		}
+		repaintImage();
+	}
+	
 	public void load(String filename) {
 		try {
-			bufferedImage = ImageIO.read(new File(filename));
-			imageWidth = bufferedImage.getWidth();
-			imageHeight = bufferedImage.getHeight();
-			repaintImage();
+			readImageFile(filename);
 			// SplPipeDecoder.writeResult(toStringCompressed());   // this is a LONG string
 			SplPipeDecoder.writeResult(toStringBase64());   // this is a LONG string
 		} catch (Exception ex) {
@@ -86,6 +213,116 @@ public class GBufferedImage extends GInteractor {
 		}
 	}
 	
+	/*
+	 * Loads the given image file and copies its pixels into the given shared
+	 * memory file at the given byte offset, one little-endian int per pixel,
+	 * instead of sending them through the pipe.  The result sent back is just
+	 * "width height offset length".
+	 */
+	public void loadToSharedMemory(String filename, String sharedPath, int offset) {
+		try {
+			readImageFile(filename);
+			ByteBuffer buffer = SplSharedMemory.map(sharedPath, offset + 4L * imageWidth * imageHeight);
+			int length = toSharedMemory(buffer, offset);
+			SplPipeDecoder.writeResult(imageWidth + " " + imageHeight + " " + offset + " " + length);
+		} catch (Exception ex) {
+			SplPipeDecoder.writeResult("error:" + ex.getClass().getSimpleName() + ": " + String.valueOf(ex.getMessage()).replace('\n', ' '));
+		}
+	}
+	
+	/*
+	 * Replaces every pixel of this image with width*height little-endian ints
+	 * read from the given shared memory buffer at the given byte offset.
+	 * The top (alpha) byte of each int is ignored.
+	 */
+	public void fromSharedMemory(ByteBuffer buffer, int offset, int w, int h) {
+		if (w != imageWidth || h != imageHeight) {
+			this.resize(w, h, /* retain */ false);
+		}
+		int[] pixels = getPixels();
+		sliceInts(buffer, offset).get(pixels, 0, w * h);
+		repaintImage();
+	}
+	
+	/*
+	 * Copies every pixel of this image into the given shared memory buffer
+	 * at the given byte offset; returns the number of bytes written.
+	 */
+	public int toSharedMemory(ByteBuffer buffer, int offset) {
+		int[] pixels = getPixels();
+		int count = imageWidth * imageHeight;
+		sliceInts(buffer, offset).put(pixels, 0, count);
+		return count * 4;
+	}
+	
+	private static IntBuffer sliceInts(ByteBuffer buffer, int offset) {
+		// duplicate so that concurrent users of the mapping don't share a position
+		ByteBuffer bytes = buffer.duplicate();
+		bytes.position(offset);
+		return bytes.slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+	}
+	
+	/*
+	 * Returns the int array backing this image's raster, one 0xRRGGBB int
+	 * per pixel in row-major order.
+	 */
+	private int[] getPixels() {
+		return ((DataBufferInt) bufferedImage.getRaster().getDataBuffer()).getData();
+	}
+	
+	private void readImageFile(String filename) throws IOException {
+		BufferedImage image = ImageIO.read(new File(filename));
+		if (image == null) {
+			throw new IOException("unsupported image format: " + filename);
+		}
+		if (image.getType() != BufferedImage.TYPE_INT_RGB) {
+			// convert so that the pixels are always backed by a DataBufferInt
+			BufferedImage rgbImage = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+			Graphics g = rgbImage.getGraphics();
+			g.drawImage(image, 0, 0, null);
+			g.dispose();
+			image = rgbImage;
+		}
+		bufferedImage = image;
+		imageWidth = bufferedImage.getWidth();
+		imageHeight = bufferedImage.getHeight();
+		repaintImage();
+	}
+	
+	/*
+	 * Replaces the pixels of the given rectangle with the given encoded data
+	 * and repaints only that rectangle.  The data is either "raw", 3 bytes (r, g, b)
+	 * per pixel in row-major order, or "rle", a series of runs of 5 bytes each:
+	 * a 2-byte big-endian count followed by r, g, b, where runs may wrap rows.
+	 */
+	public void updatePixelRegion(int x, int y, int w, int h, byte[] data, boolean rle) throws IOException {
+		if (x < 0 || y < 0 || w < 0 || h < 0 || w > imageWidth - x || h > imageHeight - y) {
+			throw new IOException("region out of bounds: (" + x + ", " + y + ", " + w + ", " + h + ")");
+		}
+		int count = w * h;
+		int[] region = new int[count];
+		int index = 0;
+		if (rle) {
+			for (int i = 0; i + 4 < data.length && index < count; i += 5) {
+				int runLength = ((data[i] & 0xff) << 8) | (data[i + 1] & 0xff);
+				int rgb = ((data[i + 2] & 0xff) << 16) | ((data[i + 3] & 0xff) << 8) | (data[i + 4] & 0xff);
+				int end = Math.min(count, index + runLength);
+				Arrays.fill(region, index, end, rgb);
+				index = end;
+			}
+		} else {
+			for (int i = 0; i + 2 < data.length && index < count; i += 3) {
+				region[index++] = ((data[i] & 0xff) << 16) | ((data[i + 1] & 0xff) << 8) | (data[i + 2] & 0xff);
+			}
+		}
+		if (index != count) {
+			throw new IOException("expected " + count + " pixels but got " + index);
+		}
+		
+		bufferedImage.getRaster().setDataElements(x, y, w, h, region);
+		repaintImage(x, y, w, h);
+	}
+	
 	public void resize(int w, int h, boolean retain) {
 		BufferedImage oldImage = bufferedImage;
 		bufferedImage = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
@@ -115,8 +352,50 @@ public class GBufferedImage extends GInteractor {
 	}
 	
 	public void setRGB(int x, int y, int rgb) {
-		bufferedImage.setRGB(x, y, rgb);
-		repaintImage();
+		checkIndex(x, y);
+		getPixels()[y * imageWidth + x] = rgb & 0x00ffffff;
+		repaintImage(x, y, 1, 1);
+	}
+	
+	/*
+	 * Sets many pixels at once.  The data holds 7 bytes per pixel:
+	 * x and y as 2-byte big-endian ints followed by r, g, b.
+	 * Every coordinate is checked before any pixel is set, so a bad one
+	 * leaves the image unchanged.
+	 * Only the bounding box of the changed pixels is repainted.
+	 */
+	public void setRGBs(byte[] data) throws IOException {
+		int minX = imageWidth;
+		int minY = imageHeight;
+		int maxX = -1;
+		int maxY = -1;
+		for (int i = 0; i + 6 < data.length; i += 7) {
+			int x = ((data[i] & 0xff) << 8) | (data[i + 1] & 0xff);
+			int y = ((data[i + 2] & 0xff) << 8) | (data[i + 3] & 0xff);
+			if (x >= imageWidth || y >= imageHeight) {
+				throw new IOException("coordinate out of bounds: (" + x + ", " + y + ")");
+			}
+			minX = Math.min(minX, x);
+			minY = Math.min(minY, y);
+			maxX = Math.max(maxX, x);
+			maxY = Math.max(maxY, y);
+		}
+		
+		int[] pixels = getPixels();
+		for (int i = 0; i + 6 < data.length; i += 7) {
+			int x = ((data[i] & 0xff) << 8) | (data[i + 1] & 0xff);
+			int y = ((data[i + 2] & 0xff) << 8) | (data[i + 3] & 0xff);
+			pixels[y * imageWidth + x] = ((data[i + 4] & 0xff) << 16) | ((data[i + 5] & 0xff) << 8) | (data[i + 6] & 0xff);
+		}
+		if (maxX >= 0) {
+			repaintImage(minX, minY, maxX - minX + 1, maxY - minY + 1);
+		}
+	}
+	
+	private void checkIndex(int x, int y) {
+		if (x < 0 || x >= imageWidth || y < 0 || y >= imageHeight) {
+			throw new ArrayIndexOutOfBoundsException("Coordinate out of bounds: (" + x + ", " + y + ")");
+		}
 	}
 	
 	public String toStringBase64() {
@@ -133,27 +412,22 @@ public class GBufferedImage extends GInteractor {
 //			}
 //		}
 		
-		ByteArrayOutputStream out = new ByteArrayOutputStream(imageWidth * imageHeight * 3 + 512);
-		
 		// width and height each as 2-byte integers (0-65535)
-		out.write(((imageWidth & 0x0000ff00) >> 8) & 0x000000ff);
-		out.write(imageWidth & 0x000000ff);
-		out.write(((imageHeight & 0x0000ff00) >> 8) & 0x000000ff);
-		out.write(imageHeight & 0x000000ff);
-		
-		// each byte of image as a 3-byte integer (rgb)
-		for (int y = 0; y < imageHeight; y++) {
-			for (int x = 0; x < imageWidth; x++) {
-				int px = bufferedImage.getRGB(x, y);
-				int red = (px & 0xff0000) >> 16;
-				int green = (px & 0x00ff00) >> 8;
-				int blue = px & 0x0000ff;
-				out.write(red);
-				out.write(green);
-				out.write(blue);
-			}
+		// each pixel of image as a 3-byte integer (rgb)
+		int[] pixels = getPixels();
+		int count = imageWidth * imageHeight;
+		byte[] bytes = new byte[4 + count * 3];
+		bytes[0] = (byte) (imageWidth >> 8);
+		bytes[1] = (byte) imageWidth;
+		bytes[2] = (byte) (imageHeight >> 8);
+		bytes[3] = (byte) imageHeight;
+		for (int i = 0, byteIndex = 4; i < count; i++, byteIndex += 3) {
+			int px = pixels[i];
+			bytes[byteIndex] = (byte) (px >> 16);
+			bytes[byteIndex + 1] = (byte) (px >> 8);
+			bytes[byteIndex + 2] = (byte) px;
 		}
-		String base64 = Base64.encodeBytes(out.toByteArray());
+		String base64 = Base64.encodeBytes(bytes);
 		return base64;
 	}
 	
@@ -181,23 +455,15 @@ public class GBufferedImage extends GInteractor {
 			this.resize(w, h, /* retain */ false);
 		}
 		
-		int[] pixelArray = new int[w * h];
-		int byteIndex = 4;
-		int index = 0;
-		for (int y = 0; y < imageHeight; y++) {
-			for (int x = 0; x < imageWidth; x++) {
-				int rgb =
-						0xff000000   // alpha
-						| ((bytes[byteIndex] << 16) & 0x00ff0000)
-						| ((bytes[byteIndex + 1] << 8) & 0x0000ff00)
-						| ((bytes[byteIndex + 2]) & 0x000000ff);
-				pixelArray[index] = rgb;
-				index++;
-				byteIndex += 3;
-			}
+		// decode straight into the image's own pixel array
+		int[] pixels = getPixels();
+		int count = w * h;
+		for (int index = 0, byteIndex = 4; index < count; index++, byteIndex += 3) {
+			pixels[index] =
+					((bytes[byteIndex] << 16) & 0x00ff0000)
+					| ((bytes[byteIndex + 1] << 8) & 0x0000ff00)
+					| ((bytes[byteIndex + 2]) & 0x000000ff);
 		}
-		bufferedImage.setRGB(0, 0, w, h, pixelArray, 0, w);
-		// bufferedImage.flush();
 		repaintImage();
 	}
 	
@@ -246,9 +512,24 @@ public class GBufferedImage extends GInteractor {
 		repaintImage();
 	}
 	
+	/*
+	 * Shows changes to the image.  The label's icon is only recreated when the
+	 * BufferedImage object itself has been replaced (load, resize); otherwise
+	 * the existing icon already draws the current pixels and is just repainted.
+	 */
 	private void repaintImage() {
+		repaintImage(0, 0, imageWidth, imageHeight);
+	}
+	
+	private void repaintImage(int x, int y, int width, int height) {
+		if (icon != null && icon.getImage() == bufferedImage) {
+			label.repaint(x, y, width, height);
+			return;
+		}
+		
 		Dimension oldSize = label.getPreferredSize();
-		label.setIcon(new ImageIcon(bufferedImage));
+		icon = new ImageIcon(bufferedImage);
+		label.setIcon(icon);
 		Dimension size = new Dimension(imageWidth, imageHeight);
 		if (!size.equals(oldSize)) {
 			label.setPreferredSize(size);
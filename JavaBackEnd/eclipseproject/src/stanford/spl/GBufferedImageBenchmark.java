@@ -0,0 +1,105 @@
+/*
+ * Rough before/after timing of GBufferedImage pixel operations.
+ * The "before" numbers use the old per-pixel BufferedImage.setRGB/getRGB loops;
+ * the "after" numbers use the GBufferedImage methods, which work directly on
+ * the image's backing int array.
+ * Run with -Djava.awt.headless=true on machines without a display.
+ *
+ * @author Marty Stepp
+ * @version 2015/08/12
+ */
+
+package stanford.spl;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+
+public class GBufferedImageBenchmark {
+	private static final int WIDTH = 1920;
+	private static final int HEIGHT = 1080;
+	private static final int REPS = 20;
+
+	public static void main(String[] args) {
+		GBufferedImage img = new GBufferedImage(WIDTH, HEIGHT);
+		BufferedImage raw = img.getBufferedImage();
+
+		// warm up both paths before timing
+		for (int i = 0; i < 3; i++) {
+			oldFill(raw, i);
+			img.fill(i);
+			oldEncode(raw);
+			img.toStringBase64();
+		}
+
+		long start = System.nanoTime();
+		for (int i = 0; i < REPS; i++) {
+			oldFill(raw, i);
+		}
+		report("fill (before)", start, REPS, WIDTH * HEIGHT);
+
+		start = System.nanoTime();
+		for (int i = 0; i < REPS; i++) {
+			img.fill(i);
+		}
+		report("fill (after)", start, REPS, WIDTH * HEIGHT);
+
+		start = System.nanoTime();
+		for (int i = 0; i < REPS; i++) {
+			oldFillRegion(raw, 100, 100, WIDTH / 2, HEIGHT / 2, i);
+		}
+		report("fillRegion (before)", start, REPS, (WIDTH / 2) * (HEIGHT / 2));
+
+		start = System.nanoTime();
+		for (int i = 0; i < REPS; i++) {
+			img.fillRegion(100, 100, WIDTH / 2, HEIGHT / 2, i);
+		}
+		report("fillRegion (after)", start, REPS, (WIDTH / 2) * (HEIGHT / 2));
+
+		start = System.nanoTime();
+		for (int i = 0; i < REPS; i++) {
+			oldEncode(raw);
+		}
+		report("toStringBase64 (before)", start, REPS, WIDTH * HEIGHT);
+
+		start = System.nanoTime();
+		for (int i = 0; i < REPS; i++) {
+			img.toStringBase64();
+		}
+		report("toStringBase64 (after)", start, REPS, WIDTH * HEIGHT);
+	}
+
+	private static void report(String name, long startNanos, int reps, int pixels) {
+		double ms = (System.nanoTime() - startNanos) / 1e6 / reps;
+		double mpixels = pixels / 1e6 / (ms / 1000);
+		System.out.printf("%-26s %9.2f ms/op %10.1f Mpixel/s%n", name, ms, mpixels);
+	}
+
+	private static void oldFill(BufferedImage image, int rgb) {
+		oldFillRegion(image, 0, 0, WIDTH, HEIGHT, rgb);
+	}
+
+	private static void oldFillRegion(BufferedImage image, int x, int y, int width, int height, int rgb) {
+		for (int yy = y; yy < y + height; yy++) {
+			for (int xx = x; xx < x + width; xx++) {
+				image.setRGB(xx, yy, rgb);
+			}
+		}
+	}
+
+	private static String oldEncode(BufferedImage image) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(WIDTH * HEIGHT * 3 + 512);
+		out.write((WIDTH >> 8) & 0xff);
+		out.write(WIDTH & 0xff);
+		out.write((HEIGHT >> 8) & 0xff);
+		out.write(HEIGHT & 0xff);
+		for (int y = 0; y < HEIGHT; y++) {
+			for (int x = 0; x < WIDTH; x++) {
+				int px = image.getRGB(x, y);
+				out.write((px & 0xff0000) >> 16);
+				out.write((px & 0x00ff00) >> 8);
+				out.write(px & 0x0000ff);
+			}
+		}
+		return Base64.encodeBytes(out.toByteArray());
+	}
+}
@@ -20,7 +20,7 @@ public class GBufferedImage_load extends JBECommand {
 		GObject gobj = paramJavaBackEnd.getGObject(id);
 		if (gobj != null && gobj instanceof GBufferedImage) {
 			GBufferedImage img = (GBufferedImage) gobj;
-			img.load(filename);
+			img.load(filename, paramJavaBackEnd.getImageTransferEncoding());
 		}
 	}
 }
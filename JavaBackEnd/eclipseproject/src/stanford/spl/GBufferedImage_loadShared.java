@@ -0,0 +1,30 @@
+package stanford.spl;
+
+import acm.graphics.*;
+import acm.util.*;
+
+/**
+ * 
+ * @author Marty Stepp
+ * @version 2015/08/12
+ */
+public class GBufferedImage_loadShared extends JBECommand {
+	// gbufferedimage.load("foobar.png") through shared file "/tmp/spl123.shm" at offset 0
+	public void execute(TokenScanner paramTokenScanner, JavaBackEnd paramJavaBackEnd) {
+		paramTokenScanner.verifyToken("(");
+		String id = nextString(paramTokenScanner);
+		paramTokenScanner.verifyToken(",");
+		String filename = nextString(paramTokenScanner);
+		paramTokenScanner.verifyToken(",");
+		String sharedPath = nextString(paramTokenScanner);
+		paramTokenScanner.verifyToken(",");
+		int offset = nextInt(paramTokenScanner);
+		paramTokenScanner.verifyToken(")");
+		
+		GObject gobj = paramJavaBackEnd.getGObject(id);
+		if (gobj != null && gobj instanceof GBufferedImage) {
+			GBufferedImage img = (GBufferedImage) gobj;
+			img.loadToSharedMemory(filename, sharedPath, offset);
+		}
+	}
+}
@@ -0,0 +1,30 @@
+package stanford.spl;
+
+import acm.graphics.*;
+import acm.util.*;
+
+/**
+ * 
+ * @author Marty Stepp
+ * @version 2015/08/12
+ */
+public class GBufferedImage_setRGBs extends JBECommand {
+	// gbufferedimage.setRGB(x, y, rgb) for many pixels; base64 of 7 bytes (x, y, r, g, b) each
+	public void execute(TokenScanner paramTokenScanner, JavaBackEnd paramJavaBackEnd) {
+		paramTokenScanner.verifyToken("(");
+		String id = nextString(paramTokenScanner);
+		paramTokenScanner.verifyToken(",");
+		String base64 = nextString(paramTokenScanner);
+		paramTokenScanner.verifyToken(")");
+		
+		GObject gobj = paramJavaBackEnd.getGObject(id);
+		if (gobj != null && gobj instanceof GBufferedImage) {
+			GBufferedImage img = (GBufferedImage) gobj;
+			try {
+				img.setRGBs(Base64.decode(base64));
+			} catch (java.io.IOException ioe) {
+				System.err.println(ioe);
+			}
+		}
+	}
+}
@@ -0,0 +1,26 @@
+package stanford.spl;
+
+import acm.util.*;
+
+/**
+ * Chooses how GBufferedImage.load and updateAllPixels encode pixels.
+ * Replies with the encoding that will be used, which is "base64" if the
+ * requested one isn't supported.
+ * 
+ * @author Marty Stepp
+ * @version 2015/08/12
+ */
+public class GBufferedImage_setTransferEncoding extends JBECommand {
+	// GBufferedImage.setTransferEncoding("deflate");
+	public void execute(TokenScanner paramTokenScanner, JavaBackEnd paramJavaBackEnd) {
+		paramTokenScanner.verifyToken("(");
+		String encoding = nextString(paramTokenScanner);
+		paramTokenScanner.verifyToken(")");
+		
+		if (!GBufferedImage.isSupportedEncoding(encoding)) {
+			encoding = GBufferedImage.ENCODING_BASE64;
+		}
+		paramJavaBackEnd.setImageTransferEncoding(encoding);
+		SplPipeDecoder.writeResult(encoding);
+	}
+}
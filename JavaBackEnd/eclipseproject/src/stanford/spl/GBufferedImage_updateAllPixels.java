@@ -1,60 +1,36 @@
 package stanford.spl;
 
 import java.io.*;
-import java.lang.reflect.*;
 import acm.graphics.*;
 import acm.util.*;
 
 /**
  * 
  * @author Marty Stepp
- * @version 2015/08/11
+ * @version 2015/08/12
+ * - pixels are decoded as they are read from the pipe, without reflection
+ *   into TokenScanner or building the whole Base64 string
  */
 public class GBufferedImage_updateAllPixels extends JBECommand {
-	// gbufferedimage.load("foobar.png");
+	// gbufferedimage.updateAllPixels("base64 pixel data");
 	public void execute(TokenScanner paramTokenScanner, JavaBackEnd paramJavaBackEnd) {
 		paramTokenScanner.verifyToken("(");
 		String id = nextString(paramTokenScanner);
 		paramTokenScanner.verifyToken(",");
-		// String base64 = nextString(paramTokenScanner);
-		String base64 = "";
-		try {
-			BufferedReader reader = new BufferedReader(getTokenScannerReader(paramTokenScanner));
-			// throw away ", \"" char
-			while (reader.read() != '"') {
-				// empty
-			}
-			base64 = reader.readLine();
-			
-			// trim off "" from start/end and ) from end
-			if (base64.endsWith("\")")) {
-				base64 = base64.substring(0, base64.length() - 2);
-			}
-		} catch (Exception e) {
-			System.err.println(e);
-		}
-		// paramTokenScanner.verifyToken(")");
 		
 		GObject gobj = paramJavaBackEnd.getGObject(id);
-		if (gobj != null && gobj instanceof GBufferedImage) {
-			GBufferedImage img = (GBufferedImage) gobj;
-			try {
-				img.fromStringBase64(base64);
-				// img.fromStringCompressed(base64);
-			} catch (java.io.IOException ioe) {
-				System.out.println(ioe);
-			}
-		}
-	}
-	
-	private Reader getTokenScannerReader(TokenScanner scanner) {
 		try {
-			Field inputField = TokenScanner.class.getDeclaredField("input");
-			inputField.setAccessible(true);
-			return (Reader) inputField.get(scanner);
-		} catch (Exception e) {
-			System.err.println(e);
-			return null;
+			InputStream in = SplPipeDecoder.openQuotedString(paramTokenScanner);
+			if (gobj != null && gobj instanceof GBufferedImage) {
+				GBufferedImage img = (GBufferedImage) gobj;
+				img.fromEncodedStream(in, paramJavaBackEnd.getImageTransferEncoding());
+			}
+			while (in.read() >= 0) {
+				// skip rest of the quoted string
+			}
+			paramTokenScanner.verifyToken(")");
+		} catch (IOException ioe) {
+			System.err.println(ioe);
 		}
 	}
 }
@@ -0,0 +1,40 @@
+package stanford.spl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import acm.graphics.*;
+import acm.util.*;
+
+/**
+ * 
+ * @author Marty Stepp
+ * @version 2015/08/12
+ */
+public class GBufferedImage_updateAllPixelsShared extends JBECommand {
+	// gbufferedimage.updateAllPixels() with w*h pixels at offset in shared file "/tmp/spl123.shm"
+	public void execute(TokenScanner paramTokenScanner, JavaBackEnd paramJavaBackEnd) {
+		paramTokenScanner.verifyToken("(");
+		String id = nextString(paramTokenScanner);
+		paramTokenScanner.verifyToken(",");
+		String sharedPath = nextString(paramTokenScanner);
+		paramTokenScanner.verifyToken(",");
+		int offset = nextInt(paramTokenScanner);
+		paramTokenScanner.verifyToken(",");
+		int w = nextInt(paramTokenScanner);
+		paramTokenScanner.verifyToken(",");
+		int h = nextInt(paramTokenScanner);
+		paramTokenScanner.verifyToken(")");
+		
+		GObject gobj = paramJavaBackEnd.getGObject(id);
+		if (gobj != null && gobj instanceof GBufferedImage) {
+			GBufferedImage img = (GBufferedImage) gobj;
+			try {
+				ByteBuffer buffer = SplSharedMemory.map(sharedPath, offset + 4L * w * h);
+				img.fromSharedMemory(buffer, offset, w, h);
+			} catch (IOException ioe) {
+				System.err.println(ioe);
+			}
+		}
+	}
+}
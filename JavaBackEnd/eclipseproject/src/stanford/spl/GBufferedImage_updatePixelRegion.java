@@ -0,0 +1,40 @@
+package stanford.spl;
+
+import acm.graphics.*;
+import acm.util.*;
+
+/**
+ * 
+ * @author Marty Stepp
+ * @version 2015/08/12
+ */
+public class GBufferedImage_updatePixelRegion extends JBECommand {
+	// gbufferedimage.updatePixelRegion(x, y, w, h, "rle", "AAEB/wAA...");
+	public void execute(TokenScanner paramTokenScanner, JavaBackEnd paramJavaBackEnd) {
+		paramTokenScanner.verifyToken("(");
+		String id = nextString(paramTokenScanner);
+		paramTokenScanner.verifyToken(",");
+		int x = nextInt(paramTokenScanner);
+		paramTokenScanner.verifyToken(",");
+		int y = nextInt(paramTokenScanner);
+		paramTokenScanner.verifyToken(",");
+		int w = nextInt(paramTokenScanner);
+		paramTokenScanner.verifyToken(",");
+		int h = nextInt(paramTokenScanner);
+		paramTokenScanner.verifyToken(",");
+		String encoding = nextString(paramTokenScanner);
+		paramTokenScanner.verifyToken(",");
+		String base64 = nextString(paramTokenScanner);
+		paramTokenScanner.verifyToken(")");
+		
+		GObject gobj = paramJavaBackEnd.getGObject(id);
+		if (gobj != null && gobj instanceof GBufferedImage) {
+			GBufferedImage img = (GBufferedImage) gobj;
+			try {
+				img.updatePixelRegion(x, y, w, h, Base64.decode(base64), encoding.equals("rle"));
+			} catch (java.io.IOException ioe) {
+				System.err.println(ioe);
+			}
+		}
+	}
+}
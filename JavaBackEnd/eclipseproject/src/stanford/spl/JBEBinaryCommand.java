@@ -0,0 +1,232 @@
+/*
+ * Commands for the length-prefixed binary pipe protocol.
+ *
+ * When the back-end is launched with "-protocol binary", each command arrives
+ * as a frame of the form:
+ *
+ *   [int length][unsigned short opcode][payload ...]
+ *
+ * where length counts the opcode and payload bytes but not itself, and all
+ * values are big-endian.  Ints are 4 bytes, doubles are 8 bytes, booleans are
+ * 1 byte, and strings are an unsigned short byte count followed by UTF-8 bytes.
+ * Commands are looked up by opcode in a plain array rather than by name, so the
+ * high-rate commands below do no text tokenizing at all.  Any command without
+ * its own opcode can still be sent as OP_TEXT, whose payload is an ordinary
+ * text command line.
+ *
+ * @author Marty Stepp
+ * @version 2015/08/12
+ */
+
+package stanford.spl;
+
+import acm.graphics.GFillable;
+import acm.graphics.GObject;
+import acm.graphics.GResizable;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+public abstract class JBEBinaryCommand {
+	// related: similar constants in C++ lib platform.cpp
+	public static final int OP_TEXT = 0;
+	public static final int OP_GOBJECT_SET_LOCATION = 1;
+	public static final int OP_GOBJECT_SET_SIZE = 2;
+	public static final int OP_GOBJECT_SET_COLOR = 3;
+	public static final int OP_GOBJECT_SET_FILL_COLOR = 4;
+	public static final int OP_GOBJECT_SET_FILLED = 5;
+	public static final int OP_GOBJECT_SET_VISIBLE = 6;
+	public static final int OP_GOBJECT_ROTATE = 7;
+	public static final int OP_GOBJECT_SCALE = 8;
+	public static final int OP_GWINDOW_DRAW = 9;
+	public static final int OP_GWINDOW_REPAINT = 10;
+	public static final int OP_GEVENT_GET_NEXT_EVENT = 11;
+	public static final int OP_GEVENT_WAIT_FOR_EVENT = 12;
+	public static final int OP_BATCH_BEGIN = 13;
+	public static final int OP_BATCH_END = 14;
+	public static final int OPCODE_COUNT = 15;
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	public abstract void execute(ByteBuffer frame, JavaBackEnd jbe);
+
+	public static JBEBinaryCommand[] createOpcodeTable() {
+		JBEBinaryCommand[] table = new JBEBinaryCommand[OPCODE_COUNT];
+		table[OP_TEXT] = null;   // handled directly by JavaBackEnd's command loop
+		table[OP_GOBJECT_SET_LOCATION] = new GObjectSetLocation();
+		table[OP_GOBJECT_SET_SIZE] = new GObjectSetSize();
+		table[OP_GOBJECT_SET_COLOR] = new GObjectSetColor();
+		table[OP_GOBJECT_SET_FILL_COLOR] = new GObjectSetFillColor();
+		table[OP_GOBJECT_SET_FILLED] = new GObjectSetFilled();
+		table[OP_GOBJECT_SET_VISIBLE] = new GObjectSetVisible();
+		table[OP_GOBJECT_ROTATE] = new GObjectRotate();
+		table[OP_GOBJECT_SCALE] = new GObjectScale();
+		table[OP_GWINDOW_DRAW] = new GWindowDraw();
+		table[OP_GWINDOW_REPAINT] = new GWindowRepaint();
+		table[OP_GEVENT_GET_NEXT_EVENT] = new GEventGetNextEvent();
+		table[OP_GEVENT_WAIT_FOR_EVENT] = new GEventWaitForEvent();
+		table[OP_BATCH_BEGIN] = new BatchBegin();
+		table[OP_BATCH_END] = new BatchEnd();
+		return table;
+	}
+
+	public int nextInt(ByteBuffer frame) {
+		return frame.getInt();
+	}
+
+	public double nextDouble(ByteBuffer frame) {
+		return frame.getDouble();
+	}
+
+	public boolean nextBoolean(ByteBuffer frame) {
+		return frame.get() != 0;
+	}
+
+	public Color nextColor(ByteBuffer frame) {
+		// colors are sent as ARGB ints; fully transparent black means "no color"
+		int argb = frame.getInt();
+		return argb == 0 ? null : new Color(argb, /* hasAlpha */ true);
+	}
+
+	public String nextString(ByteBuffer frame) {
+		return nextString(frame, frame.getShort() & 0xffff);
+	}
+
+	public static String nextString(ByteBuffer frame, int byteCount) {
+		String s = new String(frame.array(), frame.arrayOffset() + frame.position(), byteCount, UTF_8);
+		frame.position(frame.position() + byteCount);
+		return s;
+	}
+
+	private static class GObjectSetLocation extends JBEBinaryCommand {
+		public void execute(ByteBuffer frame, JavaBackEnd jbe) {
+			GObject gobj = jbe.getGObject(nextString(frame));
+			double x = nextDouble(frame);
+			double y = nextDouble(frame);
+			if (gobj != null) {
+				gobj.setLocation(x, y);
+			}
+		}
+	}
+
+	private static class GObjectSetSize extends JBEBinaryCommand {
+		public void execute(ByteBuffer frame, JavaBackEnd jbe) {
+			GObject gobj = jbe.getGObject(nextString(frame));
+			double width = nextDouble(frame);
+			double height = nextDouble(frame);
+			if (gobj instanceof GResizable) {
+				((GResizable) gobj).setSize(width, height);
+			}
+		}
+	}
+
+	private static class GObjectSetColor extends JBEBinaryCommand {
+		public void execute(ByteBuffer frame, JavaBackEnd jbe) {
+			GObject gobj = jbe.getGObject(nextString(frame));
+			Color color = nextColor(frame);
+			if (gobj != null) {
+				gobj.setColor(color);
+			}
+		}
+	}
+
+	private static class GObjectSetFillColor extends JBEBinaryCommand {
+		public void execute(ByteBuffer frame, JavaBackEnd jbe) {
+			GObject gobj = jbe.getGObject(nextString(frame));
+			Color color = nextColor(frame);
+			if (gobj instanceof GFillable) {
+				((GFillable) gobj).setFillColor(color);
+			}
+		}
+	}
+
+	private static class GObjectSetFilled extends JBEBinaryCommand {
+		public void execute(ByteBuffer frame, JavaBackEnd jbe) {
+			GObject gobj = jbe.getGObject(nextString(frame));
+			boolean filled = nextBoolean(frame);
+			if (gobj instanceof GFillable) {
+				((GFillable) gobj).setFilled(filled);
+			}
+		}
+	}
+
+	private static class GObjectSetVisible extends JBEBinaryCommand {
+		public void execute(ByteBuffer frame, JavaBackEnd jbe) {
+			GObject gobj = jbe.getGObject(nextString(frame));
+			boolean visible = nextBoolean(frame);
+			if (gobj != null) {
+				gobj.setVisible(visible);
+			}
+		}
+	}
+
+	private static class GObjectRotate extends JBEBinaryCommand {
+		public void execute(ByteBuffer frame, JavaBackEnd jbe) {
+			GObject gobj = jbe.getGObject(nextString(frame));
+			double theta = nextDouble(frame);
+			if (gobj != null) {
+				gobj.rotate(theta);
+			}
+		}
+	}
+
+	private static class GObjectScale extends JBEBinaryCommand {
+		public void execute(ByteBuffer frame, JavaBackEnd jbe) {
+			GObject gobj = jbe.getGObject(nextString(frame));
+			double sx = nextDouble(frame);
+			double sy = nextDouble(frame);
+			if (gobj != null) {
+				gobj.scale(sx, sy);
+			}
+		}
+	}
+
+	private static class GWindowDraw extends JBEBinaryCommand {
+		public void execute(ByteBuffer frame, JavaBackEnd jbe) {
+			JBEWindow window = jbe.getWindow(nextString(frame));
+			GObject gobj = jbe.getGObject(nextString(frame));
+			if (window != null && gobj != null && gobj.isVisible()) {
+				JBECanvas canvas = window.getCanvas();
+				Graphics2D osg = canvas.getOSG();
+				osg.setColor(gobj.getColor());
+				gobj.paint(osg);
+				canvas.repaint();
+			}
+		}
+	}
+
+	private static class GWindowRepaint extends JBEBinaryCommand {
+		public void execute(ByteBuffer frame, JavaBackEnd jbe) {
+			JBEWindow window = jbe.getWindow(nextString(frame));
+			if (window != null) {
+				window.getCanvas().repaint();
+			}
+		}
+	}
+
+	private static class GEventGetNextEvent extends JBEBinaryCommand {
+		public void execute(ByteBuffer frame, JavaBackEnd jbe) {
+			jbe.getNextEvent(nextInt(frame));
+		}
+	}
+
+	private static class GEventWaitForEvent extends JBEBinaryCommand {
+		public void execute(ByteBuffer frame, JavaBackEnd jbe) {
+			jbe.waitForEvent(nextInt(frame));
+		}
+	}
+
+	private static class BatchBegin extends JBEBinaryCommand {
+		public void execute(ByteBuffer frame, JavaBackEnd jbe) {
+			jbe.beginBatch();
+		}
+	}
+
+	private static class BatchEnd extends JBEBinaryCommand {
+		public void execute(ByteBuffer frame, JavaBackEnd jbe) {
+			jbe.endBatch();
+		}
+	}
+}
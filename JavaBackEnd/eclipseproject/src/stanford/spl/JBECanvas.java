@@ -16,6 +16,8 @@ public class JBECanvas extends GCanvas {
 	private Image offscreenImage;
 	private int preferredWidth;
 	private int preferredHeight;
+	private boolean batching;
+	private Rectangle batchDirtyRegion;
 
 	public JBECanvas(String paramString, int paramInt1, int paramInt2) {
 		this.windowId = paramString;
@@ -51,6 +53,48 @@ public class JBECanvas extends GCanvas {
 		this.osg.setColor(getForeground());
 	}
 
+	/*
+	 * Starts a batch of updates: repaints requested until endBatch() are not
+	 * sent to Swing but merged into a single dirty rectangle.
+	 */
+	public synchronized void beginBatch() {
+		batching = true;
+	}
+
+	/*
+	 * Ends a batch of updates, issuing one repaint covering everything
+	 * that changed since beginBatch(), or none if nothing changed.
+	 */
+	public void endBatch() {
+		Rectangle dirty;
+		synchronized (this) {
+			batching = false;
+			dirty = batchDirtyRegion;
+			batchDirtyRegion = null;
+		}
+		if (dirty != null) {
+			super.repaint(0, dirty.x, dirty.y, dirty.width, dirty.height);
+		}
+	}
+
+	public synchronized boolean isBatching() {
+		return batching;
+	}
+
+	public void repaint(long tm, int x, int y, int width, int height) {
+		synchronized (this) {
+			if (batching) {
+				if (batchDirtyRegion == null) {
+					batchDirtyRegion = new Rectangle(x, y, width, height);
+				} else {
+					batchDirtyRegion.add(new Rectangle(x, y, width, height));
+				}
+				return;
+			}
+		}
+		super.repaint(tm, x, y, width, height);
+	}
+
 	public String getWindowId() {
 		return this.windowId;
 	}
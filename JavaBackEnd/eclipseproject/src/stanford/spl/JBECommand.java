@@ -27,6 +27,8 @@ public abstract class JBECommand {
 		localHashMap.put("AutograderUnitTest.setTestRuntime", new AutograderUnitTest_setTestRuntime());
 		localHashMap.put("AutograderUnitTest.setVisible", new AutograderUnitTest_setVisible());
 		localHashMap.put("AutograderUnitTest.setWindowDescriptionText", new AutograderUnitTest_setWindowDescriptionText());
+		localHashMap.put("Batch.begin", new Batch_begin());
+		localHashMap.put("Batch.end", new Batch_end());
 		localHashMap.put("File.openFileDialog", new File_openFileDialog());
 		localHashMap.put("File.getTempFolder", new File_getTempDirectory());
 		localHashMap.put("G3DRect.create", new G3DRect_create());
@@ -39,10 +41,15 @@ public abstract class JBECommand {
 		localHashMap.put("GBufferedImage.fill", new GBufferedImage_fill());
 		localHashMap.put("GBufferedImage.fillRegion", new GBufferedImage_fillRegion());
 		localHashMap.put("GBufferedImage.load", new GBufferedImage_load());
+		localHashMap.put("GBufferedImage.loadShared", new GBufferedImage_loadShared());
 		localHashMap.put("GBufferedImage.resize", new GBufferedImage_resize());
 		localHashMap.put("GBufferedImage.save", new GBufferedImage_save());
 		localHashMap.put("GBufferedImage.setRGB", new GBufferedImage_setRGB());
+		localHashMap.put("GBufferedImage.setRGBs", new GBufferedImage_setRGBs());
+		localHashMap.put("GBufferedImage.setTransferEncoding", new GBufferedImage_setTransferEncoding());
 		localHashMap.put("GBufferedImage.updateAllPixels", new GBufferedImage_updateAllPixels());
+		localHashMap.put("GBufferedImage.updateAllPixelsShared", new GBufferedImage_updateAllPixelsShared());
+		localHashMap.put("GBufferedImage.updatePixelRegion", new GBufferedImage_updatePixelRegion());
 		localHashMap.put("GButton.create", new GButton_create());
 		localHashMap.put("GCheckBox.create", new GCheckBox_create());
 		localHashMap.put("GCheckBox.isSelected", new GCheckBox_isSelected());
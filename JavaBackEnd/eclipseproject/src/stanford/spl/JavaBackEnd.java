@@ -11,6 +11,7 @@ import java.awt.*;
 import java.awt.event.*;
 import java.io.*;
 import java.net.*;
+import java.nio.ByteBuffer;
 import java.util.*;
 
 import javax.sound.sampled.*;
@@ -55,10 +56,13 @@ public class JavaBackEnd implements WindowListener, MouseListener, MouseMotionLi
 	public static final int BUTTON3_DOWN = 128;
 	private static final String DEBUG_PROPERTY = "stanfordspl.debug";
 	private static final String DEBUG_LOG_FILE = "stanfordspldebug.txt";
+	private static final int BINARY_FRAME_BUFFER_SIZE = 65536;
 	private static boolean DEBUG = false;
 	private String appName;
 	private String exec;
+	private boolean binaryProtocol;
 	private String cppVersion = "(unknown)";
+	private String imageTransferEncoding = GBufferedImage.ENCODING_BASE64;
 	private String consoleWindowTitle = "Console";
 	private JBEMenuBar menuBar;
 	private JBEConsole console;
@@ -99,6 +103,18 @@ public class JavaBackEnd implements WindowListener, MouseListener, MouseMotionLi
 		return this.cppVersion;
 	}
 
+	/*
+	 * Returns how GBufferedImage pixels are encoded in the pipe, as negotiated
+	 * by the GBufferedImage.setTransferEncoding command; see GBufferedImage.
+	 */
+	public String getImageTransferEncoding() {
+		return this.imageTransferEncoding;
+	}
+	
+	public void setImageTransferEncoding(String encoding) {
+		this.imageTransferEncoding = encoding;
+	}
+
 	public String getJbeVersion() {
 		return Version.getLibraryVersion();
 	}
@@ -123,6 +139,7 @@ public class JavaBackEnd implements WindowListener, MouseListener, MouseMotionLi
 		processArguments(paramArrayOfString);
 		initSystemProperties();
 		this.cmdTable = JBECommand.createCommandTable();
+		this.pipeWriter = SplPipeWriter.getInstance();
 		this.imageTable = new HashMap<String, Image>();
 		this.windowTable = new HashMap<String, JBEWindow>();
 		this.gobjTable = new HashMap<String, GObject>();
@@ -131,8 +148,11 @@ public class JavaBackEnd implements WindowListener, MouseListener, MouseMotionLi
 		this.clipIdTable = new HashMap<String, Clip>();
 		this.sourceTable = new HashMap<JComponent, String>();
 		this.eventMask = 0;
+		this.batchDepth = 0;
 		this.eventAcknowledged = false;
 		this.eventPending = false;
+		this.pendingMotionEvents = new LinkedHashMap<String, String>();
+		this.coalescedEventCount = 0;
 		this.activeWindowCount = 0;
 		this.console = new JBEConsole();
 		this.console.setErrorColor(ERROR_COLOR);
@@ -157,7 +177,14 @@ public class JavaBackEnd implements WindowListener, MouseListener, MouseMotionLi
 				System.err.println("Can't exec process");
 			}
 		}
-		commandLoop();
+		if (this.binaryProtocol) {
+			// tell the C++ lib that we understand binary frames before any are sent
+			System.out.println("result:protocol:binary");
+			System.out.flush();
+			binaryCommandLoop();
+		} else {
+			commandLoop();
+		}
 	}
 
 	public void createWindow(String paramString, int paramInt1, int paramInt2,
@@ -180,6 +207,9 @@ public class JavaBackEnd implements WindowListener, MouseListener, MouseMotionLi
 		localJBEWindow.setLocation(10, 10);
 		localJBEWindow.getCanvas().initOffscreenImage();
 		localJBEWindow.getCanvas().setTopCompound(paramTopCompound);
+		if (this.batchDepth > 0) {
+			localJBEWindow.getCanvas().beginBatch();
+		}
 		this.activeWindowCount += 1;
 		localJBEWindow.setResizable(false);
 		localJBEWindow.setVisible(true);
@@ -190,7 +220,37 @@ public class JavaBackEnd implements WindowListener, MouseListener, MouseMotionLi
 	}
 
 	public void deleteWindow(String paramString) {
-		this.windowTable.remove(paramString);
+		JBEWindow localJBEWindow = this.windowTable.remove(paramString);
+		if (localJBEWindow != null && localJBEWindow.getCanvas().isBatching()) {
+			localJBEWindow.getCanvas().endBatch();
+		}
+	}
+
+	/*
+	 * Begins a batch of commands (Batch.begin()).  Until the matching endBatch,
+	 * repaints of every window's canvas are deferred and merged so that a frame
+	 * of many GObject updates causes a single repaint per window.
+	 * Batches may be nested; only the outermost endBatch triggers repainting.
+	 */
+	public void beginBatch() {
+		this.batchDepth += 1;
+		if (this.batchDepth == 1) {
+			for (JBEWindow localJBEWindow : this.windowTable.values()) {
+				localJBEWindow.getCanvas().beginBatch();
+			}
+		}
+	}
+
+	public void endBatch() {
+		if (this.batchDepth == 0) {
+			return;
+		}
+		this.batchDepth -= 1;
+		if (this.batchDepth == 0) {
+			for (JBEWindow localJBEWindow : this.windowTable.values()) {
+				localJBEWindow.getCanvas().endBatch();
+			}
+		}
 	}
 
 	public void defineGObject(String paramString, GObject paramGObject) {
@@ -317,63 +377,141 @@ public class JavaBackEnd implements WindowListener, MouseListener, MouseMotionLi
 	}
 
 	public void println(String paramString) {
+		this.pipeWriter.awaitRoom();
 		synchronized (this.eventLock) {
-			System.out.println(paramString);
-			System.out.flush();
+			this.pipeWriter.printlnNoWait(paramString);
 		}
 	}
 
+	public SplPipeWriter getPipeWriter() {
+		return this.pipeWriter;
+	}
+
 	protected void acknowledgeEvent(String eventText, Object... args) {
 		acknowledgeEvent(String.format(Locale.US, eventText, args));
 	}
 	
+	/*
+	 * Events are written while holding eventLock, so that they stay in order
+	 * with the acks, but the pipe writer is only waited on for room before
+	 * taking the lock; see SplPipeWriter.awaitRoom.
+	 */
 	protected void acknowledgeEvent(String eventText) {
+		this.pipeWriter.awaitRoom();
 		synchronized (this.eventLock) {
-			System.out.println(eventText);
-			System.out.flush();
-			if (!this.eventAcknowledged) {
-				System.out.println("result:___jbe___ack___ " + eventText);
-				System.out.flush();
-				this.eventAcknowledged = true;
-				this.eventPending = false;
-			} else {
-				this.eventPending = true;
-			}
+			writeEvent(eventText);
 		}
 	}
 	
 	protected void acknowledgeEvent() {
+		this.pipeWriter.awaitRoom();
 		synchronized (this.eventLock) {
-			if (!this.eventAcknowledged) {
-				System.out.println("result:___jbe___ack___");
-				System.out.flush();
-				this.eventAcknowledged = true;
-				this.eventPending = false;
-			} else {
-				this.eventPending = true;
-			}
+			writeAck();
 		}
 	}
 
 	protected void getNextEvent(int paramInt) {
+		this.pipeWriter.awaitRoom();
 		synchronized (this.eventLock) {
+			flushMotionEvents();
 			this.eventAcknowledged = false;
 			this.eventPending = false;
-			acknowledgeEvent();
+			writeAck();
 			this.eventMask = paramInt;
 		}
 	}
 
 	protected void waitForEvent(int paramInt) {
+		this.pipeWriter.awaitRoom();
 		synchronized (this.eventLock) {
+			if (flushMotionEvents()) {
+				this.eventPending = true;
+			}
 			this.eventAcknowledged = false;
 			if (this.eventPending) {
-				acknowledgeEvent();
+				writeAck();
 			}
 			this.eventMask = paramInt;
 		}
 	}
 
+	/*
+	 * Writes the given event, and the ack if the client is waiting for one.
+	 * Caller must hold eventLock.
+	 */
+	private void writeEvent(String eventText) {
+		// keep motion events in order relative to this (non-motion) event
+		flushMotionEvents();
+		this.pipeWriter.printlnNoWait(eventText);
+		if (!this.eventAcknowledged) {
+			this.pipeWriter.printlnNoWait("result:___jbe___ack___ " + eventText);
+			this.eventAcknowledged = true;
+			this.eventPending = false;
+		} else {
+			this.eventPending = true;
+		}
+	}
+
+	/*
+	 * Writes the ack if the client is waiting for one.
+	 * Caller must hold eventLock.
+	 */
+	private void writeAck() {
+		if (!this.eventAcknowledged) {
+			this.pipeWriter.printlnNoWait("result:___jbe___ack___");
+			this.eventAcknowledged = true;
+			this.eventPending = false;
+		} else {
+			this.eventPending = true;
+		}
+	}
+
+	/*
+	 * Mouse moves and drags are not written as they happen.  While the C++ lib
+	 * is not blocked waiting for an event, only the newest pending motion event
+	 * per window is kept; it is written when the client next calls
+	 * getNextEvent/waitForEvent, or just before any other event so that
+	 * clicks, presses and keys stay in order.  Motion events never wait for
+	 * room in the pipe writer: pending ones are dropped if it is full.
+	 */
+	private void queueMotionEvent(String windowId, String eventText) {
+		synchronized (this.eventLock) {
+			if (!this.eventAcknowledged) {
+				// client is blocked in waitForEvent, so it is reading; deliver right away
+				writeEvent(eventText);
+			} else if (this.pendingMotionEvents.put(windowId, eventText) != null) {
+				this.coalescedEventCount += 1;
+				this.pipeWriter.addCoalesced(1);
+			}
+		}
+	}
+
+	/*
+	 * Writes any pending motion events, dropping those the pipe writer has no
+	 * room for; returns true if any were written.
+	 * Caller must hold eventLock.
+	 */
+	private boolean flushMotionEvents() {
+		if (this.pendingMotionEvents.isEmpty()) {
+			return false;
+		}
+		boolean written = false;
+		for (String eventText : this.pendingMotionEvents.values()) {
+			written |= this.pipeWriter.printlnIfRoom(eventText);
+		}
+		this.pendingMotionEvents.clear();
+		return written;
+	}
+
+	/*
+	 * Returns how many mouse move/drag events were merged into a newer one.
+	 */
+	public long getCoalescedEventCount() {
+		synchronized (this.eventLock) {
+			return this.coalescedEventCount;
+		}
+	}
+
 	private void showConsole() {
 		this.console.setPreferredSize(this.consoleWidth, this.consoleHeight);
 		this.consoleFrame = new JFrame(this.consoleWindowTitle);
@@ -571,19 +709,28 @@ public class JavaBackEnd implements WindowListener, MouseListener, MouseMotionLi
 
 	public void mouseMoved(MouseEvent paramMouseEvent) {
 		if ((this.eventMask & 0x100) != 0) {
-			printEvent("mouseMoved", paramMouseEvent);
+			printMotionEvent("mouseMoved", paramMouseEvent);
 		}
 	}
 
 	public void mouseDragged(MouseEvent paramMouseEvent) {
 		if ((this.eventMask & 0x100) != 0) {
-			printEvent("mouseDragged", paramMouseEvent);
+			printMotionEvent("mouseDragged", paramMouseEvent);
 		}
 	}
 
 	private void printEvent(String type, MouseEvent paramMouseEvent) {
+		acknowledgeEvent(formatEvent(type, paramMouseEvent));
+	}
+
+	private void printMotionEvent(String type, MouseEvent paramMouseEvent) {
+		JBECanvas localJBECanvas = (JBECanvas) paramMouseEvent.getSource();
+		queueMotionEvent(localJBECanvas.getWindowId(), formatEvent(type, paramMouseEvent));
+	}
+
+	private String formatEvent(String type, MouseEvent paramMouseEvent) {
 		JBECanvas localJBECanvas = (JBECanvas) paramMouseEvent.getSource();
-		acknowledgeEvent("event:%s(\"%s\", %d, %d, %d, %d)",
+		return String.format(Locale.US, "event:%s(\"%s\", %d, %d, %d, %d)",
 				type, localJBECanvas.getWindowId(), (long) getEventTime(),
 				convertModifiers(paramMouseEvent.getModifiersEx()),
 				paramMouseEvent.getX(), paramMouseEvent.getY());
@@ -602,6 +749,7 @@ public class JavaBackEnd implements WindowListener, MouseListener, MouseMotionLi
 				try {
 					Thread.sleep(200);
 				} catch (InterruptedException ie) {}
+				pipeWriter.drain();
 				try {
 					System.out.close();
 				} catch (Exception e) {
@@ -719,11 +867,7 @@ public class JavaBackEnd implements WindowListener, MouseListener, MouseMotionLi
 
 	private void commandLoop() {
 		BufferedReader localBufferedReader = new BufferedReader(new InputStreamReader(System.in));
-		TokenScanner localTokenScanner = new TokenScanner();
-		localTokenScanner.ignoreWhitespace();
-		localTokenScanner.scanNumbers();
-		localTokenScanner.scanStrings();
-		localTokenScanner.addWordCharacters(".");
+		TokenScanner localTokenScanner = createCommandScanner();
 		try {
 			for (;;) {
 				String str1 = localBufferedReader.readLine();
@@ -734,17 +878,14 @@ public class JavaBackEnd implements WindowListener, MouseListener, MouseMotionLi
 					printLog(str1);
 				}
 				
-				if (str1.equals("LongCommand.begin()")) {
-					str1 = readLongCommand(localBufferedReader);
-				}
-				
-				localTokenScanner.setInput(str1);
-				String str2 = localTokenScanner.nextToken();
-				JBECommand localJBECommand = (JBECommand) this.cmdTable.get(str2);
-				if (localJBECommand == null) {
-					System.err.println("Unexpected error: unknown command \"" + str2 + "\"");
+				if (str1.equals(LongCommandReader.BEGIN)) {
+					// parse long commands as they arrive rather than joining them into one String
+					LongCommandReader longCommand = new LongCommandReader(localBufferedReader);
+					localTokenScanner.setInput(longCommand);
+					executeCommand(localTokenScanner);
+					longCommand.skipToEnd();
 				} else {
-					localJBECommand.execute(localTokenScanner, this);
+					executeTextCommand(str1, localTokenScanner);
 				}
 			}
 		} catch (Exception localException) {
@@ -754,34 +895,98 @@ public class JavaBackEnd implements WindowListener, MouseListener, MouseMotionLi
 				printLog("Unexpected error: " + localException.getMessage());
 			}
 		}
+		if (DEBUG) {
+			printLog(this.pipeWriter.toString());
+		}
 	}
 	
 	/*
-	 * Handle very long command strings in special way.
+	 * Reads length-prefixed binary command frames from System.in and dispatches
+	 * them by opcode; see JBEBinaryCommand for the frame format.
 	 */
-	private String readLongCommand(BufferedReader systemInReader) throws IOException {
-		// repeatedly read lines from System.in until long command is done
-		StringBuilder sb = new StringBuilder(256000);
-		while (true) {
-			String line = systemInReader.readLine();
-			if (line == null || line.equals("LongCommand.end()")) {
-				break;
+	private void binaryCommandLoop() {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(System.in, BINARY_FRAME_BUFFER_SIZE));
+		JBEBinaryCommand[] opcodeTable = JBEBinaryCommand.createOpcodeTable();
+		TokenScanner localTokenScanner = createCommandScanner();
+		ByteBuffer frame = ByteBuffer.allocate(BINARY_FRAME_BUFFER_SIZE);
+		try {
+			for (;;) {
+				int length;
+				try {
+					length = in.readInt();
+				} catch (EOFException eof) {
+					break;
+				}
+				if (length < 2) {
+					throw new IOException("bad binary frame length: " + length);
+				}
+				if (length > frame.capacity()) {
+					frame = ByteBuffer.allocate(Math.max(length, 2 * frame.capacity()));
+				}
+				frame.clear();
+				in.readFully(frame.array(), 0, length);
+				frame.limit(length);
+				
+				int opcode = frame.getShort() & 0xffff;
+				if (DEBUG) {
+					printLog("binary opcode " + opcode + ", length " + length);
+				}
+				if (opcode == JBEBinaryCommand.OP_TEXT) {
+					String str1 = JBEBinaryCommand.nextString(frame, frame.remaining());
+					if (DEBUG) {
+						printLog(str1);
+					}
+					executeTextCommand(str1, localTokenScanner);
+				} else if (opcode < opcodeTable.length && opcodeTable[opcode] != null) {
+					opcodeTable[opcode].execute(frame, this);
+				} else {
+					System.err.println("Unexpected error: unknown opcode " + opcode);
+				}
+			}
+		} catch (Exception localException) {
+			localException.printStackTrace(System.err);
+			System.err.println("Unexpected error: " + localException.getMessage());
+			if (DEBUG) {
+				printLog("Unexpected error: " + localException.getMessage());
 			}
-			sb.append(line);
 		}
-		
-		String cmd = sb.toString();
-		return cmd;
 	}
-
+	
+	private TokenScanner createCommandScanner() {
+		TokenScanner localTokenScanner = new TokenScanner();
+		localTokenScanner.ignoreWhitespace();
+		localTokenScanner.scanNumbers();
+		localTokenScanner.scanStrings();
+		localTokenScanner.addWordCharacters(".");
+		return localTokenScanner;
+	}
+	
+	private void executeTextCommand(String str1, TokenScanner localTokenScanner) {
+		localTokenScanner.setInput(str1);
+		executeCommand(localTokenScanner);
+	}
+	
+	private void executeCommand(TokenScanner localTokenScanner) {
+		String str2 = localTokenScanner.nextToken();
+		JBECommand localJBECommand = (JBECommand) this.cmdTable.get(str2);
+		if (localJBECommand == null) {
+			System.err.println("Unexpected error: unknown command \"" + str2 + "\"");
+		} else {
+			localJBECommand.execute(localTokenScanner, this);
+		}
+	}
+	
 	private void processArguments(String[] paramArrayOfString) {
 		this.appName = "JBE";
 		this.exec = null;
+		this.binaryProtocol = false;
 		for (int i = 0; i < paramArrayOfString.length; i++) {
 			String str = paramArrayOfString[i];
 			if (str.startsWith("-")) {
 				if (str.equals("-exec")) {
 					this.exec = paramArrayOfString[(++i)];
+				} else if (str.equals("-protocol")) {
+					this.binaryProtocol = paramArrayOfString[(++i)].equals("binary");
 				} else {
 					System.err.println("Error: Unrecognized option " + str);
 				}
@@ -898,8 +1103,12 @@ public class JavaBackEnd implements WindowListener, MouseListener, MouseMotionLi
 	private HashMap<JComponent, String> sourceTable;
 	private Container empty = JTFTools.createEmptyContainer();
 	private int activeWindowCount;
+	private int batchDepth;
 	private int eventMask;
 	private Object eventLock = new Object();
+	private SplPipeWriter pipeWriter;
 	private boolean eventAcknowledged;
 	private boolean eventPending;
+	private LinkedHashMap<String, String> pendingMotionEvents;
+	private long coalescedEventCount;
 }
@@ -0,0 +1,385 @@
+/*
+ * Throughput and latency benchmark for the back-end's text pipe protocol.
+ *
+ * Runs a real JavaBackEnd command loop in this JVM, with System.in and
+ * System.out replaced by piped streams, and plays the part of the C++ lib by
+ * writing synthetic command streams and reading back the results.  For each
+ * scenario it reports:
+ * - commands/sec: commands written back-to-back, timed until a final result
+ * - p50/p99 latency: one operation at a time, each waited on before the next
+ * - alloc B/cmd: bytes allocated by the back-end's command thread per command
+ *
+ * Scenarios that need real windows (GWindow.draw) are skipped when headless,
+ * so it can be run on build machines with -Djava.awt.headless=true (which is
+ * also the default if the property is not set).
+ *
+ * @author Marty Stepp
+ * @version 2015/08/12
+ */
+
+package stanford.spl;
+
+import java.awt.GraphicsEnvironment;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+public class JavaBackEndBenchmark {
+	private static final int PIPE_BUFFER_SIZE = 1 << 16;
+	private static final int WARMUP_OPS = 2000;
+	private static final int THROUGHPUT_OPS = 20000;
+	private static final int LATENCY_OPS = 2000;
+	private static final int IMAGE_WARMUP_OPS = 5;
+	private static final int IMAGE_OPS = 30;
+	private static final long TIMEOUT_SECONDS = 60;
+
+	// cheap command with exactly one result, used to wait for the back-end to catch up
+	private static final String SYNC_COMMAND = "Regex.match(\"sync\", \"s.*\")";
+	private static final int[][] IMAGE_SIZES = {{64, 64}, {320, 240}, {640, 480}, {1280, 720}};
+
+	private final PrintStream report;
+	private final Semaphore results = new Semaphore(0);
+	private final Semaphore events = new Semaphore(0);
+	private JavaBackEnd jbe;
+	private Thread commandThread;
+	private Writer toBackEnd;
+
+	public static void main(String[] args) throws Exception {
+		if (System.getProperty("java.awt.headless") == null) {
+			System.setProperty("java.awt.headless", "true");
+		}
+		JavaBackEndBenchmark benchmark = new JavaBackEndBenchmark(System.out);
+		benchmark.start();
+		try {
+			benchmark.runAll();
+		} finally {
+			benchmark.stop();
+		}
+		System.exit(0);
+	}
+
+	public JavaBackEndBenchmark(PrintStream report) {
+		this.report = report;
+	}
+
+	/*
+	 * A repeatable unit of work sent to the back-end: one or more command
+	 * lines, and how many result lines they produce.
+	 */
+	private abstract static class Scenario {
+		private String name;
+		private int commandsPerOp;
+		private int resultsPerOp;
+
+		public Scenario(String name, int commandsPerOp, int resultsPerOp) {
+			this.name = name;
+			this.commandsPerOp = commandsPerOp;
+			this.resultsPerOp = resultsPerOp;
+		}
+
+		// commands to send once before the scenario is timed
+		public String[] setup() {
+			return new String[0];
+		}
+
+		// text of the i'th operation, ending with a newline
+		public abstract String op(int i);
+	}
+
+	public void runAll() throws Exception {
+		boolean headless = GraphicsEnvironment.isHeadless();
+		report.println("JavaBackEnd pipe benchmark (headless: " + headless + ")");
+		report.printf("%-34s %12s %10s %10s %12s%n", "scenario", "commands/s", "p50 us", "p99 us", "alloc B/cmd");
+
+		List<Scenario> scenarios = new ArrayList<Scenario>();
+		scenarios.add(createMoveScenario());
+		if (headless) {
+			report.println("(skipping create/setLocation/draw; needs a display)");
+		} else {
+			scenarios.add(createDrawScenario());
+		}
+		for (int[] size : IMAGE_SIZES) {
+			scenarios.add(createImageScenario(size[0], size[1]));
+		}
+		scenarios.add(createRegexScenario());
+
+		for (Scenario scenario : scenarios) {
+			boolean image = scenario.name.startsWith("GBufferedImage");
+			run(scenario, image ? IMAGE_WARMUP_OPS : WARMUP_OPS,
+					image ? IMAGE_OPS : THROUGHPUT_OPS,
+					image ? IMAGE_OPS : LATENCY_OPS);
+		}
+		runEventEmission();
+	}
+
+	/*
+	 * Starts a JavaBackEnd on its own thread, talking over piped streams.
+	 */
+	public void start() throws IOException {
+		PipedOutputStream commandPipe = new PipedOutputStream();
+		PipedInputStream backEndIn = new PipedInputStream(commandPipe, PIPE_BUFFER_SIZE);
+		PipedInputStream resultPipe = new PipedInputStream(PIPE_BUFFER_SIZE);
+		PrintStream backEndOut = new PrintStream(new PipedOutputStream(resultPipe), /* autoFlush */ false, "UTF-8");
+		toBackEnd = new BufferedWriter(new OutputStreamWriter(commandPipe, "UTF-8"), PIPE_BUFFER_SIZE);
+
+		final BufferedReader fromBackEnd = new BufferedReader(new InputStreamReader(resultPipe, "UTF-8"));
+		Thread resultThread = new Thread(new Runnable() {
+			public void run() {
+				readResults(fromBackEnd);
+			}
+		}, "JavaBackEndBenchmark-results");
+		resultThread.setDaemon(true);
+		resultThread.start();
+
+		System.setIn(backEndIn);
+		System.setOut(backEndOut);
+		jbe = new JavaBackEnd();
+		commandThread = new Thread(new Runnable() {
+			public void run() {
+				jbe.run(new String[0]);
+			}
+		}, "JavaBackEndBenchmark-commands");
+		commandThread.setDaemon(true);
+		commandThread.start();
+	}
+
+	/*
+	 * Closes the command pipe, which ends the back-end's command loop.
+	 */
+	public void stop() throws IOException, InterruptedException {
+		toBackEnd.close();
+		commandThread.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+		System.setOut(report);
+	}
+
+	private void readResults(BufferedReader fromBackEnd) {
+		try {
+			String line;
+			while ((line = fromBackEnd.readLine()) != null) {
+				if (line.startsWith("result:")) {
+					results.release();
+				} else if (line.startsWith("event:")) {
+					events.release();
+				}
+			}
+		} catch (IOException ioe) {
+			// back-end has gone away; nothing more to count
+		}
+	}
+
+	private void run(Scenario scenario, int warmupOps, int throughputOps, int latencyOps) throws Exception {
+		for (String command : scenario.setup()) {
+			send(command + "\n");
+		}
+		sync(0);
+
+		// warm up, then time a long run of back-to-back operations
+		for (int i = 0; i < warmupOps; i++) {
+			send(scenario.op(i));
+		}
+		sync(warmupOps * scenario.resultsPerOp);
+
+		long allocStart = getAllocatedBytes(commandThread);
+		long start = System.nanoTime();
+		for (int i = 0; i < throughputOps; i++) {
+			send(scenario.op(i));
+		}
+		sync(throughputOps * scenario.resultsPerOp);
+		long elapsed = System.nanoTime() - start;
+		long allocated = getAllocatedBytes(commandThread) - allocStart;
+
+		// time each operation alone; add a sync command if the op has no result of its own
+		long[] latencies = new long[latencyOps];
+		for (int i = 0; i < latencyOps; i++) {
+			long opStart = System.nanoTime();
+			send(scenario.op(i));
+			if (scenario.resultsPerOp == 0) {
+				sync(0);
+			} else {
+				flush();
+				await(results, scenario.resultsPerOp);
+			}
+			latencies[i] = System.nanoTime() - opStart;
+		}
+
+		long commands = (long) throughputOps * scenario.commandsPerOp;
+		report(scenario.name, commands, elapsed, latencies, allocStart < 0 ? -1 : allocated);
+	}
+
+	/*
+	 * Posts timer events the way GTimer does, from this thread, and counts them
+	 * as they come out of the pipe.
+	 */
+	private void runEventEmission() throws Exception {
+		// a getNextEvent call leaves the back-end writing events as they happen
+		send("GEvent.getNextEvent(0)\n");
+		flush();
+		await(results, 1);
+
+		Thread current = Thread.currentThread();
+		for (int i = 0; i < WARMUP_OPS; i++) {
+			jbe.acknowledgeEvent("event:timerTicked(\"%s\", %d)", "bench", (long) i);
+		}
+		await(events, WARMUP_OPS);
+
+		long allocStart = getAllocatedBytes(current);
+		long start = System.nanoTime();
+		for (int i = 0; i < THROUGHPUT_OPS; i++) {
+			jbe.acknowledgeEvent("event:timerTicked(\"%s\", %d)", "bench", (long) i);
+		}
+		await(events, THROUGHPUT_OPS);
+		long elapsed = System.nanoTime() - start;
+		long allocated = getAllocatedBytes(current) - allocStart;
+
+		long[] latencies = new long[LATENCY_OPS];
+		for (int i = 0; i < LATENCY_OPS; i++) {
+			long opStart = System.nanoTime();
+			jbe.acknowledgeEvent("event:timerTicked(\"%s\", %d)", "bench", (long) i);
+			await(events, 1);
+			latencies[i] = System.nanoTime() - opStart;
+		}
+		report("event emission (timerTicked)", THROUGHPUT_OPS, elapsed, latencies, allocStart < 0 ? -1 : allocated);
+	}
+
+	private Scenario createMoveScenario() {
+		return new Scenario("GRect create/setLocation x4/delete", 6, 0) {
+			public String op(int i) {
+				String id = "\"rect" + i + "\"";
+				return "GRect.create(" + id + ", 40, 30)\n"
+						+ "GObject.setLocation(" + id + ", " + (i % 400) + ", 10)\n"
+						+ "GObject.setLocation(" + id + ", " + (i % 400) + ", 20)\n"
+						+ "GObject.setLocation(" + id + ", " + (i % 400) + ", 30)\n"
+						+ "GObject.setLocation(" + id + ", " + (i % 400) + ", 40)\n"
+						+ "GObject.delete(" + id + ")\n";
+			}
+		};
+	}
+
+	private Scenario createDrawScenario() {
+		return new Scenario("GRect create/setLocation/draw", 4, 0) {
+			public String[] setup() {
+				return new String[] {
+					"GCompound.create(\"top\")",
+					"GWindow.create(\"window\", 500, 400, \"top\", false)"
+				};
+			}
+
+			public String op(int i) {
+				String id = "\"rect" + i + "\"";
+				return "GRect.create(" + id + ", 40, 30)\n"
+						+ "GObject.setLocation(" + id + ", " + (i % 400) + ", " + (i % 300) + ")\n"
+						+ "GWindow.draw(\"window\", " + id + ")\n"
+						+ "GObject.delete(" + id + ")\n";
+			}
+		};
+	}
+
+	private Scenario createImageScenario(final int width, final int height) {
+		// send as the C++ lib does: a long command split into pipe-sized lines
+		final String command = "GBufferedImage.updateAllPixels(\"image\", \""
+				+ createImage(width, height).toStringBase64() + "\")";
+		StringBuilder sb = new StringBuilder(command.length() + command.length() / 2000 + 64);
+		sb.append(LongCommandReader.BEGIN).append('\n');
+		for (int i = 0; i < command.length(); i += 2000) {
+			sb.append(command, i, Math.min(command.length(), i + 2000)).append('\n');
+		}
+		sb.append(LongCommandReader.END).append('\n');
+		final String op = sb.toString();
+
+		return new Scenario("GBufferedImage.updateAllPixels " + width + "x" + height, 1, 0) {
+			public String[] setup() {
+				return new String[] {
+					"GBufferedImage.create(\"image\", 0, 0, " + width + ", " + height + ", 0)"
+				};
+			}
+
+			public String op(int i) {
+				return op;
+			}
+		};
+	}
+
+	private Scenario createRegexScenario() {
+		final String text = SplPipeDecoder.encode("The quick brown fox jumps over the lazy dog; "
+				+ "pack my box with five dozen liquor jugs.");
+		return new Scenario("Regex.match/matchCount/replace", 3, 3) {
+			public String op(int i) {
+				return "Regex.match(\"" + text + "\", \".*fox.*\")\n"
+						+ "Regex.matchCount(\"" + text + "\", \"[aeiou]\")\n"
+						+ "Regex.replace(\"" + text + "\", \"o+\", \"0\")\n";
+			}
+		};
+	}
+
+	private static GBufferedImage createImage(int width, int height) {
+		GBufferedImage img = new GBufferedImage(width, height);
+		int[] pixels = new int[width * height];
+		for (int i = 0; i < pixels.length; i++) {
+			pixels[i] = (i * 0x9e3779b1) & 0xffffff;   // scrambled, so it doesn't compress away
+		}
+		img.getBufferedImage().setRGB(0, 0, width, height, pixels, 0, width);
+		return img;
+	}
+
+	private void send(String text) throws IOException {
+		toBackEnd.write(text);
+	}
+
+	private void flush() throws IOException {
+		toBackEnd.flush();
+	}
+
+	/*
+	 * Sends the sync command and waits for it and the given number of
+	 * earlier results to come back.
+	 */
+	private void sync(int pendingResults) throws Exception {
+		send(SYNC_COMMAND + "\n");
+		flush();
+		await(results, pendingResults + 1);
+	}
+
+	private void await(Semaphore semaphore, int count) throws InterruptedException {
+		if (!semaphore.tryAcquire(count, TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+			throw new IllegalStateException("timed out waiting for the back-end ("
+					+ semaphore.availablePermits() + " of " + count + " lines)");
+		}
+	}
+
+	/*
+	 * Returns how many bytes the given thread has allocated so far,
+	 * or -1 if this JVM can't tell.
+	 */
+	private static long getAllocatedBytes(Thread thread) {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+			if (sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled()) {
+				return sunBean.getThreadAllocatedBytes(thread.getId());
+			}
+		}
+		return -1;
+	}
+
+	private void report(String name, long commands, long elapsedNanos, long[] latencies, long allocated) {
+		Arrays.sort(latencies);
+		double perSecond = commands / (elapsedNanos / 1e9);
+		double p50 = latencies[latencies.length / 2] / 1e3;
+		double p99 = latencies[Math.min(latencies.length - 1, (int) (latencies.length * 0.99))] / 1e3;
+		String alloc = allocated < 0 ? "n/a" : String.valueOf(allocated / commands);
+		report.printf("%-34s %12.0f %10.1f %10.1f %12s%n", name, perSecond, p50, p99, alloc);
+	}
+}
@@ -0,0 +1,90 @@
+/*
+ * Reads the text of a long command straight from the pipe.
+ *
+ * The C++ lib sends commands longer than its pipe limit as the line
+ * "LongCommand.begin()", then the command text split across several lines,
+ * then "LongCommand.end()".  This reader returns the command text with the
+ * line breaks removed, pulling one chunk line at a time from the pipe, so a
+ * multi-megabyte command (such as GBufferedImage.updateAllPixels) can be
+ * parsed and decoded without ever being joined into one String.
+ *
+ * @author Marty Stepp
+ * @version 2015/08/12
+ */
+
+package stanford.spl;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+
+public class LongCommandReader extends Reader {
+	public static final String BEGIN = "LongCommand.begin()";
+	public static final String END = "LongCommand.end()";
+
+	private BufferedReader pipe;
+	private String line;
+	private int index;
+	private boolean done;
+
+	/*
+	 * Constructs a reader for a long command whose begin line has just been
+	 * read from the given pipe.
+	 */
+	public LongCommandReader(BufferedReader pipe) {
+		this.pipe = pipe;
+		this.line = "";
+		this.index = 0;
+		this.done = false;
+	}
+
+	public int read() throws IOException {
+		if (!fill()) {
+			return -1;
+		}
+		return line.charAt(index++);
+	}
+
+	public int read(char[] buffer, int offset, int length) throws IOException {
+		if (length == 0) {
+			return 0;
+		}
+		if (!fill()) {
+			return -1;
+		}
+		int count = Math.min(length, line.length() - index);
+		line.getChars(index, index + count, buffer, offset);
+		index += count;
+		return count;
+	}
+
+	/*
+	 * Reads and discards the rest of the long command, through its end line,
+	 * so that the pipe is positioned at the start of the next command.
+	 */
+	public void skipToEnd() throws IOException {
+		while (fill()) {
+			index = line.length();
+		}
+	}
+
+	public void close() throws IOException {
+		skipToEnd();
+	}
+
+	/*
+	 * Makes sure there are unread characters in the current line, reading
+	 * the next chunk line if needed; returns false at the end of the command.
+	 */
+	private boolean fill() throws IOException {
+		while (!done && index >= line.length()) {
+			line = pipe.readLine();
+			index = 0;
+			if (line == null || line.equals(END)) {
+				line = "";
+				done = true;
+			}
+		}
+		return !done;
+	}
+}
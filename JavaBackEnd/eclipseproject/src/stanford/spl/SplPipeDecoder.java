@@ -1,5 +1,8 @@
 package stanford.spl;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 import java.net.URLEncoder;
@@ -48,7 +51,7 @@ public class SplPipeDecoder {
 	}
 	
 	public static String readEncodedString(TokenScanner scanner) {
-		String s = "";
+		StringBuilder s = new StringBuilder();
 		eatSpaces(scanner);
 		int ch = scanner.getChar();
 		if (ch != '"') {
@@ -59,13 +62,77 @@ public class SplPipeDecoder {
 			if (ch == '"' || ch < 0) {
 				break;
 			} else {
-				s += (char) ch;
+				s.append((char) ch);
 			}
 		}
 		if (ch != '"') {
 			throw new ErrorException("quoted string must end with \" character, but saw '" + (char)ch + "' (" + (int)ch + ")");
 		}
-		return s;
+		return s.toString();
+	}
+	
+	/*
+	 * Returns a stream over the characters of the quoted string that is next
+	 * in the given scanner, read one at a time from the scanner's input, so
+	 * that a long payload never has to be built into a String.  The stream
+	 * ends at the closing " character, which is consumed.
+	 */
+	public static InputStream openQuotedString(final TokenScanner scanner) {
+		eatSpaces(scanner);
+		int ch = scanner.getChar();
+		if (ch != '"') {
+			throw new ErrorException("quoted string must start with \" character, but saw '" + (char)ch + "' (" + ch + ")");
+		}
+		return new InputStream() {
+			private boolean done = false;
+			
+			public int read() throws IOException {
+				if (done) {
+					return -1;
+				}
+				int ch = scanner.getChar();
+				if (ch == '"') {
+					done = true;
+					return -1;
+				} else if (ch < 0) {
+					throw new IOException("quoted string must end with \" character");
+				}
+				return ch;
+			}
+		};
+	}
+	
+	/*
+	 * Returns a stream whose bytes (which must be ASCII) are sent as a long
+	 * result, split into lines of at most PIPE_MAX_COMMAND_LENGTH characters.
+	 * Closing the stream ends the result.
+	 */
+	public static OutputStream openLongResult() {
+		final SplPipeWriter writer = SplPipeWriter.getInstance();
+		writer.println("result_long:begin");
+		return new OutputStream() {
+			private final StringBuilder chunk = new StringBuilder(PIPE_MAX_COMMAND_LENGTH);
+			private boolean closed = false;
+			
+			public void write(int b) {
+				chunk.append((char) (b & 0xff));
+				if (chunk.length() >= PIPE_MAX_COMMAND_LENGTH) {
+					writer.println(chunk.toString());
+					chunk.setLength(0);
+				}
+			}
+			
+			public void close() {
+				if (closed) {
+					return;
+				}
+				closed = true;
+				if (chunk.length() > 0) {
+					writer.println(chunk.toString());
+				}
+				writer.println("result_long:end");
+			}
+		};
 	}
 	
 	public static void writeResult(Object o) {
@@ -76,22 +143,19 @@ public class SplPipeDecoder {
 		if (s.length() > PIPE_MAX_COMMAND_LENGTH) {
 			writeLongResult(s);
 		} else {
-			System.out.println("result:" + s);
-			System.out.flush();
+			SplPipeWriter.getInstance().println("result:" + s);
 		}
 	}
 	
 	public static void writeLongResult(String s) {
-		System.out.println("result_long:begin");
-		System.out.flush();
+		SplPipeWriter writer = SplPipeWriter.getInstance();
+		writer.println("result_long:begin");
 		for (int i = 0, len = s.length();
 				i < len;
 				i += PIPE_MAX_COMMAND_LENGTH) {
 			String chunk = s.substring(i, Math.min(i + PIPE_MAX_COMMAND_LENGTH, len));
-			System.out.println(chunk);
-			System.out.flush();
+			writer.println(chunk);
 		}
-		System.out.println("result_long:end");
-		System.out.flush();
+		writer.println("result_long:end");
 	}
 }
@@ -0,0 +1,315 @@
+/*
+ * Asynchronous writer for lines sent from the back-end to the C++ lib.
+ *
+ * Events and results are appended to a bounded, lock-free queue and written
+ * to System.out by a dedicated daemon thread, which gathers everything that is
+ * pending into a single write per wakeup, so callers don't wait on the pipe
+ * itself.  When a slow C++ reader lets the queue fill up, println waits for
+ * room and printlnIfRoom drops the line instead, for lossy events such as
+ * mouse motion.  A caller that queues lines while holding a lock, as
+ * JavaBackEnd does with its event lock, calls awaitRoom before taking the
+ * lock and printlnNoWait while holding it, so that no thread waits for the
+ * reader while holding the lock.
+ *
+ * The mode is chosen with the system property stanfordspl.pipewriter:
+ * - "batch" (default): one write and one flush per wakeup
+ * - "line":  asynchronous, but flushes after every line
+ * - "sync":  no writer thread; every line is written and flushed by the caller
+ * The queue capacity can be set with stanfordspl.pipewriter.capacity.
+ *
+ * @author Marty Stepp
+ * @version 2015/08/12
+ */
+
+package stanford.spl;
+
+import java.io.PrintStream;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+public class SplPipeWriter {
+	public static final int FLUSH_SYNC = 0;
+	public static final int FLUSH_EACH_LINE = 1;
+	public static final int FLUSH_EACH_BATCH = 2;
+	public static final int DEFAULT_CAPACITY = 8192;
+	private static final String MODE_PROPERTY = "stanfordspl.pipewriter";
+	private static final String CAPACITY_PROPERTY = "stanfordspl.pipewriter.capacity";
+	private static final long DRAIN_TIMEOUT_MS = 2000;
+
+	// what enqueue does with a line when the queue is full
+	private static final int FULL_WAIT = 0;
+	private static final int FULL_DROP = 1;
+	private static final int FULL_QUEUE = 2;
+
+	private static SplPipeWriter instance;
+
+	private final ConcurrentLinkedQueue<String> queue;
+	private final AtomicInteger queueSize;
+	private final AtomicLong linesWritten;
+	private final AtomicLong writeCount;
+	private final AtomicLong droppedCount;
+	private final AtomicLong coalescedCount;
+	private final int capacity;
+	private final int flushPolicy;
+	private volatile int maxQueueSize;
+	private volatile Thread writerThread;
+	private volatile boolean writing;
+
+	public static synchronized SplPipeWriter getInstance() {
+		if (instance == null) {
+			instance = new SplPipeWriter(readFlushPolicy(), readCapacity());
+		}
+		return instance;
+	}
+
+	public SplPipeWriter(int flushPolicy, int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("capacity must be positive: " + capacity);
+		}
+		this.flushPolicy = flushPolicy;
+		this.capacity = capacity;
+		this.queue = new ConcurrentLinkedQueue<String>();
+		this.queueSize = new AtomicInteger();
+		this.linesWritten = new AtomicLong();
+		this.writeCount = new AtomicLong();
+		this.droppedCount = new AtomicLong();
+		this.coalescedCount = new AtomicLong();
+		if (flushPolicy != FLUSH_SYNC) {
+			startWriterThread();
+		}
+	}
+
+	/*
+	 * Queues the given line to be written, waiting for room if the queue is full.
+	 * Lines from all callers are written in the order they were queued.
+	 */
+	public void println(String line) {
+		enqueue(line, FULL_WAIT);
+	}
+
+	/*
+	 * Queues the given line without waiting, even if the queue is full.  Meant
+	 * for callers holding a lock, after awaitRoom; the queue can go over its
+	 * capacity by the lines queued between the two.
+	 */
+	public void printlnNoWait(String line) {
+		enqueue(line, FULL_QUEUE);
+	}
+
+	/*
+	 * Queues the given line unless the queue is full, in which case it is
+	 * discarded and counted as dropped.  Meant for lossy events such as mouse
+	 * motion; returns whether the line was queued.
+	 */
+	public boolean printlnIfRoom(String line) {
+		return enqueue(line, FULL_DROP);
+	}
+
+	/*
+	 * Waits until the queue has room for another line, without queueing one.
+	 */
+	public void awaitRoom() {
+		if (flushPolicy == FLUSH_SYNC) {
+			return;
+		}
+		while (queueSize.get() >= capacity) {
+			waitForWriter();
+		}
+	}
+
+	/*
+	 * Records that n events were merged into others before reaching this writer.
+	 */
+	public void addCoalesced(int n) {
+		coalescedCount.addAndGet(n);
+	}
+
+	/*
+	 * Blocks until every queued line has been written and flushed,
+	 * or until a short timeout passes.
+	 */
+	public void drain() {
+		if (flushPolicy == FLUSH_SYNC || Thread.currentThread() == writerThread) {
+			return;
+		}
+		long deadline = System.currentTimeMillis() + DRAIN_TIMEOUT_MS;
+		while ((queueSize.get() > 0 || writing) && System.currentTimeMillis() < deadline) {
+			LockSupport.unpark(writerThread);
+			LockSupport.parkNanos(100000L);
+		}
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public long getCoalescedCount() {
+		return coalescedCount.get();
+	}
+
+	public long getDroppedCount() {
+		return droppedCount.get();
+	}
+
+	public int getFlushPolicy() {
+		return flushPolicy;
+	}
+
+	public long getLinesWritten() {
+		return linesWritten.get();
+	}
+
+	public int getMaxQueueSize() {
+		return maxQueueSize;
+	}
+
+	public int getQueueSize() {
+		return queueSize.get();
+	}
+
+	public long getWriteCount() {
+		return writeCount.get();
+	}
+
+	public String toString() {
+		return "SplPipeWriter{queue=" + getQueueSize() + "/" + capacity
+				+ ", maxQueue=" + maxQueueSize
+				+ ", lines=" + getLinesWritten()
+				+ ", writes=" + getWriteCount()
+				+ ", dropped=" + getDroppedCount()
+				+ ", coalesced=" + getCoalescedCount() + "}";
+	}
+
+	private boolean enqueue(String line, int whenFull) {
+		if (flushPolicy == FLUSH_SYNC) {
+			writeDirect(line);
+			return true;
+		}
+		while (true) {
+			int size = queueSize.get();
+			if (size >= capacity && whenFull == FULL_DROP) {
+				droppedCount.incrementAndGet();
+				return false;
+			} else if (size >= capacity && whenFull == FULL_WAIT) {
+				waitForWriter();
+			} else if (queueSize.compareAndSet(size, size + 1)) {
+				if (size + 1 > maxQueueSize) {
+					maxQueueSize = size + 1;
+				}
+				break;
+			}
+		}
+		queue.offer(line);
+		LockSupport.unpark(writerThread);
+		return true;
+	}
+
+	// the queue is full; gives the writer a moment to catch up
+	private void waitForWriter() {
+		LockSupport.unpark(writerThread);
+		LockSupport.parkNanos(50000L);
+	}
+
+	private void writeDirect(String line) {
+		PrintStream out = System.out;
+		synchronized (out) {
+			out.println(line);
+			out.flush();
+		}
+		linesWritten.incrementAndGet();
+		writeCount.incrementAndGet();
+	}
+
+	private void startWriterThread() {
+		Thread thread = new Thread(new Runnable() {
+			public void run() {
+				writeLoop();
+			}
+		}, "SplPipeWriter");
+		thread.setDaemon(true);
+		writerThread = thread;
+		thread.start();
+
+		// don't lose queued output if the back-end calls System.exit
+		Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+			public void run() {
+				drain();
+			}
+		}, "SplPipeWriter-drain"));
+	}
+
+	private void writeLoop() {
+		StringBuilder batch = new StringBuilder(4096);
+		while (true) {
+			String line = queue.poll();
+			if (line == null) {
+				LockSupport.park(this);
+				continue;
+			}
+
+			writing = true;
+			PrintStream out = System.out;
+			int lines = 0;
+			batch.setLength(0);
+			while (line != null) {
+				queueSize.decrementAndGet();
+				lines++;
+				if (flushPolicy == FLUSH_EACH_LINE) {
+					synchronized (out) {
+						out.println(line);
+						out.flush();
+					}
+					writeCount.incrementAndGet();
+				} else {
+					batch.append(line).append('\n');
+				}
+				line = queue.poll();
+			}
+			if (batch.length() > 0) {
+				synchronized (out) {
+					out.print(batch);
+					out.flush();
+				}
+				writeCount.incrementAndGet();
+				if (batch.capacity() > 1024 * 1024) {
+					// don't hang on to the buffer from one huge result forever
+					batch = new StringBuilder(4096);
+				}
+			}
+			linesWritten.addAndGet(lines);
+			writing = false;
+		}
+	}
+
+	private static int readFlushPolicy() {
+		String mode = null;
+		try {
+			mode = System.getProperty(MODE_PROPERTY);
+		} catch (Exception e) {
+			// empty
+		}
+		if (mode == null) {
+			return FLUSH_EACH_BATCH;
+		} else if (mode.equalsIgnoreCase("sync")) {
+			return FLUSH_SYNC;
+		} else if (mode.equalsIgnoreCase("line")) {
+			return FLUSH_EACH_LINE;
+		} else {
+			return FLUSH_EACH_BATCH;
+		}
+	}
+
+	private static int readCapacity() {
+		try {
+			String value = System.getProperty(CAPACITY_PROPERTY);
+			if (value != null) {
+				return Integer.parseInt(value);
+			}
+		} catch (Exception e) {
+			// empty
+		}
+		return DEFAULT_CAPACITY;
+	}
+}
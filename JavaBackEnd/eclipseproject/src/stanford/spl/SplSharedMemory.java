@@ -0,0 +1,62 @@
+/*
+ * Memory-mapped files shared between the C++ lib and the back-end.
+ *
+ * Large payloads such as GBufferedImage pixels can be placed in a temp file
+ * that both processes map, so that only a short "data is at offset/length"
+ * command has to travel through the pipe.  Mappings are cached by path and
+ * grown on demand; data in a mapping is stored in little-endian order so the
+ * C++ side can copy its native int arrays in and out directly.
+ *
+ * @author Marty Stepp
+ * @version 2015/08/12
+ */
+
+package stanford.spl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+public class SplSharedMemory {
+	private static final Map<String, MappedByteBuffer> MAPPINGS = new HashMap<String, MappedByteBuffer>();
+
+	private SplSharedMemory() {
+		// empty
+	}
+
+	/*
+	 * Returns a read/write mapping of at least minSize bytes of the given file,
+	 * creating or growing the file as needed.
+	 */
+	public static synchronized MappedByteBuffer map(String path, long minSize) throws IOException {
+		if (minSize > Integer.MAX_VALUE) {
+			throw new IOException("shared memory region too large: " + minSize + " bytes");
+		}
+		MappedByteBuffer buffer = MAPPINGS.get(path);
+		if (buffer == null || buffer.capacity() < minSize) {
+			RandomAccessFile file = new RandomAccessFile(new File(path), "rw");
+			try {
+				long size = Math.max(minSize, file.length());
+				buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+				buffer.order(ByteOrder.LITTLE_ENDIAN);
+				MAPPINGS.put(path, buffer);
+			} finally {
+				// the mapping stays valid after the channel is closed
+				file.close();
+			}
+		}
+		return buffer;
+	}
+
+	/*
+	 * Forgets the cached mapping of the given file, if any.
+	 */
+	public static synchronized void release(String path) {
+		MAPPINGS.remove(path);
+	}
+}